@@ -1,5 +1,6 @@
 plugins {
     alias(libs.plugins.org.jetbrains.kotlin.jvm)
+    alias(libs.plugins.me.champeau.jmh)
     id("java-library")
 }
 
@@ -11,3 +12,73 @@ dependencies {
     implementation(libs.nanojson)
     testImplementation(libs.junit)
 }
+
+// precompiles the json configuration of each language into binary snapshots, which load much
+// faster at startup; the library falls back to the json files if the snapshots are missing, see
+// ConfigSnapshots. Invalid configurations make these tasks, and therefore the build, fail.
+val configDir = layout.projectDirectory.dir("src/main/resources/config")
+val configFolderArgs = provider {
+    configDir.asFile.listFiles()!!
+        .filter { it.isDirectory }
+        .map { "config/" + it.name }
+        .sorted()
+}
+
+fun JavaExec.configSnapshotsGenerator(outputDir: Provider<Directory>, vararg options: String) {
+    inputs.dir(configDir)
+    outputs.dir(outputDir)
+    // only the compiled classes and the json files, not the whole main output, which will in
+    // turn contain the generated snapshots
+    classpath(
+        sourceSets.main.get().output.classesDirs,
+        configurations.runtimeClasspath,
+        layout.projectDirectory.dir("src/main/resources"),
+    )
+    mainClass.set("org.dicio.numbers.util.ConfigSnapshots")
+    argumentProviders.add(CommandLineArgumentProvider {
+        options.toList() + outputDir.get().asFile.absolutePath + configFolderArgs.get()
+    })
+}
+
+// writes the snapshots as resources placed next to the json files (e.g.
+// config/en-us/tokenizer.bin), for applications that want to ship them separately
+val generateConfigSnapshots by tasks.registering(JavaExec::class) {
+    configSnapshotsGenerator(layout.buildDirectory.dir("generated/configSnapshots"))
+}
+
+// writes the snapshots as the Java source of a ConfigSnapshotSource, so that loading a language
+// only requires loading a class, without any resource lookup. The source can only be generated
+// (and compiled) after the main classes, so it gets its own compilation and output directory.
+val generateConfigSources by tasks.registering(JavaExec::class) {
+    configSnapshotsGenerator(layout.buildDirectory.dir("generated/configSources"), "--java")
+}
+
+val compileConfigSources by tasks.registering(JavaCompile::class) {
+    source(generateConfigSources)
+    include("**/*.java")
+    classpath = sourceSets.main.get().output.classesDirs + configurations.compileClasspath.get()
+    destinationDirectory.set(layout.buildDirectory.dir("classes/java/configSources"))
+}
+
+val configSourcesServices by tasks.registering(Sync::class) {
+    from(generateConfigSources) { include("META-INF/**") }
+    into(layout.buildDirectory.dir("generated/configSourcesServices"))
+}
+
+sourceSets.main {
+    output.dir(
+        mapOf("builtBy" to compileConfigSources),
+        compileConfigSources.flatMap { it.destinationDirectory },
+    )
+    output.dir(
+        mapOf("builtBy" to configSourcesServices),
+        configSourcesServices.map { it.destinationDir },
+    )
+}
+
+// benchmarks are in src/jmh and can be run with `./gradlew :numbers:jmh`, optionally passing
+// e.g. `-PjmhIncludes=TokenizerBenchmark` to only run some of them
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    (project.findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
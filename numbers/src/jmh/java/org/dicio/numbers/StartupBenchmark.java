@@ -0,0 +1,81 @@
+package org.dicio.numbers;
+
+import org.dicio.numbers.lang.en.EnglishFormatter;
+import org.dicio.numbers.lang.en.EnglishParser;
+import org.dicio.numbers.lang.es.SpanishFormatter;
+import org.dicio.numbers.lang.es.SpanishParser;
+import org.dicio.numbers.lang.it.ItalianFormatter;
+import org.dicio.numbers.lang.it.ItalianParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.ref.Reference;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the time it takes to load the formatter or the parser of a language in a fresh JVM,
+ * i.e. what an application that only formats or only parses pays at startup. At the end of each
+ * fork the heap retained by one instance of the loaded side is also estimated and printed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+    private static final Map<String, Supplier<Object>> SIDES = Map.of(
+            "en-formatter", EnglishFormatter::new,
+            "en-parser", EnglishParser::new,
+            "it-formatter", ItalianFormatter::new,
+            "it-parser", ItalianParser::new,
+            "es-formatter", SpanishFormatter::new,
+            "es-parser", SpanishParser::new
+    );
+    private static final int RETAINED_HEAP_INSTANCES = 20;
+
+    @Param({"en", "it", "es"})
+    public String language;
+
+    @Param({"formatter", "parser"})
+    public String side;
+
+    @Benchmark
+    public Object load() {
+        return SIDES.get(language + "-" + side).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void printRetainedHeap() {
+        final Supplier<Object> supplier = SIDES.get(language + "-" + side);
+        final long before = usedHeapAfterGc();
+        final Object[] instances = new Object[RETAINED_HEAP_INSTANCES];
+        for (int i = 0; i < instances.length; ++i) {
+            instances[i] = supplier.get();
+        }
+        final long after = usedHeapAfterGc();
+        System.out.printf("%n%s %s retained heap: ~%d KiB per instance (%d instances)%n",
+                language, side, (after - before) / instances.length / 1024, instances.length);
+        Reference.reachabilityFence(instances); // keep the instances alive while measuring
+    }
+
+    private static long usedHeapAfterGc() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,99 @@
+package org.dicio.numbers.parser.lexer;
+
+import com.grack.nanojson.JsonObject;
+import com.grack.nanojson.JsonParser;
+import com.grack.nanojson.JsonParserException;
+
+import org.dicio.numbers.util.ResourceOpener;
+import org.dicio.numbers.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares classifying the characters of a long input as spaces or as characters to consider as
+ * words by searching through the strings in tokenizer.json ({@link Utils#containsCodePoint}) and
+ * by looking them up in the precompiled {@link CodePointSet}s. Also measures the whole tokenizer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodePointSetBenchmark {
+    private static final String SENTENCE = "Set a timer for twenty-two minutes, then remind me "
+            + "at 5:30 p.m. (tomorrow) to call +39 333 1234567; it's about 1,500.75 euros! ";
+
+    @Param({"1000", "100000"})
+    public int length;
+
+    private String input;
+    private String spaces;
+    private String charactersAsWord;
+    private CodePointSet spacesSet;
+    private CodePointSet charactersAsWordSet;
+    private Tokenizer tokenizer;
+
+    @Setup
+    public void setup() throws FileNotFoundException, JsonParserException {
+        final JsonObject root = JsonParser.object().from(
+                ResourceOpener.getResourceAsStream("config/en-us/tokenizer.json"));
+        spaces = root.getString("spaces");
+        charactersAsWord = root.getString("characters_as_word");
+        spacesSet = new CodePointSet(spaces);
+        charactersAsWordSet = new CodePointSet(charactersAsWord);
+        tokenizer = new Tokenizer("config/en-us");
+
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append(SENTENCE);
+        }
+        input = builder.substring(0, length);
+    }
+
+
+    @Benchmark
+    public int classifyWithContainsCodePoint() {
+        int count = 0;
+        for (int i = 0; i < input.length(); ++i) {
+            final int codePoint = input.codePointAt(i);
+            if (Utils.containsCodePoint(spaces, codePoint)) {
+                count += 1;
+            } else if (Utils.containsCodePoint(charactersAsWord, codePoint)) {
+                count += 2;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int classifyWithCodePointSet() {
+        int count = 0;
+        for (int i = 0; i < input.length(); ++i) {
+            final int codePoint = input.codePointAt(i);
+            if (spacesSet.contains(codePoint)) {
+                count += 1;
+            } else if (charactersAsWordSet.contains(codePoint)) {
+                count += 2;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int tokenize() {
+        return tokenizer.tokenize(input).size();
+    }
+}
@@ -0,0 +1,54 @@
+package org.dicio.numbers.parser.lexer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures splitting adversarial Italian compound words of various lengths into pieces. Each
+ * "undiciotto" can be split both as un+diciotto and as undici+otto, so a backtracking segmenter
+ * would take exponential time, while the time per word should grow linearly with its length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompoundWordBenchmark {
+    @Param({"50", "100", "200", "400"})
+    public int length;
+
+    private Tokenizer tokenizer;
+    private String splittable;
+    private String unsplittable;
+
+    @Setup
+    public void setup() {
+        tokenizer = new Tokenizer("config/it-it");
+        splittable = "undiciotto".repeat(length / 10);
+        // the final "x" is only noticed after trying to split all of the rest of the word
+        unsplittable = splittable.substring(0, length - 1) + "x";
+    }
+
+
+    @Benchmark
+    public int splittable() {
+        return tokenizer.tokenize(splittable).size();
+    }
+
+    @Benchmark
+    public int unsplittable() {
+        return tokenizer.tokenize(unsplittable).size();
+    }
+}
@@ -0,0 +1,88 @@
+package org.dicio.numbers.parser.lexer;
+
+import org.dicio.numbers.ParserFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TokenStream#indexOfWithoutCategory(int, int)} on utterances full of filler
+ * words, which extractors skip over and over from the same positions, comparing the skip tables
+ * with a plain linear scan. Also measures the whole number extraction on the same utterances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenStreamBenchmark {
+    private static final String FILLER = "and a the, and the a, ";
+    private static final String NUMBERS = "twenty and a thousand and the three, ";
+
+    @Param({"100", "10000"})
+    public int length;
+
+    private String utterance;
+    private List<Token> tokens;
+    private ParserFormatter parserFormatter;
+
+    @Setup
+    public void setup() {
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append(FILLER).append(FILLER).append(NUMBERS);
+        }
+        utterance = builder.toString();
+        tokens = new Tokenizer("config/en-us").tokenize(utterance);
+        parserFormatter = new ParserFormatter(Locale.ENGLISH);
+    }
+
+
+    @Benchmark
+    public int indexOfWithoutCategoryLinearScan() {
+        final TokenStream ts = new TokenStream(tokens);
+        int sum = 0;
+        for (int i = 0; i < tokens.size(); ++i) {
+            ts.position = i;
+            for (int startFromAheadBy = 0; startFromAheadBy < 3; ++startFromAheadBy) {
+                int aheadBy = startFromAheadBy;
+                while (ts.hasCategory(aheadBy, Categories.IGNORE)) {
+                    ++aheadBy; // hasCategory returns false past the end of the stream
+                }
+                sum += aheadBy;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int indexOfWithoutCategory() {
+        final TokenStream ts = new TokenStream(tokens);
+        int sum = 0;
+        for (int i = 0; i < tokens.size(); ++i) {
+            ts.position = i;
+            for (int startFromAheadBy = 0; startFromAheadBy < 3; ++startFromAheadBy) {
+                sum += ts.indexOfWithoutCategory(Categories.IGNORE, startFromAheadBy);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int extractNumbers() {
+        return parserFormatter.extractNumber(utterance).getMixedWithText().size();
+    }
+}
@@ -0,0 +1,73 @@
+package org.dicio.numbers.parser.param;
+
+import org.dicio.numbers.ParserFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures extracting date times from many short utterances one at a time, compared to the batch
+ * method, which processes them in parallel on the common fork join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchExtractionBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 2, 5, 9, 41, 12);
+    private static final String[] SENTENCES = {
+            "remind me in two days and three hours",
+            "set an alarm at half past five pm",
+            "what happened on the twenty third of may twenty twenty four",
+            "call mom next tuesday at noon",
+            "there is nothing to extract here",
+    };
+    private static final int UTTERANCES = 10000;
+
+    private List<String> utterances;
+    private ParserFormatter parserFormatter;
+
+    @Setup
+    public void setup() {
+        utterances = new ArrayList<>();
+        for (int i = 0; i < UTTERANCES; ++i) {
+            utterances.add(SENTENCES[i % SENTENCES.length]);
+        }
+        parserFormatter = new ParserFormatter(Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public int oneAtATime() {
+        int objects = 0;
+        for (final String utterance : utterances) {
+            objects += parserFormatter.extractDateTime(utterance).now(NOW)
+                    .getMixedWithText().size();
+        }
+        return objects;
+    }
+
+    @Benchmark
+    public int batch() {
+        int objects = 0;
+        for (final List<Object> result : parserFormatter.extractDateTime("").now(NOW)
+                .mixedWithTextOf(utterances)) {
+            objects += result.size();
+        }
+        return objects;
+    }
+}
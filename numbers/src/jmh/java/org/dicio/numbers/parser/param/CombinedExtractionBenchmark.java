@@ -0,0 +1,61 @@
+package org.dicio.numbers.parser.param;
+
+import org.dicio.numbers.ParserFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures annotating an utterance with numbers, durations and date times using three separate
+ * extractions, compared to a single combined extraction (with and without memoization, which lets
+ * the three types share the number rules).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinedExtractionBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 2, 5, 9, 41, 12);
+    private static final String UTTERANCE = "set a timer for ten minutes and call me at 5 pm on "
+            + "the twenty third of may, then remind me in two days to buy three apples";
+
+    @Param({"false", "true"})
+    public boolean memoize;
+
+    private ParserFormatter parserFormatter;
+
+    @Setup
+    public void setup() {
+        parserFormatter = new ParserFormatter(Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public int separate() {
+        return parserFormatter.extractNumber(UTTERANCE).memoize(memoize)
+                .getMixedWithText().size()
+                + parserFormatter.extractDuration(UTTERANCE).memoize(memoize)
+                .getMixedWithText().size()
+                + parserFormatter.extractDateTime(UTTERANCE).now(NOW).memoize(memoize)
+                .getMixedWithText().size();
+    }
+
+    @Benchmark
+    public int combined() {
+        return parserFormatter.extractAll(UTTERANCE).now(NOW).memoize(memoize)
+                .getMixedWithText().size();
+    }
+}
@@ -0,0 +1,74 @@
+package org.dicio.numbers.parser.param;
+
+import org.dicio.numbers.ParserFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to extract from a long document, like meeting notes, where only a few
+ * sentences contain a number, a duration or a date time, with and without document mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentModeBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 2, 5, 9, 41, 12);
+    private static final String[] SENTENCES = {
+            "Everyone agreed that the new design of the landing page looks much cleaner than before",
+            "Marco raised some concerns about the accessibility of the color palette on mobile",
+            "We should ask the marketing team for feedback before the release",
+            "The deployment will happen in two weeks if the review goes well",
+            "Sara will look into the flaky tests in the continuous integration pipeline",
+            "Nobody had any objections about moving the retrospective to the other room",
+            "The budget for the conference was approved for twelve people",
+            "Please remember to update the documentation together with the code",
+    };
+
+    @Param({"false", "true"})
+    public boolean document;
+
+    private ParserFormatter parserFormatter;
+    private String text;
+
+    @Setup
+    public void setup() {
+        parserFormatter = new ParserFormatter(Locale.ENGLISH);
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            builder.append(SENTENCES[i % SENTENCES.length]).append(i % 4 == 3 ? ".\n\n" : ", ");
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int number() {
+        return parserFormatter.extractNumber(text).document(document).getMixedWithText().size();
+    }
+
+    @Benchmark
+    public int duration() {
+        return parserFormatter.extractDuration(text).document(document).getMixedWithText().size();
+    }
+
+    @Benchmark
+    public int dateTime() {
+        return parserFormatter.extractDateTime(text).now(NOW).document(document)
+                .getMixedWithText().size();
+    }
+}
@@ -0,0 +1,78 @@
+package org.dicio.numbers.parser.param;
+
+import org.dicio.numbers.ParserFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of scanning typical chatty utterances, where most words are not part of
+ * any number, duration or date time, and are thus skipped thanks to the first sets of the
+ * extractors without running them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FirstSetBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 2, 5, 9, 41, 12);
+    private static final String[] UTTERANCES = {
+            "hey could you please tell me what the weather is going to be like when I get out of "
+                    + "the office later",
+            "I was thinking that maybe we should go to the cinema with my sister and her friends "
+                    + "this weekend",
+            "remind me to buy some milk and two loaves of bread on the way home",
+            "what is the name of the song that was playing on the radio when we were driving to "
+                    + "the beach",
+            "please send a message to my mother saying that I will be late for dinner because of "
+                    + "the traffic",
+    };
+
+    private ParserFormatter parserFormatter;
+
+    @Setup
+    public void setup() {
+        parserFormatter = new ParserFormatter(Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public int number() {
+        int count = 0;
+        for (final String utterance : UTTERANCES) {
+            count += parserFormatter.extractNumber(utterance).getMixedWithText().size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int duration() {
+        int count = 0;
+        for (final String utterance : UTTERANCES) {
+            count += parserFormatter.extractDuration(utterance).getMixedWithText().size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int dateTime() {
+        int count = 0;
+        for (final String utterance : UTTERANCES) {
+            count += parserFormatter.extractDateTime(utterance).now(NOW)
+                    .getMixedWithText().size();
+        }
+        return count;
+    }
+}
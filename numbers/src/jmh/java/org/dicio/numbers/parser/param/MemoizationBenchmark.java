@@ -0,0 +1,59 @@
+package org.dicio.numbers.parser.param;
+
+import org.dicio.numbers.ParserFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures date time extraction with and without memoization of the extractor rules, on
+ * utterances where many alternatives try the same rules at the same positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoizationBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 2, 5, 9, 41, 12);
+    private static final String SENTENCE = "remind me in two days and three hours at half past "
+            + "five pm on the twenty third of may twenty twenty four, or next tuesday at noon. ";
+
+    @Param({"false", "true"})
+    public boolean memoize;
+
+    @Param({"1", "20"})
+    public int sentences;
+
+    private String utterance;
+    private ParserFormatter parserFormatter;
+
+    @Setup
+    public void setup() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < sentences; ++i) {
+            builder.append(SENTENCE);
+        }
+        utterance = builder.toString();
+        parserFormatter = new ParserFormatter(Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public int extractDateTime() {
+        return parserFormatter.extractDateTime(utterance).now(NOW).memoize(memoize)
+                .getMixedWithText().size();
+    }
+}
@@ -0,0 +1,65 @@
+package org.dicio.numbers.parser.param;
+
+import kotlin.sequences.SequencesKt;
+import org.dicio.numbers.ParserFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to extract everything from a long transcript, all at once and by reading it
+ * through a small buffer, tokenizing and extracting from one segment at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingExtractionBenchmark {
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 2, 5, 9, 41, 12);
+    private static final String[] SENTENCES = {
+            "Everyone agreed that the new design of the landing page looks much cleaner than before",
+            "The deployment will happen in two weeks if the review goes well",
+            "We spent about forty five minutes on the bugs reported by the customers",
+            "The next meeting is on Monday the 5th of June at 10:30",
+            "The budget for the conference was approved for twelve people",
+            "Please remember to update the documentation together with the code",
+    };
+
+    private ParserFormatter parserFormatter;
+    private String text;
+
+    @Setup
+    public void setup() {
+        parserFormatter = new ParserFormatter(Locale.ENGLISH);
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            builder.append(SENTENCES[i % SENTENCES.length]).append(i % 4 == 3 ? ".\n\n" : ", ");
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int whole() {
+        return parserFormatter.extractAll(text).now(NOW).getSpans().size();
+    }
+
+    @Benchmark
+    public int streaming() {
+        return SequencesKt.count(parserFormatter.extractAll("").now(NOW)
+                .spanSequenceOf(new StringReader(text), 4096));
+    }
+}
@@ -0,0 +1,45 @@
+package org.dicio.numbers.util;
+
+import org.dicio.numbers.formatter.datetime.DateTimeConfig;
+import org.dicio.numbers.parser.lexer.Tokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cold start of loading the tokenizer and date time configuration of a language in
+ * a fresh JVM, either from the json files or from the binary snapshots generated at build time by
+ * the {@code generateConfigSnapshots} task (if the snapshots are missing, both measure json).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ConfigSnapshotBenchmark {
+    @Param({"config/en-us", "config/it-it", "config/es-es"})
+    public String configFolder;
+
+    @Benchmark
+    public void loadFromJson(final Blackhole blackhole) {
+        blackhole.consume(Tokenizer.fromJson(configFolder));
+        blackhole.consume(DateTimeConfig.fromJson(configFolder));
+    }
+
+    @Benchmark
+    public void loadFromSnapshot(final Blackhole blackhole) {
+        blackhole.consume(new Tokenizer(configFolder));
+        blackhole.consume(new DateTimeConfig(configFolder));
+    }
+}
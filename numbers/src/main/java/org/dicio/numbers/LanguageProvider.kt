@@ -0,0 +1,31 @@
+package org.dicio.numbers
+
+import org.dicio.numbers.formatter.Formatter
+import org.dicio.numbers.parser.Parser
+
+/**
+ * Makes a language available to [ParserFormatterBuilder]. Implementations are discovered with
+ * [java.util.ServiceLoader], so they must have a public no-argument constructor and be listed in
+ * `META-INF/services/org.dicio.numbers.LanguageProvider`. Providers must be cheap to construct:
+ * the (expensive) formatter and parser are only built through the factories once the language is
+ * actually requested.
+ *
+ * @param localeStrings the locales supported by this provider, as lowercase language codes
+ * optionally followed by a dash and the country code (e.g. `en` or `en-us`). Multiple locales can
+ * also be joined with `+` in a single string (e.g. `en-us+en-gb`).
+ * @param formatterFactory builds a new formatter for this language
+ * @param parserFactory builds a new parser for this language
+ */
+abstract class LanguageProvider protected constructor(
+    val localeStrings: List<String>,
+    private val formatterFactory: () -> Formatter,
+    private val parserFactory: () -> Parser,
+) {
+    fun createFormatter(): Formatter {
+        return formatterFactory()
+    }
+
+    fun createParser(): Parser {
+        return parserFactory()
+    }
+}
@@ -9,6 +9,7 @@ import org.dicio.numbers.formatter.param.NiceTimeParameters
 import org.dicio.numbers.formatter.param.NiceYearParameters
 import org.dicio.numbers.formatter.param.PronounceNumberParameters
 import org.dicio.numbers.parser.Parser
+import org.dicio.numbers.parser.param.ExtractAllParams
 import org.dicio.numbers.parser.param.ExtractDateTimeParams
 import org.dicio.numbers.parser.param.ExtractDurationParams
 import org.dicio.numbers.parser.param.ExtractNumberParams
@@ -22,10 +23,18 @@ import java.util.Locale
  * A class that wraps a [Formatter] and a [Parser] for a particular language
  * and provides convenience methods to call the available functions without having to provide all of
  * the default parameters.
+ *
+ * Instances are cheap to create and safe to share between threads: the wrapped formatter and
+ * parser are immutable, and each call creates its own parameters object and token stream. The
+ * parameters objects returned by the methods are instead not meant to be shared between threads.
  */
-class ParserFormatter {
-    private val formatter: Formatter?
-    private val parser: Parser?
+class ParserFormatter private constructor(
+    formatter: Lazy<Formatter?>,
+    parser: Lazy<Parser?>,
+) {
+    // either side is only loaded the first time it is used, see the constructor taking a locale
+    private val formatter: Formatter? by formatter
+    private val parser: Parser? by parser
 
     /**
      * Constructs a [ParserFormatter] that wraps the provided [Formatter]
@@ -35,22 +44,26 @@ class ParserFormatter {
      * @param formatter the formatter to wrap
      * @param parser the parser to wrap
      */
-    constructor(formatter: Formatter?, parser: Parser?) {
-        this.formatter = formatter
-        this.parser = parser
-    }
+    constructor(formatter: Formatter?, parser: Parser?) : this(lazyOf(formatter), lazyOf(parser))
 
     /**
-     * Constructs a [ParserFormatter] for the language of the provided locale.
+     * Constructs a [ParserFormatter] for the language of the provided locale. The formatter and
+     * parser are shared with all other [ParserFormatter]s for the same language (see
+     * [ParserFormatterBuilder.sharedParserFormatterPairForLocale]), so the language config files
+     * are only loaded the first time. Moreover the formatter is only loaded when a formatting
+     * method is first called, and the parser when an extraction method is first called, so
+     * applications that only need one of the two do not pay for the other. See also [forFormatting]
+     * and [forParsing].
      *
      * @param locale the locale containing the language to use
      * @throws IllegalArgumentException if the provided locale is not supported
      */
-    constructor(locale: Locale) {
-        val parserFormatterPair = ParserFormatterBuilder.parserFormatterPairForLocale(locale)
-        this.formatter = parserFormatterPair.formatter
-        this.parser = parserFormatterPair.parser
-    }
+    constructor(locale: Locale) : this(ParserFormatterBuilder.providerForLocale(locale))
+
+    private constructor(provider: LanguageProvider) : this(
+        lazy { ParserFormatterBuilder.sharedFormatter(provider) },
+        lazy { ParserFormatterBuilder.sharedParser(provider) },
+    )
 
 
     /**
@@ -181,4 +194,56 @@ class ParserFormatter {
     fun extractDateTime(utterance: String): ExtractDateTimeParams {
         return ExtractDateTimeParams(parser!!, utterance)
     }
+
+    /**
+     * Used to extract date&times, durations and numbers from a string at the same time, in a
+     * single pass. For example, "Remind me in two days to buy three apples" would be parsed as
+     * "Remind me ", the day after tomorrow, " to buy ", 3, " apples".
+     *
+     * @param utterance the text to extract date&times, durations and numbers from
+     * @return an instance of a utility class that enables customizing various parameters and then
+     * allows extracting in multiple ways. See [ExtractAllParams].
+     */
+    fun extractAll(utterance: String): ExtractAllParams {
+        return ExtractAllParams(parser!!, utterance)
+    }
+
+
+    companion object {
+        /**
+         * Constructs a [ParserFormatter] for the language of the provided locale, and loads its
+         * formatter right away, e.g. at startup of an application that only formats. The parser
+         * is still available, and is loaded on first use.
+         *
+         * @param locale the locale containing the language to use
+         * @return the [ParserFormatter] with the formatter already loaded
+         * @throws IllegalArgumentException if the provided locale is not supported
+         */
+        @JvmStatic
+        fun forFormatting(locale: Locale): ParserFormatter {
+            val provider = ParserFormatterBuilder.providerForLocale(locale)
+            return ParserFormatter(
+                lazyOf(ParserFormatterBuilder.sharedFormatter(provider)),
+                lazy { ParserFormatterBuilder.sharedParser(provider) },
+            )
+        }
+
+        /**
+         * Constructs a [ParserFormatter] for the language of the provided locale, and loads its
+         * parser right away, e.g. at startup of an application that only parses. The formatter
+         * is still available, and is loaded on first use.
+         *
+         * @param locale the locale containing the language to use
+         * @return the [ParserFormatter] with the parser already loaded
+         * @throws IllegalArgumentException if the provided locale is not supported
+         */
+        @JvmStatic
+        fun forParsing(locale: Locale): ParserFormatter {
+            val provider = ParserFormatterBuilder.providerForLocale(locale)
+            return ParserFormatter(
+                lazy { ParserFormatterBuilder.sharedFormatter(provider) },
+                lazyOf(ParserFormatterBuilder.sharedParser(provider)),
+            )
+        }
+    }
 }
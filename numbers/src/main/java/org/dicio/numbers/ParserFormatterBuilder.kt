@@ -1,46 +1,121 @@
 package org.dicio.numbers
 
 import org.dicio.numbers.formatter.Formatter
-import org.dicio.numbers.lang.en.EnglishFormatter
-import org.dicio.numbers.lang.en.EnglishParser
-import org.dicio.numbers.lang.es.SpanishFormatter  // ¡AGREGA ESTA IMPORTACIÓN!
-import org.dicio.numbers.lang.es.SpanishParser     // ¡AGREGA ESTA IMPORTACIÓN!
-import org.dicio.numbers.lang.it.ItalianFormatter
-import org.dicio.numbers.lang.it.ItalianParser
 import org.dicio.numbers.parser.Parser
 import java.util.Locale
+import java.util.ServiceLoader
+import java.util.concurrent.ConcurrentHashMap
 
 object ParserFormatterBuilder {
-    private val PARSER_FORMATTER_CLASSES_MAP = mapOf(
-        "en" to ParserFormatterClasses(EnglishFormatter::class.java, EnglishParser::class.java),
-        "it" to ParserFormatterClasses(ItalianFormatter::class.java, ItalianParser::class.java),
-        "es" to ParserFormatterClasses(SpanishFormatter::class.java, SpanishParser::class.java)  // ¡AGREGA ESTA LÍNEA!
-    )
+    // the language providers found with ServiceLoader, by their locale strings; loading them is
+    // cheap, since their formatters and parsers are only built when requested
+    private val LANGUAGE_PROVIDERS: Map<String, LanguageProvider> by lazy {
+        val providers = LinkedHashMap<String, LanguageProvider>()
+        for (provider in ServiceLoader.load(
+            LanguageProvider::class.java, LanguageProvider::class.java.classLoader
+        )) {
+            for (localeString in provider.localeStrings) {
+                providers.putIfAbsent(localeString, provider)
+            }
+        }
+        providers
+    }
 
+    // the provider each requested locale resolved to, so that resolution only happens once
+    private val RESOLVED_LOCALES = ConcurrentHashMap<Locale, LanguageProvider>()
+
+    // the shared formatter and parser of each language provider, each built on first use
+    private val SHARED_FORMATTERS = ConcurrentHashMap<LanguageProvider, Formatter>()
+    private val SHARED_PARSERS = ConcurrentHashMap<LanguageProvider, Parser>()
+
+    /**
+     * Builds a new parser and formatter for the provided locale, loading the language config
+     * files again. Prefer [sharedParserFormatterPairForLocale] unless separate instances are
+     * really needed.
+     *
+     * @param locale the locale containing the language to use
+     * @return a new parser and formatter for the language of the locale
+     * @throws IllegalArgumentException if the provided locale is not supported
+     */
     @JvmStatic
     @Throws(IllegalArgumentException::class)
     fun parserFormatterPairForLocale(locale: Locale): ParserFormatterPair {
-        val localeString = resolveLocaleString(locale, PARSER_FORMATTER_CLASSES_MAP.keys)
-        val classes = PARSER_FORMATTER_CLASSES_MAP[localeString]!!
-
-        try {
-            return ParserFormatterPair(
-                classes.formatter.getDeclaredConstructor().newInstance(),
-                classes.parser.getDeclaredConstructor().newInstance()
-            )
-        } catch (e: InstantiationException) {
-            throw IllegalArgumentException(
-                "The formatter and parser for the provided supported"
-                        + " locale \"" + locale + "\" could not be instantiated", e
-            )
-        } catch (e: IllegalAccessException) {
-            throw IllegalArgumentException(
-                "The formatter and parser for the provided supported"
-                        + " locale \"" + locale + "\" could not be instantiated", e
-            )
+        val provider = providerForLocale(locale)
+        return ParserFormatterPair(provider.createFormatter(), provider.createParser())
+    }
+
+    /**
+     * Returns the parser and formatter for the provided locale shared by the whole process,
+     * building them the first time the language is requested. Parsers and formatters are
+     * immutable once built, so the returned instances can be used from any number of threads at
+     * the same time. Use [sharedFormatterForLocale] or [sharedParserForLocale] if only one of the
+     * two is needed.
+     *
+     * @param locale the locale containing the language to use
+     * @return the shared parser and formatter for the language of the locale
+     * @throws IllegalArgumentException if the provided locale is not supported
+     */
+    @JvmStatic
+    @Throws(IllegalArgumentException::class)
+    fun sharedParserFormatterPairForLocale(locale: Locale): ParserFormatterPair {
+        val provider = providerForLocale(locale)
+        return ParserFormatterPair(sharedFormatter(provider), sharedParser(provider))
+    }
+
+    /**
+     * Like [sharedParserFormatterPairForLocale], but only builds the formatter (which loads the
+     * date time config of the language), and not the parser.
+     *
+     * @param locale the locale containing the language to use
+     * @return the shared formatter for the language of the locale
+     * @throws IllegalArgumentException if the provided locale is not supported
+     */
+    @JvmStatic
+    @Throws(IllegalArgumentException::class)
+    fun sharedFormatterForLocale(locale: Locale): Formatter {
+        return sharedFormatter(providerForLocale(locale))
+    }
+
+    /**
+     * Like [sharedParserFormatterPairForLocale], but only builds the parser (which loads the
+     * tokenizer config of the language), and not the formatter.
+     *
+     * @param locale the locale containing the language to use
+     * @return the shared parser for the language of the locale
+     * @throws IllegalArgumentException if the provided locale is not supported
+     */
+    @JvmStatic
+    @Throws(IllegalArgumentException::class)
+    fun sharedParserForLocale(locale: Locale): Parser {
+        return sharedParser(providerForLocale(locale))
+    }
+
+    /**
+     * @return the locale strings of all of the languages that can be requested, e.g. `en`
+     */
+    @JvmStatic
+    fun supportedLocaleStrings(): Set<String> {
+        return LANGUAGE_PROVIDERS.keys
+    }
+
+    @Throws(IllegalArgumentException::class)
+    internal fun providerForLocale(locale: Locale): LanguageProvider {
+        // unsupported locales are not cached (ConcurrentHashMap does not allow null values), and
+        // resolving them again just throws the same exception
+        return RESOLVED_LOCALES.computeIfAbsent(locale) {
+            LANGUAGE_PROVIDERS[resolveLocaleString(it, LANGUAGE_PROVIDERS.keys)]!!
         }
     }
 
+    // computeIfAbsent builds each formatter and parser only once even if many threads ask for it
+    // together, and stores nothing if building fails
+    internal fun sharedFormatter(provider: LanguageProvider): Formatter {
+        return SHARED_FORMATTERS.computeIfAbsent(provider) { it.createFormatter() }
+    }
+
+    internal fun sharedParser(provider: LanguageProvider): Parser {
+        return SHARED_PARSERS.computeIfAbsent(provider) { it.createParser() }
+    }
 
     // copied from dicio-android
     @Throws(IllegalArgumentException::class)
@@ -62,12 +137,8 @@ object ParserFormatterBuilder {
 
         // then try with children languages of locale base language (e.g. en-US, en-GB, en-UK, ...)
         for (supportedLocalePlus in supportedLocales) {
-            for (supportedLocale in supportedLocalePlus.split("\\+".toRegex())
-                .dropLastWhile { it.isEmpty() }
-                .toTypedArray()) {
-                if (supportedLocale.split("-".toRegex(), limit = 2)
-                        .toTypedArray()[0] == localeString
-                ) {
+            for (supportedLocale in supportedLocalePlus.split('+')) {
+                if (supportedLocale.substringBefore('-') == localeString) {
                     return supportedLocalePlus
                 }
             }
@@ -77,11 +148,6 @@ object ParserFormatterBuilder {
         throw IllegalArgumentException("Unsupported locale: $locale")
     }
 
-    private class ParserFormatterClasses(
-        val formatter: Class<out Formatter>,
-        val parser: Class<out Parser>,
-    )
-
     class ParserFormatterPair(
         @JvmField val formatter: Formatter,
         @JvmField val parser: Parser,
@@ -10,6 +10,11 @@ import java.time.LocalTime
 import java.time.Period
 import kotlin.math.abs
 
+/**
+ * Formats numbers, durations and date times in a particular language. Formatters are immutable
+ * once constructed and can be used from multiple threads at the same time. Subclasses must
+ * preserve this property.
+ */
 abstract class Formatter protected constructor(configFolder: String) {
     protected val config: DateTimeConfig = DateTimeConfig(configFolder)
 
@@ -1,136 +1,286 @@
 package org.dicio.numbers.formatter.datetime
 
+import com.grack.nanojson.JsonObject
 import com.grack.nanojson.JsonParser
 import com.grack.nanojson.JsonParserException
+import org.dicio.numbers.util.ConfigSnapshots
 import org.dicio.numbers.util.ResourceOpener
 import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
 import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
 import java.nio.charset.StandardCharsets
 
-class DateTimeConfig(configFolder: String) {
+class DateTimeConfig private constructor(raw: Raw) {
     @JvmField
-    val decadeFormat: FormatStringCollection
+    val decadeFormat: FormatStringCollection = raw.decadeFormat.build()
     @JvmField
-    val hundredFormat: FormatStringCollection
+    val hundredFormat: FormatStringCollection = raw.hundredFormat.build()
     @JvmField
-    val thousandFormat: FormatStringCollection
+    val thousandFormat: FormatStringCollection = raw.thousandFormat.build()
     @JvmField
-    val yearFormat: FormatStringCollection
+    val yearFormat: FormatStringCollection = raw.yearFormat.build()
 
     @JvmField
-    val bc: String
+    val bc: String = raw.bc
 
     @JvmField
-    val dateFormatFull: FormatString
+    val dateFormatFull: FormatString = FormatString(raw.dateFormatFull)
     @JvmField
-    val dateFormatFullNoYear: FormatString
+    val dateFormatFullNoYear: FormatString = FormatString(raw.dateFormatFullNoYear)
     @JvmField
-    val dateFormatFullNoYearMonth: FormatString
+    val dateFormatFullNoYearMonth: FormatString = FormatString(raw.dateFormatFullNoYearMonth)
 
     @JvmField
-    val dateTimeFormat: FormatString
+    val dateTimeFormat: FormatString = FormatString(raw.dateTimeFormat)
 
     @JvmField
-    val today: String
+    val today: String = raw.today
     @JvmField
-    val tomorrow: String
+    val tomorrow: String = raw.tomorrow
     @JvmField
-    val yesterday: String
+    val yesterday: String = raw.yesterday
 
     @JvmField
-    val weekdays: Array<String>
+    val weekdays: Array<String> = raw.weekdays.toTypedArray()
     @JvmField
-    val days: Array<String>
+    val days: Array<String> = raw.days.toTypedArray()
     @JvmField
-    val months: Array<String>
+    val months: Array<String> = raw.months.toTypedArray()
     @JvmField
-    val numbers: Map<Int, String>
+    val numbers: Map<Int, String> = raw.numbers
 
     @JvmField
-    val dayWord: String
+    val dayWord: String = raw.words[0]
     @JvmField
-    val daysWord: String
+    val daysWord: String = raw.words[1]
     @JvmField
-    val hourWord: String
+    val hourWord: String = raw.words[2]
     @JvmField
-    val hoursWord: String
+    val hoursWord: String = raw.words[3]
     @JvmField
-    val minuteWord: String
+    val minuteWord: String = raw.words[4]
     @JvmField
-    val minutesWord: String
+    val minutesWord: String = raw.words[5]
     @JvmField
-    val secondWord: String
+    val secondWord: String = raw.words[6]
     @JvmField
-    val secondsWord: String
+    val secondsWord: String = raw.words[7]
 
-    init {
-        try {
-            val root = JsonParser.`object`().from(
-                ResourceOpener.getResourceAsStream("$configFolder/date_time.json")
-            )
+    /**
+     * Loads the date time configuration in [configFolder] (e.g. `config/en-us`), from the binary
+     * snapshot if there is one (see [ConfigSnapshots]), otherwise from `date_time.json` and the
+     * `.word` files.
+     */
+    constructor(configFolder: String) : this(
+        ConfigSnapshots.open(
+            "$configFolder/${ConfigSnapshots.DATE_TIME_CONFIG_FILE}",
+            ConfigSnapshots.DATE_TIME_CONFIG_MAGIC
+        )?.let { Raw.read(it) } ?: Raw.fromJson(configFolder)
+    )
+
+    fun getNumber(number: Int): String {
+        return numbers[number] ?: number.toString()
+    }
+
+
+    /**
+     * The content of the configuration files as plain strings, from which the actual formatting
+     * tables are built. This is what snapshots contain.
+     */
+    private class Raw(
+        val decadeFormat: RawFormatStringCollection,
+        val hundredFormat: RawFormatStringCollection,
+        val thousandFormat: RawFormatStringCollection,
+        val yearFormat: RawFormatStringCollection,
+        val bc: String,
+        val dateFormatFull: String,
+        val dateFormatFullNoYear: String,
+        val dateFormatFullNoYearMonth: String,
+        val dateTimeFormat: String,
+        val today: String,
+        val tomorrow: String,
+        val yesterday: String,
+        val weekdays: List<String>,
+        val days: List<String>,
+        val months: List<String>,
+        val numbers: Map<Int, String>,
+        // the content of the WORD_FILES, in the same order
+        val words: List<String>,
+    ) {
+        fun write(output: DataOutputStream) {
+            for (format in listOf(decadeFormat, hundredFormat, thousandFormat, yearFormat)) {
+                format.write(output)
+            }
+            for (string in listOf(
+                bc, dateFormatFull, dateFormatFullNoYear, dateFormatFullNoYearMonth,
+                dateTimeFormat, today, tomorrow, yesterday
+            )) {
+                output.writeUTF(string)
+            }
+            for (strings in listOf(weekdays, days, months, words)) {
+                output.writeInt(strings.size)
+                strings.forEach(output::writeUTF)
+            }
+            output.writeInt(numbers.size)
+            for ((number, name) in numbers) {
+                output.writeInt(number)
+                output.writeUTF(name)
+            }
+        }
+
+        companion object {
+            private val WORD_FILES =
+                listOf("day", "days", "hour", "hours", "minute", "minutes", "second", "seconds")
+
+            fun read(input: DataInputStream): Raw {
+                val formats = List(4) { RawFormatStringCollection.read(input) }
+                val strings = List(8) { input.readUTF() }
+                val lists = List(4) { List(input.readInt()) { input.readUTF() } }
+                val numbers = HashMap<Int, String>()
+                repeat(input.readInt()) {
+                    numbers[input.readInt()] = input.readUTF()
+                }
+                return Raw(
+                    formats[0], formats[1], formats[2], formats[3],
+                    strings[0], strings[1], strings[2], strings[3],
+                    strings[4], strings[5], strings[6], strings[7],
+                    lists[0], lists[1], lists[2], numbers, lists[3]
+                )
+            }
+
+            fun fromJson(configFolder: String): Raw {
+                try {
+                    val root = JsonParser.`object`().from(
+                        ResourceOpener.getResourceAsStream("$configFolder/date_time.json")
+                    )
+
+                    val year = root.getObject("year_format")
+                    val date = root.getObject("date_format")
+                    val dateTime = root.getObject("date_time_format")
+                    val weekday = root.getObject("weekday")
+                    val day = root.getObject("date")
+                    val month = root.getObject("month")
+                    val number = root.getObject("number")
+
+                    return Raw(
+                        RawFormatStringCollection.fromJson(root.getObject("decade_format")),
+                        RawFormatStringCollection.fromJson(root.getObject("hundreds_format")),
+                        RawFormatStringCollection.fromJson(root.getObject("thousand_format")),
+                        RawFormatStringCollection.fromJson(year),
+                        year.getString("bc"),
+                        date.getString("date_full"),
+                        date.getString("date_full_no_year"),
+                        date.getString("date_full_no_year_month"),
+                        dateTime.getString("date_time"),
+                        date.getString("today"),
+                        date.getString("tomorrow"),
+                        date.getString("yesterday"),
+                        (0..6).map { weekday.getString(it.toString()) },
+                        (0..30).map { day.getString((it + 1).toString()) },
+                        (0..11).map { month.getString((it + 1).toString()) },
+                        number.map { (key, value) -> Pair(key.toInt(), value as String) }.toMap(),
+                        WORD_FILES.map { readWordFromFile(configFolder, it) },
+                    )
+                } catch (e: IOException) {
+                    throw RuntimeException(e)
+                } catch (e: JsonParserException) {
+                    throw RuntimeException(e)
+                }
+            }
+
+            @Throws(IOException::class)
+            private fun readWordFromFile(
+                configFolder: String,
+                word: String
+            ): String {
+                val inputStream = ResourceOpener.getResourceAsStream("$configFolder/$word.word")
 
-            val year = root.getObject("year_format")
-            val date = root.getObject("date_format")
-            val dateTime = root.getObject("date_time_format")
-            val weekday = root.getObject("weekday")
-            val day = root.getObject("date")
-            val month = root.getObject("month")
-            val number = root.getObject("number")
-
-            decadeFormat = FormatStringCollection(root.getObject("decade_format"))
-            hundredFormat = FormatStringCollection(root.getObject("hundreds_format"))
-            thousandFormat = FormatStringCollection(root.getObject("thousand_format"))
-            yearFormat = FormatStringCollection(year)
-
-            bc = year.getString("bc")
-
-            dateFormatFull = FormatString(date.getString("date_full"))
-            dateFormatFullNoYear = FormatString(date.getString("date_full_no_year"))
-            dateFormatFullNoYearMonth = FormatString(date.getString("date_full_no_year_month"))
-
-            dateTimeFormat = FormatString(dateTime.getString("date_time"))
-
-            today = date.getString("today")
-            tomorrow = date.getString("tomorrow")
-            yesterday = date.getString("yesterday")
-
-            weekdays = (0..6).map { weekday.getString(it.toString()) }.toTypedArray()
-            days = (0..30).map { day.getString((it + 1).toString()) }.toTypedArray()
-            months = (0..11).map { month.getString((it + 1).toString()) }.toTypedArray()
-            numbers = number.map { (key, value) -> Pair(key.toInt(), value as String) }.toMap()
-
-            dayWord = readWordFromFile(configFolder, "day")
-            daysWord = readWordFromFile(configFolder, "days")
-            hourWord = readWordFromFile(configFolder, "hour")
-            hoursWord = readWordFromFile(configFolder, "hours")
-            minuteWord = readWordFromFile(configFolder, "minute")
-            minutesWord = readWordFromFile(configFolder, "minutes")
-            secondWord = readWordFromFile(configFolder, "second")
-            secondsWord = readWordFromFile(configFolder, "seconds")
-        } catch (e: IOException) {
-            throw RuntimeException(e)
-        } catch (e: JsonParserException) {
-            throw RuntimeException(e)
+                val result = ByteArrayOutputStream()
+                val buffer = ByteArray(16)
+                var length: Int
+                while ((inputStream.read(buffer).also { length = it }) != -1) {
+                    result.write(buffer, 0, length)
+                }
+                return result.toString(StandardCharsets.UTF_8.name()).trim { it <= ' ' }
+            }
         }
     }
 
-    fun getNumber(number: Int): String {
-        return numbers[number] ?: number.toString()
+    // the default format string and the pattern format pairs of a FormatStringCollection
+    private class RawFormatStringCollection(
+        val defaultFormat: String,
+        val patternFormats: List<Pair<String, String>>,
+    ) {
+        fun build(): FormatStringCollection {
+            return FormatStringCollection(defaultFormat, patternFormats)
+        }
+
+        fun write(output: DataOutputStream) {
+            output.writeUTF(defaultFormat)
+            output.writeInt(patternFormats.size)
+            for ((match, format) in patternFormats) {
+                output.writeUTF(match)
+                output.writeUTF(format)
+            }
+        }
+
+        companion object {
+            fun read(input: DataInputStream): RawFormatStringCollection {
+                val defaultFormat = input.readUTF()
+                val patternFormats = List(input.readInt()) {
+                    Pair(input.readUTF(), input.readUTF())
+                }
+                return RawFormatStringCollection(defaultFormat, patternFormats)
+            }
+
+            fun fromJson(jsonObject: JsonObject): RawFormatStringCollection {
+                return RawFormatStringCollection(
+                    jsonObject.getString("default"),
+                    FormatStringCollection.patternFormatsFromJson(jsonObject)
+                )
+            }
+        }
     }
 
-    @Throws(IOException::class)
-    private fun readWordFromFile(
-        configFolder: String,
-        word: String
-    ): String {
-        val inputStream = ResourceOpener.getResourceAsStream("$configFolder/$word.word")
-
-        val result = ByteArrayOutputStream()
-        val buffer = ByteArray(16)
-        var length: Int
-        while ((inputStream.read(buffer).also { length = it }) != -1) {
-            result.write(buffer, 0, length)
+    companion object {
+        /**
+         * Loads the date time configuration in [configFolder] from `date_time.json` and the
+         * `.word` files, ignoring any binary snapshot.
+         */
+        @JvmStatic
+        fun fromJson(configFolder: String): DateTimeConfig {
+            return DateTimeConfig(Raw.fromJson(configFolder))
+        }
+
+        /**
+         * Loads a date time configuration from a binary snapshot written with [writeSnapshot].
+         * @throws IOException if the snapshot is invalid or was written with a different
+         * [ConfigSnapshots.FORMAT_VERSION]
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun fromSnapshot(input: InputStream): DateTimeConfig {
+            return DateTimeConfig(
+                Raw.read(ConfigSnapshots.read(input, ConfigSnapshots.DATE_TIME_CONFIG_MAGIC))
+            )
+        }
+
+        /**
+         * Reads the date time configuration in [configFolder] from `date_time.json` and the
+         * `.word` files, and writes it to [output] as a binary snapshot, which can then be loaded
+         * with [fromSnapshot], or placed next to `date_time.json` to make the [DateTimeConfig]
+         * constructor faster.
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun writeSnapshot(configFolder: String, output: OutputStream) {
+            val data = DataOutputStream(output)
+            ConfigSnapshots.writeHeader(data, ConfigSnapshots.DATE_TIME_CONFIG_MAGIC)
+            Raw.fromJson(configFolder).write(data)
+            data.flush()
         }
-        return result.toString(StandardCharsets.UTF_8.name()).trim { it <= ' ' }
     }
 }
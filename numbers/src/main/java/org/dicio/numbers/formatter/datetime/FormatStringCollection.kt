@@ -3,22 +3,25 @@ package org.dicio.numbers.formatter.datetime
 import com.grack.nanojson.JsonObject
 import java.util.regex.Pattern
 
-class FormatStringCollection(jsonObject: JsonObject) {
-    private class PatternFormatPair(jsonObject: JsonObject) {
-        val pattern: Pattern = Pattern.compile(jsonObject.getString("match"))
-        val formatString: FormatString = FormatString(jsonObject.getString("format"))
+/**
+ * @param defaultFormat the format string to use when no pattern matches
+ * @param patternFormats pairs of patterns (e.g. `1\d`) and of the format strings to use for
+ * numbers matching the patterns, in order of priority
+ */
+class FormatStringCollection(defaultFormat: String, patternFormats: List<Pair<String, String>>) {
+    private class PatternFormatPair(match: String, format: String) {
+        val pattern: Pattern = Pattern.compile(match)
+        val formatString: FormatString = FormatString(format)
     }
 
-    private val defaultFormat = FormatString(jsonObject.getString("default"))
-    private val patternFormats: MutableList<PatternFormatPair> = ArrayList()
+    private val defaultFormat = FormatString(defaultFormat)
+    private val patternFormats: List<PatternFormatPair> =
+        patternFormats.map { (match, format) -> PatternFormatPair(match, format) }
 
-    init {
-        var i = 1
-        while (jsonObject.has(i.toString())) {
-            patternFormats.add(PatternFormatPair(jsonObject.getObject(i.toString())))
-            ++i
-        }
-    }
+    constructor(jsonObject: JsonObject) : this(
+        jsonObject.getString("default"),
+        patternFormatsFromJson(jsonObject)
+    )
 
     fun getMostSuitableFormatString(number: Int): FormatString {
         val numberString = number.toString()
@@ -29,4 +32,23 @@ class FormatStringCollection(jsonObject: JsonObject) {
         }
         return defaultFormat
     }
+
+    companion object {
+        /**
+         * @return the pairs of patterns and format strings in the numbered children of the json
+         * object (`"1"`, `"2"`, ...), see the [FormatStringCollection] constructor
+         */
+        fun patternFormatsFromJson(jsonObject: JsonObject): List<Pair<String, String>> {
+            val patternFormats = ArrayList<Pair<String, String>>()
+            var i = 1
+            while (jsonObject.has(i.toString())) {
+                val patternFormat = jsonObject.getObject(i.toString())
+                patternFormats.add(
+                    Pair(patternFormat.getString("match"), patternFormat.getString("format"))
+                )
+                ++i
+            }
+            return patternFormats
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package org.dicio.numbers.lang.en
 
+import org.dicio.numbers.parser.lexer.Categories
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.util.DateTimeExtractorUtils
@@ -96,6 +97,10 @@ class EnglishDateTimeExtractor internal constructor(
     }
 
     fun timeWithAmpm(): LocalTime? {
+        return ts.memoize(TIME_WITH_AMPM, 0) { timeWithAmpmNotMemoized() }
+    }
+
+    private fun timeWithAmpmNotMemoized(): LocalTime? {
         var time = time()
         val pm: Boolean?
         if (time == null) {
@@ -174,6 +179,10 @@ class EnglishDateTimeExtractor internal constructor(
     }
 
     fun date(): LocalDate? {
+        return ts.memoize(DATE, 0) { dateNotMemoized() }
+    }
+
+    private fun dateNotMemoized(): LocalDate? {
         var result = now.toLocalDate()
 
         val dayOfWeek = dateTimeExtractor.dayOfWeek()
@@ -256,8 +265,8 @@ class EnglishDateTimeExtractor internal constructor(
         val bcad = dateTimeExtractor.bcad()
         if (bcad != null && !bcad) {
             // skip "era" in "before current era"
-            val nextNotIgnore = ts.indexOfWithoutCategory("date_time_ignore", 0)
-            if (ts[nextNotIgnore].hasCategory("bcad_era")) {
+            val nextNotIgnore = ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 0)
+            if (ts.hasCategory(nextNotIgnore, Categories.BCAD_ERA)) {
                 ts.movePositionForwardBy(nextNotIgnore + 1)
             }
         }
@@ -265,33 +274,33 @@ class EnglishDateTimeExtractor internal constructor(
     }
 
     fun noonMidnightLike(): Int? {
-        return noonMidnightLikeOrMomentOfDay("noon_midnight_like")
+        return noonMidnightLikeOrMomentOfDay(Categories.NOON_MIDNIGHT_LIKE)
     }
 
     fun momentOfDay(): Int? {
         // noon_midnight_like is a part of moment_of_day, so noon and midnight are included
-        return noonMidnightLikeOrMomentOfDay("moment_of_day")
+        return noonMidnightLikeOrMomentOfDay(Categories.MOMENT_OF_DAY)
     }
 
-    private fun noonMidnightLikeOrMomentOfDay(category: String): Int? {
+    private fun noonMidnightLikeOrMomentOfDay(category: Int): Int? {
         val originalPosition = ts.position
 
         var relativeIndicator = 0 // 0 = not found, otherwise the sign, +1 or -1
-        if (ts[0].hasCategory("pre_special_hour")) {
+        if (ts.hasCategory(0, Categories.PRE_SPECIAL_HOUR)) {
             // found a word that usually comes before special hours, e.g. this, in
-            if (ts[0].hasCategory("pre_relative_indicator")) {
-                relativeIndicator = if (ts[0].hasCategory("negative")) -1 else 1
+            if (ts.hasCategory(0, Categories.PRE_RELATIVE_INDICATOR)) {
+                relativeIndicator = if (ts.hasCategory(0, Categories.NEGATIVE)) -1 else 1
                 // only move to next not ignore if we got a relative indicator, e.g. in the ...
-                ts.movePositionForwardBy(ts.indexOfWithoutCategory("date_time_ignore", 1))
+                ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1))
             } else {
                 ts.movePositionForwardBy(1)
             }
         }
 
-        if (ts[0].hasCategory(category)) {
+        if (ts.hasCategory(0, category)) {
             // special hour found, e.g. mezzanotte, sera, pranzo
             ts.movePositionForwardBy(1)
-            return ((ts[-1].number!!.integerValue()
+            return ((ts.integerValueAt(-1)
                 .toInt() + DateTimeExtractorUtils.HOURS_IN_DAY + relativeIndicator)
                     % DateTimeExtractorUtils.HOURS_IN_DAY)
         }
@@ -305,7 +314,7 @@ class EnglishDateTimeExtractor internal constructor(
         val originalPosition = ts.position
 
         // skip words that usually come before hours, e.g. at, hour
-        ts.movePositionForwardBy(ts.indexOfWithoutCategory("pre_hour", 0))
+        ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.PRE_HOUR, 0))
 
         val number = extractIntegerInRange(0, DateTimeExtractorUtils.HOURS_IN_DAY)
         if (number == null) {
@@ -322,7 +331,7 @@ class EnglishDateTimeExtractor internal constructor(
         val originalPosition = ts.position
 
         // skip words that usually come before hours, e.g. at, hour
-        ts.movePositionForwardBy(ts.indexOfWithoutCategory("pre_hour", 0))
+        ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.PRE_HOUR, 0))
 
         val number = numberExtractor.numberNoOrdinal()
         if (number != null) {
@@ -338,13 +347,11 @@ class EnglishDateTimeExtractor internal constructor(
             }
 
             val result = ts.tryOrSkipDateTimeIgnore(true) {
-                if (ts[0]
-                        .hasCategory("special_minute_after")
-                ) {
+                if (ts.hasCategory(0, Categories.SPECIAL_MINUTE_AFTER)) {
                     // e.g. half past twelve
                     ts.movePositionForwardBy(1)
                     return@tryOrSkipDateTimeIgnore minutes
-                } else if (ts[0].hasCategory("special_minute_before")) {
+                } else if (ts.hasCategory(0, Categories.SPECIAL_MINUTE_BEFORE)) {
                     // e.g. quarter to eleven
                     ts.movePositionForwardBy(1)
                     return@tryOrSkipDateTimeIgnore -minutes
@@ -362,13 +369,13 @@ class EnglishDateTimeExtractor internal constructor(
     }
 
     fun oClock(): Boolean {
-        if (ts[0].hasCategory("pre_oclock")) {
-            val nextNotIgnore = ts.indexOfWithoutCategory("date_time_ignore", 1)
-            if (ts[nextNotIgnore].hasCategory("post_oclock")) {
+        if (ts.hasCategory(0, Categories.PRE_OCLOCK)) {
+            val nextNotIgnore = ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1)
+            if (ts.hasCategory(nextNotIgnore, Categories.POST_OCLOCK)) {
                 ts.movePositionForwardBy(nextNotIgnore + 1)
                 return true
             }
-        } else if (ts[0].hasCategory("oclock_combined")) {
+        } else if (ts.hasCategory(0, Categories.OCLOCK_COMBINED)) {
             ts.movePositionForwardBy(1)
             return true
         }
@@ -390,25 +397,25 @@ class EnglishDateTimeExtractor internal constructor(
     }
 
     fun relativeYesterday(): Int? {
-        if (ts[0].hasCategory("day_adder_the")
-            && ts[1].hasCategory("day_adder_day")
-            && ts[2].hasCategory("day_adder_before")
-            && ts[3].hasCategory("yesterday")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_THE)
+            && ts.hasCategory(1, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(2, Categories.DAY_ADDER_BEFORE)
+            && ts.hasCategory(3, Categories.YESTERDAY)
         ) {
             ts.movePositionForwardBy(4)
             return -2 // e.g. the day before yesterday
         }
 
         // "the" is optional
-        if (ts[0].hasCategory("day_adder_day")
-            && ts[1].hasCategory("day_adder_before")
-            && ts[2].hasCategory("yesterday")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(1, Categories.DAY_ADDER_BEFORE)
+            && ts.hasCategory(2, Categories.YESTERDAY)
         ) {
             ts.movePositionForwardBy(3)
             return -2 // e.g. day before yesterday
         }
 
-        if (ts[0].hasCategory("yesterday")) {
+        if (ts.hasCategory(0, Categories.YESTERDAY)) {
             ts.movePositionForwardBy(1)
             return -1 // e.g. yesterday
         } else {
@@ -417,25 +424,25 @@ class EnglishDateTimeExtractor internal constructor(
     }
 
     fun relativeTomorrow(): Int? {
-        if (ts[0].hasCategory("day_adder_the")
-            && ts[1].hasCategory("day_adder_day")
-            && ts[2].hasCategory("day_adder_after")
-            && ts[3].hasCategory("tomorrow")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_THE)
+            && ts.hasCategory(1, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(2, Categories.DAY_ADDER_AFTER)
+            && ts.hasCategory(3, Categories.TOMORROW)
         ) {
             ts.movePositionForwardBy(4)
             return 2 // e.g. the day after tomorrow
         }
 
         // "the" is optional
-        if (ts[0].hasCategory("day_adder_day")
-            && ts[1].hasCategory("day_adder_after")
-            && ts[2].hasCategory("tomorrow")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(1, Categories.DAY_ADDER_AFTER)
+            && ts.hasCategory(2, Categories.TOMORROW)
         ) {
             ts.movePositionForwardBy(3)
             return 2 // e.g. day after tomorrow
         }
 
-        if (ts[0].hasCategory("tomorrow")) {
+        if (ts.hasCategory(0, Categories.TOMORROW)) {
             ts.movePositionForwardBy(1)
             return 1 // e.g. tomorrow
         } else {
@@ -444,9 +451,22 @@ class EnglishDateTimeExtractor internal constructor(
     }
 
     fun relativeDuration(): Duration? {
+        return ts.memoize(RELATIVE_DURATION, 0) { relativeDurationNotMemoized() }
+    }
+
+    private fun relativeDurationNotMemoized(): Duration? {
         return dateTimeExtractor.relativeIndicatorDuration(
             { durationExtractor.duration() },
             { duration -> duration.multiply(-1) }
         )
     }
+
+
+    companion object {
+        private val TIME_WITH_AMPM = TokenStream.Rule("timeWithAmpm")
+        private val DATE = TokenStream.Rule("date")
+        private val RELATIVE_DURATION = TokenStream.Rule("relativeDuration")
+
+        internal val FIRST_SET = DateTimeExtractorUtils.firstSet(EnglishNumberExtractor.FIRST_SET)
+    }
 }
@@ -0,0 +1,5 @@
+package org.dicio.numbers.lang.en
+
+import org.dicio.numbers.LanguageProvider
+
+class EnglishLanguageProvider : LanguageProvider(listOf("en"), ::EnglishFormatter, ::EnglishParser)
@@ -1,5 +1,7 @@
 package org.dicio.numbers.lang.en
 
+import org.dicio.numbers.parser.lexer.Categories
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.NumberToken
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Number
@@ -80,16 +82,16 @@ class EnglishNumberExtractor internal constructor(
         // 10^24) would be decimal, here we are assuming that such a number will never have a
         // fraction after it for simplicity.
         if (!numberToEdit.isOrdinal && !numberToEdit.isDecimal
-            && !ts[0].hasCategory("ignore")
+            && !ts.hasCategory(0, Categories.IGNORE)
         ) {
             val originalPosition = ts.position
             val denominator = numberInteger(true)
             if (denominator == null) {
                 // no denominator found: maybe a custom multiplier? e.g. half (=0.5), dozen (=12)
-                if (ts[0].hasCategory("suffix_multiplier")) {
+                if (ts.hasCategory(0, Categories.SUFFIX_MULTIPLIER)) {
                     ts.movePositionForwardBy(1)
 
-                    val multiplier = ts[-1].number
+                    val multiplier = ts.numberAt(-1)
                     if (multiplier!!.isDecimal && (1 / multiplier.decimalValue()).toLong()
                             .toDouble()
                         == (1 / multiplier.decimalValue())
@@ -113,12 +115,12 @@ class EnglishNumberExtractor internal constructor(
     }
 
     fun numberSuffixMultiplier(): Number? {
-        if (ts[0].hasCategory("suffix_multiplier")) {
+        if (ts.hasCategory(0, Categories.SUFFIX_MULTIPLIER)) {
             ts.movePositionForwardBy(1)
-            return ts[-1].number // a suffix multiplier, e.g. dozen, half, score, percent
-        } else if (ts[0].isValue("a") && ts[1].hasCategory("suffix_multiplier")) {
+            return ts.numberAt(-1) // a suffix multiplier, e.g. dozen, half, score, percent
+        } else if (ts[0].isValue("a") && ts.hasCategory(1, Categories.SUFFIX_MULTIPLIER)) {
             ts.movePositionForwardBy(2) // also skip "a" before the suffix, e.g. a dozen
-            return ts[-1].number // a suffix multiplier preceded by "a", e.g. a quarter
+            return ts.numberAt(-1) // a suffix multiplier preceded by "a", e.g. a quarter
         } else {
             return null
         }
@@ -134,11 +136,12 @@ class EnglishNumberExtractor internal constructor(
             return n // no point or fraction separator can appear after an ordinal number
         }
 
-        if (ts[0].hasCategory("point")) {
+        if (ts.hasCategory(0, Categories.POINT)) {
             // parse point indicator from e.g. "twenty one point four five three"
 
-            if (!ts[1].hasCategory("digit_after_point")
-                && (!NumberExtractorUtils.isRawNumber(ts[1]) || ts[2].hasCategory("ordinal_suffix"))
+            if (!ts.hasCategory(1, Categories.DIGIT_AFTER_POINT)
+                && (!NumberExtractorUtils.isRawNumber(ts, 1)
+                        || ts.hasCategory(2, Categories.ORDINAL_SUFFIX))
             ) {
                 // also return if next up is an ordinal raw number, i.e. followed by st/nd/rd/th
                 return n // there is an only point at the end of the number: it is not part of it
@@ -150,7 +153,7 @@ class EnglishNumberExtractor internal constructor(
             }
 
             var magnitude = 0.1
-            if (ts[0].value.length > 1 && NumberExtractorUtils.isRawNumber(ts[0])) {
+            if (ts[0].value.length > 1 && NumberExtractorUtils.isRawNumber(ts, 0)) {
                 // handle sequence of raw digits after point, e.g. .0123
                 // value.length > 1 since multiple single-digits are handled below, e.g. . 0 1 2 3
                 for (i in 0 until ts[0].value.length) {
@@ -161,15 +164,13 @@ class EnglishNumberExtractor internal constructor(
             } else {
                 // read as many digits as possible, e.g. point one six 5 one 0 three
                 while (true) {
-                    if (ts[0].hasCategory("digit_after_point")
-                        || (ts[0].value.length == 1 && NumberExtractorUtils.isRawNumber(
-                            ts[0]
-                        )
-                                && !ts[1].hasCategory("ordinal_suffix"))
+                    if (ts.hasCategory(0, Categories.DIGIT_AFTER_POINT)
+                        || (ts[0].value.length == 1 && NumberExtractorUtils.isRawNumber(ts, 0)
+                                && !ts.hasCategory(1, Categories.ORDINAL_SUFFIX))
                     ) {
                         // do not allow ordinal raw numbers, i.e. followed by st/nd/rd/th
 
-                        n = n!!.plus(ts[0].number!!.multiply(magnitude))
+                        n = n!!.plus(ts.numberAt(0)!!.multiply(magnitude))
                         magnitude /= 10.0
                     } else {
                         break // reached a word that is not a valid digit
@@ -177,12 +178,12 @@ class EnglishNumberExtractor internal constructor(
                     ts.movePositionForwardBy(1)
                 }
             }
-        } else if (n != null && ts[0].hasCategory("fraction_separator")) {
+        } else if (n != null && ts.hasCategory(0, Categories.FRACTION_SEPARATOR)) {
             // parse fraction from e.g. "twenty divided by one hundred"
 
             val originalPosition = ts.position
             ts.movePositionForwardBy(1)
-            if (ts[0].hasCategory("fraction_separator_secondary")) {
+            if (ts.hasCategory(0, Categories.FRACTION_SEPARATOR_SECONDARY)) {
                 ts.movePositionForwardBy(1) // also remove "by" after "divided by"
             }
 
@@ -200,8 +201,14 @@ class EnglishNumberExtractor internal constructor(
     }
 
     fun numberInteger(allowOrdinal: Boolean): Number? {
-        if (ts[0].hasCategory("ignore")
-            && (!ts[0].isValue("a") || ts[1].hasCategory("ignore"))
+        return ts.memoize(NUMBER_INTEGER, if (allowOrdinal) 1 else 0) {
+            numberIntegerNotMemoized(allowOrdinal)
+        }
+    }
+
+    private fun numberIntegerNotMemoized(allowOrdinal: Boolean): Number? {
+        if (ts.hasCategory(0, Categories.IGNORE)
+            && (!ts[0].isValue("a") || ts.hasCategory(1, Categories.IGNORE))
         ) {
             return null // do not eat ignored words at the beginning, expect a (see e.g. a hundred)
         }
@@ -222,7 +229,7 @@ class EnglishNumberExtractor internal constructor(
         }
 
         // n != null from here on
-        if (n.lessThan(21) && n.moreThan(9) && !ts[-1].hasCategory("raw")) {
+        if (n.lessThan(21) && n.moreThan(9) && !ts.hasCategory(-1, Categories.RAW)) {
             // parse years (1001 to 2099) in the particular forms (but xx-hundred is handled below)
             val secondGroup = numberYearSecondGroup(allowOrdinal)
             if (secondGroup != null) {
@@ -231,10 +238,10 @@ class EnglishNumberExtractor internal constructor(
         }
 
         if (n.lessThan(100)) {
-            val nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
-            if (ts[nextNotIgnore].hasCategory("hundred")) {
+            val nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+            if (ts.hasCategory(nextNotIgnore, Categories.HUNDRED)) {
                 // parse numbers suffixed by hundred, e.g. twenty six hundred -> 2600
-                val ordinal = ts[nextNotIgnore].hasCategory("ordinal")
+                val ordinal = ts.hasCategory(nextNotIgnore, Categories.ORDINAL)
                 if (allowOrdinal || !ordinal) {
                     // prevent ordinal numbers if allowOrdinal is false
                     ts.movePositionForwardBy(nextNotIgnore + 1)
@@ -246,19 +253,20 @@ class EnglishNumberExtractor internal constructor(
         if (n.lessThan(1000)) {
             // parse raw number n separated by comma, e.g. 123,045,006
             // assuming current position is at the first comma
-            if (NumberExtractorUtils.isRawNumber(ts[-1]) && ts[0].hasCategory("thousand_separator") &&
-                ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(ts[1])
+            if (NumberExtractorUtils.isRawNumber(ts, -1) &&
+                ts.hasCategory(0, Categories.THOUSAND_SEPARATOR) &&
+                ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(ts, 1)
             ) {
                 val originalPosition = ts.position - 1
 
-                while (ts[0].hasCategory("thousand_separator") && ts[1].value.length == 3 &&
-                    NumberExtractorUtils.isRawNumber(ts[1])
+                while (ts.hasCategory(0, Categories.THOUSAND_SEPARATOR) &&
+                    ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(ts, 1)
                 ) {
-                    n = n!!.multiply(1000).plus(ts[1].number)
+                    n = n!!.multiply(1000).plus(ts.numberAt(1))
                     ts.movePositionForwardBy(2) // do not allow ignored words in between
                 }
 
-                if (ts[0].hasCategory("ordinal_suffix")) {
+                if (ts.hasCategory(0, Categories.ORDINAL_SUFFIX)) {
                     if (allowOrdinal) {
                         ts.movePositionForwardBy(1)
                         return n!!.withOrdinal(true) // ordinal number, e.g. 20,056,789th
@@ -278,41 +286,41 @@ class EnglishNumberExtractor internal constructor(
 
         // use nextNotIgnore to skip -, e.g. (nineteen)-oh-two
 
-        val nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
+        val nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
 
-        if (ts[nextNotIgnore].isNumberEqualTo(0)) {
-            val digitIndex = ts.indexOfWithoutCategory("ignore", nextNotIgnore + 1)
-            val ordinal = ts[digitIndex].hasCategory("ordinal")
-            if (ts[digitIndex].number?.lessThan(10) == true && (allowOrdinal || !ordinal)) {
+        if (ts.isNumberEqualTo(nextNotIgnore, 0)) {
+            val digitIndex = ts.indexOfWithoutCategory(Categories.IGNORE, nextNotIgnore + 1)
+            val ordinal = ts.hasCategory(digitIndex, Categories.ORDINAL)
+            if (ts.isNumberLessThan(digitIndex, 10) && (allowOrdinal || !ordinal)) {
                 // o/oh/nought/zero/0 + digit, e.g. (sixteen) oh one -> (16)01
                 // prevent ordinal number if allowOrdinal is false, e.g. (eighteen) oh second
                 ts.movePositionForwardBy(digitIndex + 1)
-                return ts[-1].number!!.withOrdinal(ordinal)
+                return ts.numberAt(-1)!!.withOrdinal(ordinal)
             }
-        } else if (ts[nextNotIgnore].hasCategory("teen")) {
+        } else if (ts.hasCategory(nextNotIgnore, Categories.TEEN)) {
             // teen, e.g. (twenty) thirteen -> (20)13
-            val ordinal = ts[nextNotIgnore].hasCategory("ordinal")
+            val ordinal = ts.hasCategory(nextNotIgnore, Categories.ORDINAL)
             if (!allowOrdinal && ordinal) {
                 return null // do not allow ordinal number if allowOrdinal is false
             } else {
                 ts.movePositionForwardBy(nextNotIgnore + 1)
-                return ts[-1].number!!.withOrdinal(ordinal)
+                return ts.numberAt(-1)!!.withOrdinal(ordinal)
             }
         } else if (ts[nextNotIgnore].value.length == 2
-            && NumberExtractorUtils.isRawNumber(ts[nextNotIgnore])
+            && NumberExtractorUtils.isRawNumber(ts, nextNotIgnore)
         ) {
             // raw number with two digits, e.g. (twenty) 41 -> (20)41, (12) 05 th -> (12)05th
-            val ordinal = ts[nextNotIgnore + 1].hasCategory("ordinal_suffix")
+            val ordinal = ts.hasCategory(nextNotIgnore + 1, Categories.ORDINAL_SUFFIX)
             if (!allowOrdinal && ordinal) {
                 return null // do not allow raw number + st/nd/rd/th if allowOrdinal is false
             } else {
                 ts.movePositionForwardBy(nextNotIgnore + (if (ordinal) 2 else 1))
-                return ts[if (ordinal) -2 else -1].number!!.withOrdinal(ordinal)
+                return ts.numberAt(if (ordinal) -2 else -1)!!.withOrdinal(ordinal)
             }
-        } else if (ts[nextNotIgnore].hasCategory("tens")) {
+        } else if (ts.hasCategory(nextNotIgnore, Categories.TENS)) {
             // tens (+ digit), e.g. (nineteen) eighty four -> (19)84
-            val tens = ts[nextNotIgnore].number
-            if (ts[nextNotIgnore].hasCategory("ordinal")) {
+            val tens = ts.numberAt(nextNotIgnore)
+            if (ts.hasCategory(nextNotIgnore, Categories.ORDINAL)) {
                 if (allowOrdinal) {
                     // nothing follows an ordinal number, e.g. (twenty) twentieth -> 2020th
                     ts.movePositionForwardBy(nextNotIgnore + 1)
@@ -323,12 +331,12 @@ class EnglishNumberExtractor internal constructor(
             }
             ts.movePositionForwardBy(nextNotIgnore + 1)
 
-            val digitIndex = ts.indexOfWithoutCategory("ignore", 0)
-            val ordinal = ts[digitIndex].hasCategory("ordinal")
-            if (ts[digitIndex].hasCategory("digit") && (allowOrdinal || !ordinal)) {
+            val digitIndex = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+            val ordinal = ts.hasCategory(digitIndex, Categories.ORDINAL)
+            if (ts.hasCategory(digitIndex, Categories.DIGIT) && (allowOrdinal || !ordinal)) {
                 // do not consider ordinal digit if allowOrdinal is false
                 ts.movePositionForwardBy(digitIndex + 1)
-                return tens!!.plus(ts[-1].number).withOrdinal(ordinal)
+                return tens!!.plus(ts.numberAt(-1)).withOrdinal(ordinal)
             } else {
                 return tens // digit is optional, e.g. (seventeen) fifty -> (17)50
             }
@@ -338,6 +346,14 @@ class EnglishNumberExtractor internal constructor(
     }
 
     companion object {
+        private val NUMBER_INTEGER = TokenStream.Rule("numberInteger")
+
+        // numbers start with a number word or digits, a sign, a point (e.g. point five) or "a"
+        // (e.g. a hundred, a tenth, a dozen); "a" is otherwise ignored, so it is checked by value
+        internal val FIRST_SET = FirstSet.NONE
+            .withCategories(Categories.NUMBER, Categories.SIGN, Categories.POINT)
+            .withWords("a")
+
         @JvmStatic
         fun numberGroupLongScale(
             ts: TokenStream,
@@ -358,22 +374,22 @@ class EnglishNumberExtractor internal constructor(
                 }
 
                 if (first == null) {
-                    val nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
-                    if (NumberExtractorUtils.isRawNumber(ts[nextNotIgnore])
-                        && ts[nextNotIgnore].number!!.lessThan(1000000)
+                    val nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+                    if (NumberExtractorUtils.isRawNumber(ts, nextNotIgnore)
+                        && ts.isNumberLessThan(nextNotIgnore, 1000000)
                     ) {
                         // maybe a raw number smaller than 1000000, e.g. 785743
-                        val ordinal = ts[nextNotIgnore + 1].hasCategory("ordinal_suffix")
+                        val ordinal = ts.hasCategory(nextNotIgnore + 1, Categories.ORDINAL_SUFFIX)
                         if (ordinal) {
                             if (!allowOrdinal) {
                                 // do not allow raw number + st/nd/rd/th if allowOrdinal is false
                                 return null
                             }
                             ts.movePositionForwardBy(nextNotIgnore + 2)
-                            return ts[-2].number!!.withOrdinal(true)
+                            return ts.numberAt(-2)!!.withOrdinal(true)
                         }
                         ts.movePositionForwardBy(nextNotIgnore + 1)
-                        first = ts[-1].number // raw number group, e.g. 123042 million
+                        first = ts.numberAt(-1) // raw number group, e.g. 123042 million
                     }
                 }
             } else {
@@ -391,13 +407,13 @@ class EnglishNumberExtractor internal constructor(
                 }
             }
 
-            val nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
-            val ordinal = ts[nextNotIgnore].hasCategory("ordinal")
-            if (ts[nextNotIgnore].hasCategory("multiplier") && (allowOrdinal || !ordinal)
-                && ts[nextNotIgnore].number!!.moreThan(1000)
+            val nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+            val ordinal = ts.hasCategory(nextNotIgnore, Categories.ORDINAL)
+            if (ts.hasCategory(nextNotIgnore, Categories.MULTIPLIER) && (allowOrdinal || !ordinal)
+                && ts.isNumberMoreThan(nextNotIgnore, 1000)
             ) {
                 // prevent ordinal multiplier if allowOrdinal is false; prevent thousand multiplier
-                val multiplier = shortMultiplierToLongScale(ts[nextNotIgnore].number)
+                val multiplier = shortMultiplierToLongScale(ts.numberAt(nextNotIgnore))
                 if (multiplier!!.lessThan(lastMultiplier)) {
                     ts.movePositionForwardBy(nextNotIgnore + 1)
                     return if (first == null) {
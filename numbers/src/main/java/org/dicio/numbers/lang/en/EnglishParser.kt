@@ -1,6 +1,7 @@
 package org.dicio.numbers.lang.en
 
 import org.dicio.numbers.parser.Parser
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.unit.Number
@@ -37,4 +38,13 @@ class EnglishParser : Parser("config/en-us") {
     ): () -> LocalDateTime? {
         return EnglishDateTimeExtractor(tokenStream, shortScale, preferMonthBeforeDay, now)::dateTime
     }
+
+    override val numberFirstSet: FirstSet
+        get() = EnglishNumberExtractor.FIRST_SET
+
+    override val durationFirstSet: FirstSet
+        get() = DurationExtractorUtils.firstSet(EnglishNumberExtractor.FIRST_SET)
+
+    override val dateTimeFirstSet: FirstSet
+        get() = EnglishDateTimeExtractor.FIRST_SET
 }
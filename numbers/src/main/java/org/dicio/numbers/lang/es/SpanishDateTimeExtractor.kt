@@ -1,6 +1,7 @@
 
 package org.dicio.numbers.lang.es
 
+import org.dicio.numbers.parser.lexer.Categories
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.util.DateTimeExtractorUtils
@@ -85,6 +86,10 @@ class SpanishDateTimeExtractor internal constructor(
     }
 
     fun timeWithAmpm(): LocalTime? {
+        return ts.memoize(TIME_WITH_AMPM, 0) { timeWithAmpmNotMemoized() }
+    }
+
+    private fun timeWithAmpmNotMemoized(): LocalTime? {
         var time = time()
         val pm: Boolean?
         if (time == null) {
@@ -150,6 +155,10 @@ class SpanishDateTimeExtractor internal constructor(
     }
 
     fun date(): LocalDate? {
+        return ts.memoize(DATE, 0) { dateNotMemoized() }
+    }
+
+    private fun dateNotMemoized(): LocalDate? {
         var result = now.toLocalDate()
 
         val dayOfWeek = dateTimeExtractor.dayOfWeek()
@@ -222,8 +231,8 @@ class SpanishDateTimeExtractor internal constructor(
     fun bcad(): Boolean? {
         val bcad = dateTimeExtractor.bcad()
         if (bcad != null && !bcad) {
-            val nextNotIgnore = ts.indexOfWithoutCategory("date_time_ignore", 0)
-            if (ts[nextNotIgnore].hasCategory("bcad_era")) {
+            val nextNotIgnore = ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 0)
+            if (ts.hasCategory(nextNotIgnore, Categories.BCAD_ERA)) {
                 ts.movePositionForwardBy(nextNotIgnore + 1)
             }
         }
@@ -231,29 +240,29 @@ class SpanishDateTimeExtractor internal constructor(
     }
 
     fun noonMidnightLike(): Int? {
-        return noonMidnightLikeOrMomentOfDay("noon_midnight_like")
+        return noonMidnightLikeOrMomentOfDay(Categories.NOON_MIDNIGHT_LIKE)
     }
 
     fun momentOfDay(): Int? {
-        return noonMidnightLikeOrMomentOfDay("moment_of_day")
+        return noonMidnightLikeOrMomentOfDay(Categories.MOMENT_OF_DAY)
     }
 
-    private fun noonMidnightLikeOrMomentOfDay(category: String): Int? {
+    private fun noonMidnightLikeOrMomentOfDay(category: Int): Int? {
         val originalPosition = ts.position
 
         var relativeIndicator = 0
-        if (ts[0].hasCategory("pre_special_hour")) {
-            if (ts[0].hasCategory("pre_relative_indicator")) {
-                relativeIndicator = if (ts[0].hasCategory("negative")) -1 else 1
-                ts.movePositionForwardBy(ts.indexOfWithoutCategory("date_time_ignore", 1))
+        if (ts.hasCategory(0, Categories.PRE_SPECIAL_HOUR)) {
+            if (ts.hasCategory(0, Categories.PRE_RELATIVE_INDICATOR)) {
+                relativeIndicator = if (ts.hasCategory(0, Categories.NEGATIVE)) -1 else 1
+                ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1))
             } else {
                 ts.movePositionForwardBy(1)
             }
         }
 
-        if (ts[0].hasCategory(category)) {
+        if (ts.hasCategory(0, category)) {
             ts.movePositionForwardBy(1)
-            return ((ts[-1].number!!.integerValue()
+            return ((ts.integerValueAt(-1)
                 .toInt() + DateTimeExtractorUtils.HOURS_IN_DAY + relativeIndicator)
                     % DateTimeExtractorUtils.HOURS_IN_DAY)
         }
@@ -264,7 +273,7 @@ class SpanishDateTimeExtractor internal constructor(
 
     fun hour(): Int? {
         val originalPosition = ts.position
-        ts.movePositionForwardBy(ts.indexOfWithoutCategory("pre_hour", 0))
+        ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.PRE_HOUR, 0))
         val number = extractIntegerInRange(0, DateTimeExtractorUtils.HOURS_IN_DAY)
         if (number == null) {
             ts.position = originalPosition
@@ -275,7 +284,7 @@ class SpanishDateTimeExtractor internal constructor(
 
     fun specialMinute(): Int? {
         val originalPosition = ts.position
-        ts.movePositionForwardBy(ts.indexOfWithoutCategory("pre_hour", 0))
+        ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.PRE_HOUR, 0))
         val number = numberExtractor.numberNoOrdinal()
         if (number != null) {
             val minutes: Int
@@ -289,10 +298,10 @@ class SpanishDateTimeExtractor internal constructor(
             }
 
             val result = ts.tryOrSkipDateTimeIgnore(true) {
-                if (ts[0].hasCategory("special_minute_after")) {
+                if (ts.hasCategory(0, Categories.SPECIAL_MINUTE_AFTER)) {
                     ts.movePositionForwardBy(1)
                     return@tryOrSkipDateTimeIgnore minutes
-                } else if (ts[0].hasCategory("special_minute_before")) {
+                } else if (ts.hasCategory(0, Categories.SPECIAL_MINUTE_BEFORE)) {
                     ts.movePositionForwardBy(1)
                     return@tryOrSkipDateTimeIgnore -minutes
                 } else {
@@ -309,13 +318,13 @@ class SpanishDateTimeExtractor internal constructor(
     }
 
     fun oClock(): Boolean {
-        if (ts[0].hasCategory("pre_oclock")) {
-            val nextNotIgnore = ts.indexOfWithoutCategory("date_time_ignore", 1)
-            if (ts[nextNotIgnore].hasCategory("post_oclock")) {
+        if (ts.hasCategory(0, Categories.PRE_OCLOCK)) {
+            val nextNotIgnore = ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1)
+            if (ts.hasCategory(nextNotIgnore, Categories.POST_OCLOCK)) {
                 ts.movePositionForwardBy(nextNotIgnore + 1)
                 return true
             }
-        } else if (ts[0].hasCategory("oclock_combined")) {
+        } else if (ts.hasCategory(0, Categories.OCLOCK_COMBINED)) {
             ts.movePositionForwardBy(1)
             return true
         }
@@ -336,24 +345,24 @@ class SpanishDateTimeExtractor internal constructor(
     }
 
     fun relativeYesterday(): Int? {
-        if (ts[0].hasCategory("day_adder_the")
-            && ts[1].hasCategory("day_adder_day")
-            && ts[2].hasCategory("day_adder_before")
-            && ts[3].hasCategory("yesterday")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_THE)
+            && ts.hasCategory(1, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(2, Categories.DAY_ADDER_BEFORE)
+            && ts.hasCategory(3, Categories.YESTERDAY)
         ) {
             ts.movePositionForwardBy(4)
             return -2
         }
 
-        if (ts[0].hasCategory("day_adder_day")
-            && ts[1].hasCategory("day_adder_before")
-            && ts[2].hasCategory("yesterday")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(1, Categories.DAY_ADDER_BEFORE)
+            && ts.hasCategory(2, Categories.YESTERDAY)
         ) {
             ts.movePositionForwardBy(3)
             return -2
         }
 
-        if (ts[0].hasCategory("yesterday")) {
+        if (ts.hasCategory(0, Categories.YESTERDAY)) {
             ts.movePositionForwardBy(1)
             return -1
         } else {
@@ -362,24 +371,24 @@ class SpanishDateTimeExtractor internal constructor(
     }
 
     fun relativeTomorrow(): Int? {
-        if (ts[0].hasCategory("day_adder_the")
-            && ts[1].hasCategory("day_adder_day")
-            && ts[2].hasCategory("day_adder_after")
-            && ts[3].hasCategory("tomorrow")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_THE)
+            && ts.hasCategory(1, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(2, Categories.DAY_ADDER_AFTER)
+            && ts.hasCategory(3, Categories.TOMORROW)
         ) {
             ts.movePositionForwardBy(4)
             return 2
         }
 
-        if (ts[0].hasCategory("day_adder_day")
-            && ts[1].hasCategory("day_adder_after")
-            && ts[2].hasCategory("tomorrow")
+        if (ts.hasCategory(0, Categories.DAY_ADDER_DAY)
+            && ts.hasCategory(1, Categories.DAY_ADDER_AFTER)
+            && ts.hasCategory(2, Categories.TOMORROW)
         ) {
             ts.movePositionForwardBy(3)
             return 2
         }
 
-        if (ts[0].hasCategory("tomorrow")) {
+        if (ts.hasCategory(0, Categories.TOMORROW)) {
             ts.movePositionForwardBy(1)
             return 1
         } else {
@@ -388,9 +397,22 @@ class SpanishDateTimeExtractor internal constructor(
     }
 
     fun relativeDuration(): Duration? {
+        return ts.memoize(RELATIVE_DURATION, 0) { relativeDurationNotMemoized() }
+    }
+
+    private fun relativeDurationNotMemoized(): Duration? {
         return dateTimeExtractor.relativeIndicatorDuration(
             { durationExtractor.duration() },
             { duration -> duration.multiply(-1) }
         )
     }
+
+
+    companion object {
+        private val TIME_WITH_AMPM = TokenStream.Rule("timeWithAmpm")
+        private val DATE = TokenStream.Rule("date")
+        private val RELATIVE_DURATION = TokenStream.Rule("relativeDuration")
+
+        internal val FIRST_SET = DateTimeExtractorUtils.firstSet(SpanishNumberExtractor.FIRST_SET)
+    }
 }
@@ -0,0 +1,5 @@
+package org.dicio.numbers.lang.es
+
+import org.dicio.numbers.LanguageProvider
+
+class SpanishLanguageProvider : LanguageProvider(listOf("es"), ::SpanishFormatter, ::SpanishParser)
@@ -1,5 +1,7 @@
 package org.dicio.numbers.lang.es
 
+import org.dicio.numbers.parser.lexer.Categories
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Number
 import org.dicio.numbers.util.NumberExtractorUtils
@@ -46,15 +48,15 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
 
     fun divideByDenominatorIfPossible(numberToEdit: Number): Number? {
         if (!numberToEdit.isOrdinal && !numberToEdit.isDecimal
-            && !ts[0].hasCategory("ignore")
+            && !ts.hasCategory(0, Categories.IGNORE)
         ) {
             val originalPosition = ts.position
             val denominator = numberInteger(true)
             if (denominator == null) {
-                if (ts[0].hasCategory("suffix_multiplier")) {
+                if (ts.hasCategory(0, Categories.SUFFIX_MULTIPLIER)) {
                     ts.movePositionForwardBy(1)
 
-                    val multiplier = ts[-1].number
+                    val multiplier = ts.numberAt(-1)
                     if (multiplier?.isDecimal == true &&
                         (1 / multiplier.decimalValue()).toLong().toDouble()
                         == (1 / multiplier.decimalValue())
@@ -74,9 +76,9 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
     }
 
     fun numberSuffixMultiplier(): Number? {
-        if (ts[0].hasCategory("suffix_multiplier")) {
+        if (ts.hasCategory(0, Categories.SUFFIX_MULTIPLIER)) {
             ts.movePositionForwardBy(1)
-            return ts[-1].number
+            return ts.numberAt(-1)
         } else {
             return null
         }
@@ -94,16 +96,17 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
             it
         }
 
-        if (ts[0].hasCategory("point")) {
-            if (!ts[1].hasCategory("digit_after_point")
-                && (!NumberExtractorUtils.isRawNumber(ts[1]) || ts[2].hasCategory("ordinal_suffix"))
+        if (ts.hasCategory(0, Categories.POINT)) {
+            if (!ts.hasCategory(1, Categories.DIGIT_AFTER_POINT)
+                && (!NumberExtractorUtils.isRawNumber(ts, 1)
+                        || ts.hasCategory(2, Categories.ORDINAL_SUFFIX))
             ) {
                 return n
             }
             ts.movePositionForwardBy(1)
 
             var magnitude = 0.1
-            if (ts[0].value.length > 1 && NumberExtractorUtils.isRawNumber(ts[0])) {
+            if (ts[0].value.length > 1 && NumberExtractorUtils.isRawNumber(ts, 0)) {
                 for (i in 0 until ts[0].value.length) {
                     n = n.plus((ts[0].value[i].code - '0'.code) * magnitude)
                     magnitude /= 10.0
@@ -111,11 +114,11 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
                 ts.movePositionForwardBy(1)
             } else {
                 while (true) {
-                    if (ts[0].hasCategory("digit_after_point")
-                        || (ts[0].value.length == 1 && NumberExtractorUtils.isRawNumber(ts[0])
-                                && !ts[1].hasCategory("ordinal_suffix"))
+                    if (ts.hasCategory(0, Categories.DIGIT_AFTER_POINT)
+                        || (ts[0].value.length == 1 && NumberExtractorUtils.isRawNumber(ts, 0)
+                                && !ts.hasCategory(1, Categories.ORDINAL_SUFFIX))
                     ) {
-                        n = n.plus(ts[0].number!!.multiply(magnitude))
+                        n = n.plus(ts.numberAt(0)!!.multiply(magnitude))
                         magnitude /= 10.0
                     } else {
                         break
@@ -123,9 +126,9 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
                     ts.movePositionForwardBy(1)
                 }
             }
-        } else if (ts[0].hasCategory("fraction_separator")) {
+        } else if (ts.hasCategory(0, Categories.FRACTION_SEPARATOR)) {
             var separatorLength = 1
-            if (ts[1].hasCategory("fraction_separator_secondary")) {
+            if (ts.hasCategory(1, Categories.FRACTION_SEPARATOR_SECONDARY)) {
                 separatorLength = 2
             }
 
@@ -142,7 +145,13 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
     }
 
     fun numberInteger(allowOrdinal: Boolean): Number? {
-        if (ts[0].hasCategory("ignore")) {
+        return ts.memoize(NUMBER_INTEGER, if (allowOrdinal) 1 else 0) {
+            numberIntegerNotMemoized(allowOrdinal)
+        }
+    }
+
+    private fun numberIntegerNotMemoized(allowOrdinal: Boolean): Number? {
+        if (ts.hasCategory(0, Categories.IGNORE)) {
             return null
         }
 
@@ -161,21 +170,20 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
         }
 
         if (n.lessThan(1000)) {
-            if (NumberExtractorUtils.isRawNumber(ts[-1]) && ts[0].hasCategory("thousand_separator") && ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(
-                    ts[1]
-                )
+            if (NumberExtractorUtils.isRawNumber(ts, -1) &&
+                ts.hasCategory(0, Categories.THOUSAND_SEPARATOR) &&
+                ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(ts, 1)
             ) {
                 val originalPosition = ts.position - 1
 
-                while (ts[0].hasCategory("thousand_separator") && ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(
-                        ts[1]
-                    )
+                while (ts.hasCategory(0, Categories.THOUSAND_SEPARATOR) &&
+                    ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(ts, 1)
                 ) {
-                    n = n!!.multiply(1000).plus(ts[1].number)
+                    n = n!!.multiply(1000).plus(ts.numberAt(1))
                     ts.movePositionForwardBy(2)
                 }
 
-                if (ts[0].hasCategory("ordinal_suffix")) {
+                if (ts.hasCategory(0, Categories.ORDINAL_SUFFIX)) {
                     if (allowOrdinal) {
                         ts.movePositionForwardBy(1)
                         return n!!.withOrdinal(true)
@@ -189,5 +197,13 @@ class SpanishNumberExtractor internal constructor(private val ts: TokenStream) {
 
         return n
     }
-}
 
+
+    companion object {
+        private val NUMBER_INTEGER = TokenStream.Rule("numberInteger")
+
+        // numbers start with a number word or digits, or with a sign, e.g. menos tres
+        internal val FIRST_SET =
+            FirstSet.NONE.withCategories(Categories.NUMBER, Categories.SIGN)
+    }
+}
@@ -2,6 +2,7 @@
 package org.dicio.numbers.lang.es
 
 import org.dicio.numbers.parser.Parser
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.unit.Number
@@ -38,4 +39,13 @@ class SpanishParser : Parser("config/es-es") { // FIX: lowercase path
     ): () -> LocalDateTime? {
         return SpanishDateTimeExtractor(tokenStream, now)::dateTime
     }
+
+    override val numberFirstSet: FirstSet
+        get() = SpanishNumberExtractor.FIRST_SET
+
+    override val durationFirstSet: FirstSet
+        get() = DurationExtractorUtils.firstSet(SpanishNumberExtractor.FIRST_SET)
+
+    override val dateTimeFirstSet: FirstSet
+        get() = SpanishDateTimeExtractor.FIRST_SET
 }
@@ -1,5 +1,6 @@
 package org.dicio.numbers.lang.it
 
+import org.dicio.numbers.parser.lexer.Categories
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.util.DateTimeExtractorUtils
@@ -91,6 +92,10 @@ class ItalianDateTimeExtractor internal constructor(
     }
 
     fun timeWithAmpm(): LocalTime? {
+        return ts.memoize(TIME_WITH_AMPM, 0) { timeWithAmpmNotMemoized() }
+    }
+
+    private fun timeWithAmpmNotMemoized(): LocalTime? {
         var time = time()
         val pm: Boolean?
         if (time == null) {
@@ -149,6 +154,10 @@ class ItalianDateTimeExtractor internal constructor(
     }
 
     fun date(): LocalDate? {
+        return ts.memoize(DATE, 0) { dateNotMemoized() }
+    }
+
+    private fun dateNotMemoized(): LocalDate? {
         var result = now.toLocalDate()
 
         val dayOfWeek = dayOfWeek()
@@ -217,33 +226,33 @@ class ItalianDateTimeExtractor internal constructor(
     }
 
     fun noonMidnightLike(): Int? {
-        return noonMidnightLikeOrMomentOfDay("noon_midnight_like")
+        return noonMidnightLikeOrMomentOfDay(Categories.NOON_MIDNIGHT_LIKE)
     }
 
     fun momentOfDay(): Int? {
         // noon_midnight_like is a part of moment_of_day, so noon and midnight are included
-        return noonMidnightLikeOrMomentOfDay("moment_of_day")
+        return noonMidnightLikeOrMomentOfDay(Categories.MOMENT_OF_DAY)
     }
 
-    private fun noonMidnightLikeOrMomentOfDay(category: String): Int? {
+    private fun noonMidnightLikeOrMomentOfDay(category: Int): Int? {
         val originalPosition = ts.position
 
         var relativeIndicator = 0 // 0 = not found, otherwise the sign, +1 or -1
-        if (ts[0].hasCategory("pre_special_hour")) {
+        if (ts.hasCategory(0, Categories.PRE_SPECIAL_HOUR)) {
             // found a word that usually comes before special hours, e.g. questo, dopo
-            if (ts[0].hasCategory("pre_relative_indicator")) {
-                relativeIndicator = if (ts[0].hasCategory("negative")) -1 else 1
+            if (ts.hasCategory(0, Categories.PRE_RELATIVE_INDICATOR)) {
+                relativeIndicator = if (ts.hasCategory(0, Categories.NEGATIVE)) -1 else 1
                 // only move to next not ignore if we got a relative indicator
-                ts.movePositionForwardBy(ts.indexOfWithoutCategory("date_time_ignore", 1))
+                ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1))
             } else {
                 ts.movePositionForwardBy(1)
             }
         }
 
-        if (ts[0].hasCategory(category)) {
+        if (ts.hasCategory(0, category)) {
             // special hour found, e.g. mezzanotte, sera, pranzo
             ts.movePositionForwardBy(1)
-            return ((ts[-1].number!!.integerValue().toInt() +
+            return ((ts.integerValueAt(-1).toInt() +
                     DateTimeExtractorUtils.HOURS_IN_DAY + relativeIndicator)
                     % DateTimeExtractorUtils.HOURS_IN_DAY)
         }
@@ -269,7 +278,7 @@ class ItalianDateTimeExtractor internal constructor(
         val originalPosition = ts.position
 
         // skip words that usually come before hours, e.g. alle, ore
-        ts.movePositionForwardBy(ts.indexOfWithoutCategory("pre_hour", 0))
+        ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.PRE_HOUR, 0))
 
         val number = extractIntegerInRange(0, DateTimeExtractorUtils.HOURS_IN_DAY)
         if (number == null) {
@@ -301,13 +310,13 @@ class ItalianDateTimeExtractor internal constructor(
 
         // collect as many adders ("altro") preceding yesterday ("ieri") as possible
         var dayCount = 0
-        while (ts[0].hasCategory("yesterday_adder")) {
+        while (ts.hasCategory(0, Categories.YESTERDAY_ADDER)) {
             ++dayCount
-            ts.movePositionForwardBy(ts.indexOfWithoutCategory("date_time_ignore", 1))
+            ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1))
         }
 
         // collect the actual yesterday ("ieri") and exit if it is not found
-        if (!ts[0].hasCategory("yesterday")) {
+        if (!ts.hasCategory(0, Categories.YESTERDAY)) {
             ts.position = originalPosition
             return null
         }
@@ -315,8 +324,8 @@ class ItalianDateTimeExtractor internal constructor(
         ++dayCount
 
         // if no adders were collected before yesterday, try to collect only one at the end
-        val nextNotIgnore = ts.indexOfWithoutCategory("date_time_ignore", 0)
-        if (dayCount == 1 && ts[nextNotIgnore].hasCategory("yesterday_adder")) {
+        val nextNotIgnore = ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 0)
+        if (dayCount == 1 && ts.hasCategory(nextNotIgnore, Categories.YESTERDAY_ADDER)) {
             ++dayCount
             ts.movePositionForwardBy(nextNotIgnore + 1)
         }
@@ -330,13 +339,13 @@ class ItalianDateTimeExtractor internal constructor(
 
         // collect as many "dopo" preceding "domani" as possible
         var dayCount = 0
-        while (ts[0].hasCategory("tomorrow_adder")) {
+        while (ts.hasCategory(0, Categories.TOMORROW_ADDER)) {
             ++dayCount
-            ts.movePositionForwardBy(ts.indexOfWithoutCategory("date_time_ignore", 1))
+            ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1))
         }
 
         // collect the actual "domani" and exit if it is not found
-        if (!ts[0].hasCategory("tomorrow")) {
+        if (!ts.hasCategory(0, Categories.TOMORROW)) {
             ts.position = originalPosition
             return null
         }
@@ -348,9 +357,25 @@ class ItalianDateTimeExtractor internal constructor(
     }
 
     fun relativeDuration(): Duration? {
+        return ts.memoize(RELATIVE_DURATION, 0) { relativeDurationNotMemoized() }
+    }
+
+    private fun relativeDurationNotMemoized(): Duration? {
         return dateTimeExtractor.relativeIndicatorDuration(
             { durationExtractor.duration() },
             { duration -> duration.multiply(-1) }
         )
     }
+
+
+    companion object {
+        private val TIME_WITH_AMPM = TokenStream.Rule("timeWithAmpm")
+        private val DATE = TokenStream.Rule("date")
+        private val RELATIVE_DURATION = TokenStream.Rule("relativeDuration")
+
+        internal val FIRST_SET = DateTimeExtractorUtils.firstSet(ItalianNumberExtractor.FIRST_SET)
+            // dayOfWeek() checks "mar" by value, and "mezzo giorno" is matched by prefix
+            .withWords("mar")
+            .withWordPrefixes("mezz")
+    }
 }
@@ -0,0 +1,5 @@
+package org.dicio.numbers.lang.it
+
+import org.dicio.numbers.LanguageProvider
+
+class ItalianLanguageProvider : LanguageProvider(listOf("it"), ::ItalianFormatter, ::ItalianParser)
@@ -1,5 +1,7 @@
 package org.dicio.numbers.lang.it
 
+import org.dicio.numbers.parser.lexer.Categories
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Number
 import org.dicio.numbers.util.NumberExtractorUtils
@@ -63,16 +65,16 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
         // such a number will never have a fraction after it for simplicity.
 
         if (!numberToEdit.isOrdinal && !numberToEdit.isDecimal
-            && !ts[0].hasCategory("ignore")
+            && !ts.hasCategory(0, Categories.IGNORE)
         ) {
             val originalPosition = ts.position
             val denominator = numberInteger(true)
             if (denominator == null) {
                 // no denominator found: maybe a custom multiplier? e.g. mezzo (=0.5), dozzina (=12)
-                if (ts[0].hasCategory("suffix_multiplier")) {
+                if (ts.hasCategory(0, Categories.SUFFIX_MULTIPLIER)) {
                     ts.movePositionForwardBy(1)
 
-                    val multiplier = ts[-1].number
+                    val multiplier = ts.numberAt(-1)
                     if (multiplier?.isDecimal == true &&
                         (1 / multiplier.decimalValue()).toLong().toDouble()
                         == (1 / multiplier.decimalValue())
@@ -96,9 +98,9 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
     }
 
     fun numberSuffixMultiplier(): Number? {
-        if (ts[0].hasCategory("suffix_multiplier")) {
+        if (ts.hasCategory(0, Categories.SUFFIX_MULTIPLIER)) {
             ts.movePositionForwardBy(1)
-            return ts[-1].number // a suffix multiplier, e.g. dozen, half, score, percent
+            return ts.numberAt(-1) // a suffix multiplier, e.g. dozen, half, score, percent
         } else {
             return null
         }
@@ -118,11 +120,12 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
             it
         }
 
-        if (ts[0].hasCategory("point")) {
+        if (ts.hasCategory(0, Categories.POINT)) {
             // parse point indicator from e.g. "twenty one point four five three"
 
-            if (!ts[1].hasCategory("digit_after_point")
-                && (!NumberExtractorUtils.isRawNumber(ts[1]) || ts[2].hasCategory("ordinal_suffix"))
+            if (!ts.hasCategory(1, Categories.DIGIT_AFTER_POINT)
+                && (!NumberExtractorUtils.isRawNumber(ts, 1)
+                        || ts.hasCategory(2, Categories.ORDINAL_SUFFIX))
             ) {
                 // also return if next up is an ordinal raw number, i.e. followed by °/esimo
                 return n // there is an only comma at the end of the number: it is not part of it
@@ -130,7 +133,7 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
             ts.movePositionForwardBy(1)
 
             var magnitude = 0.1
-            if (ts[0].value.length > 1 && NumberExtractorUtils.isRawNumber(ts[0])) {
+            if (ts[0].value.length > 1 && NumberExtractorUtils.isRawNumber(ts, 0)) {
                 // handle sequence of raw digits after point, e.g. .0123
                 // value.length > 1 since multiple single-digits are handled below, e.g. . 0 1 2 3
                 for (i in 0 until ts[0].value.length) {
@@ -141,12 +144,12 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
             } else {
                 // read as many digits as possible, e.g. point one six 5 one 0 three
                 while (true) {
-                    if (ts[0].hasCategory("digit_after_point")
-                        || (ts[0].value.length == 1 && NumberExtractorUtils.isRawNumber(ts[0])
-                                && !ts[1].hasCategory("ordinal_suffix"))
+                    if (ts.hasCategory(0, Categories.DIGIT_AFTER_POINT)
+                        || (ts[0].value.length == 1 && NumberExtractorUtils.isRawNumber(ts, 0)
+                                && !ts.hasCategory(1, Categories.ORDINAL_SUFFIX))
                     ) {
                         // do not allow ordinal raw numbers, i.e. followed by st/nd/rd/th
-                        n = n.plus(ts[0].number!!.multiply(magnitude))
+                        n = n.plus(ts.numberAt(0)!!.multiply(magnitude))
                         magnitude /= 10.0
                     } else {
                         break // reached a word that is not a valid digit
@@ -154,11 +157,11 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
                     ts.movePositionForwardBy(1)
                 }
             }
-        } else if (ts[0].hasCategory("fraction_separator")) {
+        } else if (ts.hasCategory(0, Categories.FRACTION_SEPARATOR)) {
             // parse fraction from e.g. "twenty divided by one hundred"
 
             var separatorLength = 1
-            if (ts[1].hasCategory("fraction_separator_secondary")) {
+            if (ts.hasCategory(1, Categories.FRACTION_SEPARATOR_SECONDARY)) {
                 separatorLength = 2 // also remove "by" after "divided by"
             }
 
@@ -175,7 +178,13 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
     }
 
     fun numberInteger(allowOrdinal: Boolean): Number? {
-        if (ts[0].hasCategory("ignore")) {
+        return ts.memoize(NUMBER_INTEGER, if (allowOrdinal) 1 else 0) {
+            numberIntegerNotMemoized(allowOrdinal)
+        }
+    }
+
+    private fun numberIntegerNotMemoized(allowOrdinal: Boolean): Number? {
+        if (ts.hasCategory(0, Categories.IGNORE)) {
             return null // do not eat ignored words at the beginning
         }
 
@@ -197,21 +206,20 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
         if (n.lessThan(1000)) {
             // parse raw number n separated by comma, e.g. 123,045,006
             // assuming current position is at the first comma
-            if (NumberExtractorUtils.isRawNumber(ts[-1]) && ts[0].hasCategory("thousand_separator") && ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(
-                    ts[1]
-                )
+            if (NumberExtractorUtils.isRawNumber(ts, -1) &&
+                ts.hasCategory(0, Categories.THOUSAND_SEPARATOR) &&
+                ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(ts, 1)
             ) {
                 val originalPosition = ts.position - 1
 
-                while (ts[0].hasCategory("thousand_separator") && ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(
-                        ts[1]
-                    )
+                while (ts.hasCategory(0, Categories.THOUSAND_SEPARATOR) &&
+                    ts[1].value.length == 3 && NumberExtractorUtils.isRawNumber(ts, 1)
                 ) {
-                    n = n!!.multiply(1000).plus(ts[1].number)
+                    n = n!!.multiply(1000).plus(ts.numberAt(1))
                     ts.movePositionForwardBy(2) // do not allow ignored words in between
                 }
 
-                if (ts[0].hasCategory("ordinal_suffix")) {
+                if (ts.hasCategory(0, Categories.ORDINAL_SUFFIX)) {
                     if (allowOrdinal) {
                         ts.movePositionForwardBy(1)
                         return n!!.withOrdinal(true) // ordinal number, e.g. 20,056,789th
@@ -225,4 +233,13 @@ class ItalianNumberExtractor internal constructor(private val ts: TokenStream) {
 
         return n // e.g. six million, three hundred and twenty seven
     }
+
+
+    companion object {
+        private val NUMBER_INTEGER = TokenStream.Rule("numberInteger")
+
+        // numbers start with a number word or digits, or with a sign, e.g. meno tre
+        internal val FIRST_SET =
+            FirstSet.NONE.withCategories(Categories.NUMBER, Categories.SIGN)
+    }
 }
@@ -1,6 +1,7 @@
 package org.dicio.numbers.lang.it
 
 import org.dicio.numbers.parser.Parser
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.unit.Number
@@ -37,4 +38,13 @@ class ItalianParser : Parser("config/it-it") {
     ): () -> LocalDateTime? {
         return ItalianDateTimeExtractor(tokenStream, now)::dateTime
     }
+
+    override val numberFirstSet: FirstSet
+        get() = ItalianNumberExtractor.FIRST_SET
+
+    override val durationFirstSet: FirstSet
+        get() = DurationExtractorUtils.firstSet(ItalianNumberExtractor.FIRST_SET)
+
+    override val dateTimeFirstSet: FirstSet
+        get() = ItalianDateTimeExtractor.FIRST_SET
 }
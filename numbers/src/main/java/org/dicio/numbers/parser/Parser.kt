@@ -1,13 +1,27 @@
 package org.dicio.numbers.parser
 
+import org.dicio.numbers.parser.lexer.DocumentScanner
+import org.dicio.numbers.parser.lexer.FirstSet
+import org.dicio.numbers.parser.lexer.StreamingTokenizer
+import org.dicio.numbers.parser.lexer.Token
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.parser.lexer.Tokenizer
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.unit.Number
+import java.io.Reader
 import java.time.LocalDateTime
+import java.util.concurrent.ConcurrentHashMap
 
+/**
+ * Extracts numbers, durations and date times from utterances in a particular language. Parsers
+ * are immutable once constructed and can be used from multiple threads at the same time, since
+ * all of the state of an extraction lives in the [TokenStream] created for it by [tokenize].
+ * Subclasses must preserve this property.
+ */
 abstract class Parser protected constructor(configFolder: String) {
     protected val tokenizer: Tokenizer = Tokenizer(configFolder)
+    // built the first time a document is scanned with a first set, see tokenizeDocument()
+    private val documentScanners = ConcurrentHashMap<FirstSet, DocumentScanner>()
 
 
     abstract fun extractNumber(
@@ -28,8 +42,76 @@ abstract class Parser protected constructor(configFolder: String) {
         now: LocalDateTime
     ): () -> LocalDateTime?
 
+    /**
+     * The tokens at which the extractor returned by [extractNumber] can find a number, which
+     * allows skipping all other tokens when scanning an utterance. The default, [FirstSet.ANY],
+     * skips nothing, and is always correct.
+     */
+    open val numberFirstSet: FirstSet
+        get() = FirstSet.ANY
+
+    /**
+     * Like [numberFirstSet], but for [extractDuration].
+     */
+    open val durationFirstSet: FirstSet
+        get() = FirstSet.ANY
+
+    /**
+     * Like [numberFirstSet], but for [extractDateTime].
+     */
+    open val dateTimeFirstSet: FirstSet
+        get() = FirstSet.ANY
+
 
     fun tokenize(utterance: String): TokenStream {
         return TokenStream(tokenizer.tokenize(utterance))
     }
+
+    /**
+     * Tokenizes the part of [document] from [start] (inclusive) to [end] (exclusive), which must
+     * both be boundaries between tokens, e.g. ones returned by [safeBoundary]. The tokens are the
+     * same as the ones [tokenize] would produce for that part of the whole document.
+     */
+    internal fun tokenize(document: String, start: Int, end: Int): TokenStream {
+        val tokens = ArrayList<Token>()
+        tokenizer.tokenize(document, start, end, tokens)
+        return TokenStream(tokens)
+    }
+
+    /**
+     * @return the first position after [from] at which [document] can be split in two parts to
+     * extract from separately, with extractors having [firstSet], see [Tokenizer.safeBoundary]
+     */
+    internal fun safeBoundary(document: String, from: Int, firstSet: FirstSet): Int {
+        return tokenizer.safeBoundary(document, from, firstSet)
+    }
+
+    /**
+     * @return a tokenizer of the text read from [reader], for extractors with [firstSet], see
+     * [StreamingTokenizer]
+     */
+    internal fun streamingTokenizer(
+        reader: Reader,
+        firstSet: FirstSet,
+        bufferSize: Int
+    ): StreamingTokenizer {
+        return StreamingTokenizer(tokenizer, reader, firstSet, bufferSize)
+    }
+
+    /**
+     * Tokenizes only the windows of [document] around which an extractor with [firstSet] could
+     * find something, see [DocumentScanner.tokenizeWindows]. Extracting from the returned token
+     * stream gives the same objects as extracting from the whole document, but the rest of the
+     * document is not even tokenized. With [FirstSet.ANY] the whole document is tokenized.
+     */
+    internal fun tokenizeDocument(document: String, firstSet: FirstSet): TokenStream {
+        return if (firstSet.any) {
+            tokenize(document)
+        } else {
+            TokenStream(
+                documentScanners.computeIfAbsent(firstSet, tokenizer::documentScanner)
+                    .tokenizeWindows(document)
+            )
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package org.dicio.numbers.parser.lexer
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Maps the names of token categories (e.g. "ordinal", "ignore") to dense integer ids, so that
+ * tokens can store their categories in a bitset and extractors can check them without hashing
+ * strings. All of the categories used in the tokenizer configurations shipped with this library
+ * have a fixed id, available as a constant below. Any other category found while loading a
+ * tokenizer configuration is assigned the next free id, so custom configurations and extractors
+ * keep working through [idOf] and the [Token.hasCategory] overload taking a string.
+ */
+object Categories {
+    const val AMPM_AFTER = 0
+    const val AMPM_AFTER_COMBINED = 1
+    const val AMPM_BEFORE = 2
+    const val AMPM_BEFORE_COMBINED = 3
+    const val AMPM_IDENTIFIER = 4
+    const val BCAD_AFTER = 5
+    const val BCAD_AFTER_COMBINED = 6
+    const val BCAD_BEFORE = 7
+    const val BCAD_BEFORE_COMBINED = 8
+    const val BCAD_ERA = 9
+    const val BCAD_IDENTIFIER = 10
+    const val COMPOUND_WORD_PIECE = 11
+    const val DATE_TIME_IGNORE = 12
+    const val DAY_ADDER_AFTER = 13
+    const val DAY_ADDER_BEFORE = 14
+    const val DAY_ADDER_DAY = 15
+    const val DAY_ADDER_THE = 16
+    const val DAY_OF_WEEK = 17
+    const val DIGIT = 18
+    const val DIGIT_AFTER_POINT = 19
+    const val DURATION_SEPARATOR = 20
+    const val FRACTION_SEPARATOR = 21
+    const val FRACTION_SEPARATOR_SECONDARY = 22
+    const val HUNDRED = 23
+    const val IGNORE = 24
+    const val MOMENT_OF_DAY = 25
+    const val MONTH_NAME = 26
+    const val MULTIPLIER = 27
+    const val NEGATIVE = 28
+    const val NOON_MIDNIGHT_LIKE = 29
+    const val NUMBER = 30
+    const val OCLOCK_COMBINED = 31
+    const val ORDINAL = 32
+    const val ORDINAL_SUFFIX = 33
+    const val POINT = 34
+    const val POSITIVE = 35
+    const val POST_OCLOCK = 36
+    const val POST_RELATIVE_INDICATOR = 37
+    const val PRE_HOUR = 38
+    const val PRE_OCLOCK = 39
+    const val PRE_RELATIVE_INDICATOR = 40
+    const val PRE_SPECIAL_HOUR = 41
+    const val RAW = 42
+    const val SIGN = 43
+    const val SPECIAL_MINUTE_AFTER = 44
+    const val SPECIAL_MINUTE_BEFORE = 45
+    const val SUFFIX_MULTIPLIER = 46
+    const val TEEN = 47
+    const val TENS = 48
+    const val THOUSAND_SEPARATOR = 49
+    const val TODAY = 50
+    const val TODAY_ADDER = 51
+    const val TOMORROW = 52
+    const val TOMORROW_ADDER = 53
+    const val YESTERDAY = 54
+    const val YESTERDAY_ADDER = 55
+
+    private val PREDEFINED = arrayOf(
+        "ampm_after",
+        "ampm_after_combined",
+        "ampm_before",
+        "ampm_before_combined",
+        "ampm_identifier",
+        "bcad_after",
+        "bcad_after_combined",
+        "bcad_before",
+        "bcad_before_combined",
+        "bcad_era",
+        "bcad_identifier",
+        "compound_word_piece",
+        "date_time_ignore",
+        "day_adder_after",
+        "day_adder_before",
+        "day_adder_day",
+        "day_adder_the",
+        "day_of_week",
+        "digit",
+        "digit_after_point",
+        "duration_separator",
+        "fraction_separator",
+        "fraction_separator_secondary",
+        "hundred",
+        "ignore",
+        "moment_of_day",
+        "month_name",
+        "multiplier",
+        "negative",
+        "noon_midnight_like",
+        "number",
+        "oclock_combined",
+        "ordinal",
+        "ordinal_suffix",
+        "point",
+        "positive",
+        "post_oclock",
+        "post_relative_indicator",
+        "pre_hour",
+        "pre_oclock",
+        "pre_relative_indicator",
+        "pre_special_hour",
+        "raw",
+        "sign",
+        "special_minute_after",
+        "special_minute_before",
+        "suffix_multiplier",
+        "teen",
+        "tens",
+        "thousand_separator",
+        "today",
+        "today_adder",
+        "tomorrow",
+        "tomorrow_adder",
+        "yesterday",
+        "yesterday_adder",
+    )
+
+    private val ids = ConcurrentHashMap<String, Int>()
+    private var nextId = PREDEFINED.size
+
+    init {
+        for ((id, name) in PREDEFINED.withIndex()) {
+            ids[name] = id
+        }
+    }
+
+    /**
+     * @param name the name of a category
+     * @return the id of the category, or -1 if no tokenizer configuration loaded so far uses such
+     * a category (so no token can possibly have it)
+     */
+    @JvmStatic
+    fun idOf(name: String): Int {
+        return ids[name] ?: -1
+    }
+
+    /**
+     * @param name the name of a category
+     * @return the id of the category, which is assigned now if the category was never seen before
+     */
+    internal fun intern(name: String): Int {
+        ids[name]?.let { return it }
+        synchronized(this) {
+            return ids.getOrPut(name) { nextId++ }
+        }
+    }
+
+    /**
+     * @param names the names of some categories, which are interned if needed
+     * @return a bitset in which the bits corresponding to the ids of the categories are set
+     */
+    internal fun bitsetOf(names: Iterable<String>): LongArray {
+        val ids = names.map(::intern)
+        val bitset = LongArray((ids.maxOrNull() ?: -1) / Long.SIZE_BITS + 1)
+        for (id in ids) {
+            bitset[id ushr 6] = bitset[id ushr 6] or (1L shl id)
+        }
+        return bitset
+    }
+
+    /**
+     * Slow, only meant to be used when writing config snapshots (see [Tokenizer.writeSnapshot]),
+     * since category ids other than the predefined ones depend on the loading order.
+     * @param bitset a bitset built with [bitsetOf]
+     * @return the names of all of the categories whose bits are set in the bitset
+     */
+    internal fun namesOf(bitset: LongArray): List<String> {
+        return ids.entries.filter { bitsetContains(bitset, it.value) }.map { it.key }.sorted()
+    }
+
+    /**
+     * @param bitset a bitset built with [bitsetOf]
+     * @param id the id of a category, or -1
+     * @return whether the bit corresponding to the category is set in the bitset
+     */
+    internal fun bitsetContains(bitset: LongArray, id: Int): Boolean {
+        // shl only considers the lowest 6 bits of id, i.e. the index inside the long
+        return id >= 0 && (id ushr 6) < bitset.size && (bitset[id ushr 6] and (1L shl id)) != 0L
+    }
+}
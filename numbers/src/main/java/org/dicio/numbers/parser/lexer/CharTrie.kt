@@ -0,0 +1,239 @@
+package org.dicio.numbers.parser.lexer
+
+import org.dicio.numbers.util.ByteBufferDataInput
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.nio.CharBuffer
+import java.nio.IntBuffer
+import java.util.TreeMap
+
+/**
+ * An immutable trie mapping strings to values, compiled once from a map and then walked one
+ * character at a time. Nodes are numbered in breadth-first order and the outgoing edges of each
+ * node are stored sorted in flat arrays, so walking the trie never allocates anything. When the
+ * trie is read from a memory-mapped snapshot, the edges are instead views of the mapped file, and
+ * only the values are on the heap.
+ *
+ * @param T the type of the values associated to the strings in the trie
+ */
+internal class CharTrie<T : Any> private constructor(
+    private val edges: Edges,
+    private val values: Array<Any?>,
+) {
+    /**
+     * @param node the node from which to follow the edge, e.g. [ROOT]
+     * @param c the label of the edge to follow
+     * @return the node reached by following the edge labeled with [c], or [NO_NODE] if there is
+     * no such edge
+     */
+    fun step(node: Int, c: Char): Int {
+        return edges.step(node, c)
+    }
+
+    /**
+     * @param node a node of this trie
+     * @return the value associated with the string that leads from the root to [node], or null if
+     * that string is only a prefix of some string in the trie
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun valueAt(node: Int): T? {
+        return values[node] as T?
+    }
+
+    /**
+     * @return the value associated with the characters of [s] between [start] (inclusive) and
+     * [end] (exclusive), or null if they are not in the trie
+     */
+    operator fun get(s: CharSequence, start: Int = 0, end: Int = s.length): T? {
+        var node = ROOT
+        for (i in start until end) {
+            node = step(node, s[i])
+            if (node == NO_NODE) {
+                return null
+            }
+        }
+        return valueAt(node)
+    }
+
+    /**
+     * The number of nodes in this trie, which are numbered from [ROOT] to `nodeCount - 1` in
+     * breadth-first order, so that each node comes after its parent.
+     */
+    val nodeCount: Int
+        get() = values.size
+
+    /**
+     * Calls [action] with the label of each edge going out of [node], in increasing order, along
+     * with the node the edge leads to. Allows visiting the whole trie, e.g. to enumerate its keys.
+     */
+    fun forEachChild(node: Int, action: (Char, Int) -> Unit) {
+        for (edge in edges.firstEdge(node) until edges.firstEdge(node + 1)) {
+            action(edges.label(edge), edge + 1)
+        }
+    }
+
+
+    /**
+     * Writes this trie in a compact binary form that can be read back with [read].
+     * @param writeValue writes a value of the trie to the output
+     */
+    fun write(output: DataOutputStream, writeValue: (T) -> Unit) {
+        output.writeInt(values.size)
+        output.writeInt(edges.edgeCount)
+        for (n in 0..values.size) {
+            output.writeInt(edges.firstEdge(n))
+        }
+        for (e in 0 until edges.edgeCount) {
+            output.writeChar(edges.label(e).code)
+        }
+        for (value in values) {
+            output.writeBoolean(value != null)
+            if (value != null) {
+                @Suppress("UNCHECKED_CAST")
+                writeValue(value as T)
+            }
+        }
+    }
+
+
+    // The edges of node n are those from firstEdge(n) until firstEdge(n+1), sorted by label. With
+    // breadth-first numbering, edge e leads to node e+1 (the root is node 0 and has no incoming
+    // edge). The two implementations only differ in where the edges are stored, and step() is
+    // duplicated in both so that neither pays for the indirection of the other when walking.
+    private sealed class Edges {
+        abstract val edgeCount: Int
+        abstract fun firstEdge(node: Int): Int
+        abstract fun label(edge: Int): Char
+        abstract fun step(node: Int, c: Char): Int
+    }
+
+    private class ArrayEdges(
+        private val firstEdge: IntArray,
+        private val labels: CharArray,
+    ) : Edges() {
+        override val edgeCount get() = labels.size
+        override fun firstEdge(node: Int) = firstEdge[node]
+        override fun label(edge: Int) = labels[edge]
+
+        override fun step(node: Int, c: Char): Int {
+            var low = firstEdge[node]
+            var high = firstEdge[node + 1] - 1
+            while (low <= high) {
+                val mid = (low + high) ushr 1
+                val label = labels[mid]
+                if (label < c) {
+                    low = mid + 1
+                } else if (label > c) {
+                    high = mid - 1
+                } else {
+                    return mid + 1
+                }
+            }
+            return NO_NODE
+        }
+    }
+
+    private class BufferEdges(
+        private val firstEdge: IntBuffer,
+        private val labels: CharBuffer,
+    ) : Edges() {
+        override val edgeCount get() = labels.limit()
+        override fun firstEdge(node: Int) = firstEdge.get(node)
+        override fun label(edge: Int) = labels.get(edge)
+
+        override fun step(node: Int, c: Char): Int {
+            var low = firstEdge.get(node)
+            var high = firstEdge.get(node + 1) - 1
+            while (low <= high) {
+                val mid = (low + high) ushr 1
+                val label = labels.get(mid)
+                if (label < c) {
+                    low = mid + 1
+                } else if (label > c) {
+                    high = mid - 1
+                } else {
+                    return mid + 1
+                }
+            }
+            return NO_NODE
+        }
+    }
+
+    private class BuilderNode {
+        val children = TreeMap<Char, BuilderNode>()
+        var value: Any? = null
+    }
+
+    companion object {
+        const val ROOT = 0
+        const val NO_NODE = -1
+
+        /**
+         * @param entries the strings to put in the trie, along with their values
+         * @return an immutable trie containing exactly the provided entries
+         */
+        fun <T : Any> of(entries: Map<String, T>): CharTrie<T> {
+            val root = BuilderNode()
+            for ((key, value) in entries) {
+                var node = root
+                for (c in key) {
+                    node = node.children.getOrPut(c) { BuilderNode() }
+                }
+                node.value = value
+            }
+
+            // number nodes in breadth-first order, so that the children of each node are contiguous
+            val order = ArrayList<BuilderNode>()
+            order.add(root)
+            var edgeCount = 0
+            var i = 0
+            while (i < order.size) {
+                edgeCount += order[i].children.size
+                order.addAll(order[i].children.values)
+                ++i
+            }
+
+            val firstEdge = IntArray(order.size + 1)
+            val edgeLabels = CharArray(edgeCount)
+            val values = arrayOfNulls<Any>(order.size)
+            var edge = 0
+            for ((n, node) in order.withIndex()) {
+                firstEdge[n] = edge
+                values[n] = node.value
+                for ((label, _) in node.children) { // TreeMap iterates sorted by label
+                    edgeLabels[edge] = label
+                    ++edge
+                }
+            }
+            firstEdge[order.size] = edge
+
+            return CharTrie(ArrayEdges(firstEdge, edgeLabels), values)
+        }
+
+        /**
+         * @param input the input to read from; if it is a [ByteBufferDataInput], the edges are not
+         * copied but viewed in place in its buffer
+         * @param readValue reads a value of the trie from the input, see [write]
+         * @return the trie written with [write]
+         */
+        fun <T : Any> read(input: DataInputStream, readValue: () -> T): CharTrie<T> {
+            val nodeCount = input.readInt()
+            val edgeCount = input.readInt()
+            val edges = if (input is ByteBufferDataInput) {
+                BufferEdges(input.intView(nodeCount + 1), input.charView(edgeCount))
+            } else {
+                ArrayEdges(
+                    IntArray(nodeCount + 1) { input.readInt() },
+                    CharArray(edgeCount) { input.readChar() },
+                )
+            }
+            val values = arrayOfNulls<Any>(nodeCount)
+            for (n in 0 until nodeCount) {
+                if (input.readBoolean()) {
+                    values[n] = readValue()
+                }
+            }
+            return CharTrie(edges, values)
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.dicio.numbers.parser.lexer
+
+/**
+ * An immutable set of code points, compiled from the code points of a string, which can be
+ * queried in constant time and without allocating anything. Code points in the Basic Multilingual
+ * Plane are stored in a bitmap, while the (rare) supplementary code points are stored in a sorted
+ * array and looked up with binary search.
+ *
+ * @param codePoints the code points that should be in the set
+ */
+internal class CodePointSet(codePoints: IntArray) {
+    private val bmp = LongArray((Character.MAX_VALUE.code + 1) / Long.SIZE_BITS)
+    private val supplementary: IntArray
+
+    /**
+     * @param codePoints the string whose code points should be in the set
+     */
+    constructor(codePoints: String) : this(codePoints.codePoints().toArray())
+
+    init {
+        val supplementaryList = ArrayList<Int>()
+        for (codePoint in codePoints) {
+            if (codePoint <= Character.MAX_VALUE.code) {
+                bmp[codePoint ushr 6] = bmp[codePoint ushr 6] or (1L shl codePoint)
+            } else {
+                supplementaryList.add(codePoint)
+            }
+        }
+        supplementary = supplementaryList.distinct().sorted().toIntArray()
+    }
+
+    /**
+     * @return the code points in this set, in increasing order, which can be passed to the
+     * constructor to build an equal set
+     */
+    fun toCodePoints(): IntArray {
+        val codePoints = ArrayList<Int>()
+        for (codePoint in 0..Character.MAX_VALUE.code) {
+            if (codePoint in this) {
+                codePoints.add(codePoint)
+            }
+        }
+        return (codePoints + supplementary.toList()).toIntArray()
+    }
+
+    operator fun contains(codePoint: Int): Boolean {
+        return if (codePoint <= Character.MAX_VALUE.code) {
+            // shl only considers the lowest 6 bits of codePoint, i.e. the index inside the long
+            (bmp[codePoint ushr 6] and (1L shl codePoint)) != 0L
+        } else {
+            supplementary.binarySearch(codePoint) >= 0
+        }
+    }
+}
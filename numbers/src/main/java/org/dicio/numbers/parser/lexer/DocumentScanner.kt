@@ -0,0 +1,375 @@
+package org.dicio.numbers.parser.lexer
+
+import java.util.BitSet
+
+/**
+ * Finds the few parts of a long document around which an extractor could find something, so that
+ * only those parts need to be tokenized and scanned. An Aho-Corasick automaton is built from all
+ * of the surface forms in the tokenizer dictionary whose tokens are in [firstSet] (along with the
+ * words and word prefixes of [firstSet]), and is run once over the whole normalized document. Each
+ * occurrence of a surface form where a token starts, and each digit, is a candidate, and
+ * [tokenizeWindows] then tokenizes only the text around the candidates.
+ *
+ * The candidates are a superset of the positions of the tokens in [firstSet], since an occurrence
+ * of a surface form is accepted as long as the rest of its word is a plural ending, and compound
+ * word pieces are accepted anywhere inside words, like the tokenizer would look them up.
+ */
+internal class DocumentScanner(
+    private val tokenizer: Tokenizer,
+    private val firstSet: FirstSet,
+    private val spaces: CodePointSet,
+    private val charactersAsWord: CodePointSet,
+    private val dictionary: CharTrie<LexicalEntry>,
+    private val reversedPluralEndings: CharTrie<Int>,
+    compoundWordPieceTrie: CharTrie<Int>,
+) {
+    // the characters appearing in the surface forms, sorted, whose symbols are their index + 1,
+    // while all other characters are the symbol 0; ASCII characters are looked up in asciiSymbols
+    private val alphabet: CharArray
+    private val asciiSymbols = IntArray(ASCII_SIZE)
+    // the KIND_* of each ASCII character, to avoid looking up the sets of the tokenizer
+    private val asciiKinds = IntArray(ASCII_SIZE) { kindOf(it) }
+    // the transitions of the automaton, i.e. the node reached from node n with symbol a is
+    // transitions[n * (alphabet.size + 1) + a], with the failure links already followed
+    private val transitions: IntArray
+    // the failure links of the automaton, i.e. the node of the longest proper suffix of the string
+    // leading to each node which is also a prefix of a surface form
+    private val failure: IntArray
+    // the node itself if it is the end of a surface form, otherwise the nearest node along the
+    // failure links that is, or NO_NODE if there is none; this allows listing all of the surface
+    // forms ending at a position without walking all of the failure links
+    private val output: IntArray
+    // the PATTERN_* flags of the surface form ending at each node, telling where it can be matched
+    private val flags: IntArray
+    // the length of the string leading to each node
+    private val depth: IntArray
+    // whether some surface forms can be found in the middle of tokens, see PATTERN_ANYWHERE
+    private val hasAnywherePatterns: Boolean
+    // the characters as word (except supplementary ones) whose tokens are in the first set
+    private val charactersAsWordInFirstSet = CodePointSet(
+        charactersAsWord.toCodePoints()
+            .filter { it <= Char.MAX_VALUE.code }
+            .filter { isCharacterAsWordInFirstSet(it.toChar().toString(), 0) }
+            .toIntArray()
+    )
+
+    init {
+        require(!firstSet.any) { "A document scanner can't skip anything with FirstSet.ANY" }
+
+        val surfaceForms = HashMap<String, Int>()
+        val addSurfaceForm = { surfaceForm: String, flags: Int ->
+            if (surfaceForm.isNotEmpty()) {
+                surfaceForms.merge(surfaceForm, flags, Int::or)
+            }
+        }
+
+        // visit the whole dictionary to find the words whose tokens are in the first set
+        val key = StringBuilder()
+        fun visit(node: Int) {
+            if (dictionary.valueAt(node)?.isIn(firstSet) == true) {
+                addSurfaceForm(
+                    key.toString(),
+                    if (compoundWordPieceTrie[key] == null) PATTERN_WORD else PATTERN_ANYWHERE
+                )
+            }
+            dictionary.forEachChild(node) { c, child ->
+                key.append(c)
+                visit(child)
+                key.setLength(key.length - 1)
+            }
+        }
+        visit(CharTrie.ROOT)
+
+        // words and prefixes are compared with the token values, which for the tokens of
+        // compound word pieces are the pieces themselves, wherever they are in the word
+        for (word in firstSet.words) {
+            addSurfaceForm(
+                normalize(word),
+                if (compoundWordPieceTrie[word] == null) PATTERN_WORD else PATTERN_ANYWHERE
+            )
+        }
+        for (prefix in firstSet.wordPrefixes) {
+            var node = CharTrie.ROOT
+            for (c in prefix) {
+                node = if (node == CharTrie.NO_NODE) node else compoundWordPieceTrie.step(node, c)
+            }
+            addSurfaceForm(
+                normalize(prefix),
+                if (node == CharTrie.NO_NODE) PATTERN_PREFIX else PATTERN_ANYWHERE
+            )
+        }
+
+        val patterns = CharTrie.of(surfaceForms)
+        hasAnywherePatterns = surfaceForms.values.any { (it and PATTERN_ANYWHERE) != 0 }
+        alphabet = surfaceForms.keys.flatMap { it.asIterable() }.distinct().sorted().toCharArray()
+        for ((index, c) in alphabet.withIndex()) {
+            if (c.code < ASCII_SIZE) {
+                asciiSymbols[c.code] = index + 1
+            }
+        }
+
+        val symbolCount = alphabet.size + 1
+        transitions = IntArray(patterns.nodeCount * symbolCount)
+        failure = IntArray(patterns.nodeCount)
+        output = IntArray(patterns.nodeCount)
+        flags = IntArray(patterns.nodeCount)
+        depth = IntArray(patterns.nodeCount)
+        output[CharTrie.ROOT] = CharTrie.NO_NODE
+        // nodes are numbered in breadth-first order, so the transitions of the failure link of
+        // each node (which is always shallower) are known before computing those of the node
+        for (node in 0 until patterns.nodeCount) {
+            val fallback = failure[node] * symbolCount
+            for (symbol in 0 until symbolCount) {
+                transitions[node * symbolCount + symbol] =
+                    if (node == CharTrie.ROOT) CharTrie.ROOT else transitions[fallback + symbol]
+            }
+            patterns.forEachChild(node) { c, child ->
+                val symbol = symbolOf(c)
+                flags[child] = patterns.valueAt(child) ?: 0
+                depth[child] = depth[node] + 1
+                failure[child] =
+                    if (node == CharTrie.ROOT) CharTrie.ROOT else transitions[fallback + symbol]
+                output[child] =
+                    if (patterns.valueAt(child) != null) child else output[failure[child]]
+                transitions[node * symbolCount + symbol] = child
+            }
+        }
+    }
+
+    /**
+     * Tokenizes only the windows of text around the candidates in [document]. The tokens of each
+     * window are exactly the tokens that [Tokenizer.tokenize] would produce for that part of the
+     * whole document, and refer to positions in the whole document. Windows start one word before
+     * the word of their first candidate, and end only after two tokens that are neither in
+     * [firstSet] nor have any category, number or duration, so that any object started inside a
+     * window also ends inside it, before the tokens of the next window. Windows that would overlap
+     * are merged.
+     *
+     * @param document the document to scan, usually much longer than an utterance
+     * @return the tokens of all of the windows, in the order of the document
+     */
+    fun tokenizeWindows(document: String): List<Token> {
+        val tokens = ArrayList<Token>()
+        val candidates = candidates(document)
+        var end = 0 // the end of the previous window
+        var candidate = candidates.nextSetBit(0)
+        while (candidate >= 0) {
+            val windowTokens = tokens.size
+            var windowEnd = maxOf(end, previousChunkStart(document, candidate))
+            do {
+                val candidateChunkEnd = tokenizer.chunkEnd(document, candidate)
+                while (windowEnd < document.length && (windowEnd < candidateChunkEnd
+                            || !endsWithInertTokens(tokens, windowTokens))
+                ) {
+                    // chunks of text separated by spaces can be tokenized independently
+                    val chunkEnd = tokenizer.chunkEnd(document, windowEnd)
+                    tokenizer.tokenize(document, windowEnd, chunkEnd, tokens)
+                    windowEnd = chunkEnd
+                }
+                candidate = candidates.nextSetBit(windowEnd)
+            } while (candidate >= 0 && previousChunkStart(document, candidate) <= windowEnd)
+            end = windowEnd
+        }
+        return tokens
+    }
+
+    /**
+     * @return the positions in [document] of the candidates, i.e. the start of the tokens in
+     * which a surface form in the automaton can be looked up by the tokenizer, and of the numbers
+     */
+    fun candidates(document: String): BitSet {
+        val candidates = BitSet()
+        // the current token, normalized one character at a time; the automaton is restarted at
+        // each token, since the tokenizer only looks up surface forms inside tokens
+        var token = CharArray(16)
+        var tokenLength = 0
+        var tokenStart = 0
+        // the lengths of the prefixes of the current token which are surface forms of whole words,
+        // to be accepted only if the rest of the token turns out to be a plural ending
+        var words = IntArray(4)
+        var wordCount = 0
+
+        val symbolCount = alphabet.size + 1
+        var node = CharTrie.ROOT
+        var previousKind = KIND_SPACE
+        for (i in document.indices) {
+            val c = document[i]
+            val ascii = c.code < ASCII_SIZE
+            val kind = if (ascii) asciiKinds[c.code] else kindOf(document.codePointAt(i))
+            // mirrors the rules with which Tokenizer.tokenize splits words
+            val startsToken = kind != KIND_SPACE && (i == 0 || kind == KIND_CHARACTER_AS_WORD
+                    || previousKind == KIND_SPACE || previousKind == KIND_CHARACTER_AS_WORD
+                    || (kind == KIND_DIGIT) != (previousKind == KIND_DIGIT))
+            if (startsToken || (kind == KIND_SPACE && previousKind != KIND_SPACE)) {
+                if (isAnyWordAccepted(token, tokenLength, words, wordCount)) {
+                    candidates.set(tokenStart)
+                }
+                tokenLength = 0
+                wordCount = 0
+                node = CharTrie.ROOT
+            }
+            previousKind = kind
+            if (kind == KIND_SPACE) {
+                continue
+            } else if (startsToken) {
+                tokenStart = i
+                if (kind == KIND_DIGIT || (kind == KIND_CHARACTER_AS_WORD
+                            && isCharacterAsWordInFirstSet(document, c, i))
+                ) {
+                    candidates.set(i)
+                }
+            }
+
+            if (node == CharTrie.NO_NODE && wordCount == 0) {
+                continue // nothing else can be found in this token, skip the rest of it
+            }
+
+            // ASCII characters only need to be made lowercase, without creating any string
+            val normalizedChars = if (ascii) null else WordNormalizer.normalize(c)
+            for (k in 0 until (normalizedChars?.length ?: 1)) {
+                val normalizedChar = normalizedChars?.get(k) ?: c.lowercaseChar()
+                if (tokenLength == token.size) {
+                    token = token.copyOf(2 * tokenLength)
+                }
+                token[tokenLength++] = normalizedChar
+                if (node == CharTrie.NO_NODE) {
+                    continue // only collecting the characters of a possible plural ending
+                }
+
+                node = transitions[node * symbolCount + symbolOf(normalizedChar)]
+                if (!hasAnywherePatterns && depth[node] != tokenLength) {
+                    // the token does not start with the prefix of a surface form anymore, and
+                    // only the surface forms of compound word pieces can be in the middle
+                    node = CharTrie.NO_NODE
+                    continue
+                }
+                var match = output[node]
+                while (match != CharTrie.NO_NODE) {
+                    if ((flags[match] and PATTERN_ANYWHERE) != 0) {
+                        candidates.set(tokenStart)
+                    } else if (depth[match] == tokenLength) { // i.e. at the start of the token
+                        if ((flags[match] and PATTERN_PREFIX) != 0) {
+                            candidates.set(tokenStart)
+                        } else {
+                            if (wordCount == words.size) {
+                                words = words.copyOf(2 * wordCount)
+                            }
+                            words[wordCount++] = tokenLength
+                        }
+                    }
+                    match = output[failure[match]]
+                }
+            }
+        }
+
+        if (isAnyWordAccepted(token, tokenLength, words, wordCount)) {
+            candidates.set(tokenStart)
+        }
+        return candidates
+    }
+
+    private fun kindOf(codePoint: Int): Int {
+        return when {
+            codePoint in spaces -> KIND_SPACE
+            codePoint in charactersAsWord -> KIND_CHARACTER_AS_WORD
+            Character.isDigit(codePoint) -> KIND_DIGIT
+            else -> KIND_OTHER
+        }
+    }
+
+    private fun symbolOf(c: Char): Int {
+        return if (c.code < ASCII_SIZE) {
+            asciiSymbols[c.code]
+        } else {
+            // binarySearch returns a negative number if not found, i.e. the symbol 0 after max
+            maxOf(alphabet.binarySearch(c) + 1, 0)
+        }
+    }
+
+    // whether any of the first wordCount prefixes of the token, whose lengths are in words, is
+    // followed by either nothing or a plural ending until the end of the token
+    private fun isAnyWordAccepted(
+        token: CharArray,
+        tokenLength: Int,
+        words: IntArray,
+        wordCount: Int,
+    ): Boolean {
+        for (w in 0 until wordCount) {
+            if (words[w] == tokenLength) {
+                return true
+            }
+
+            var node = CharTrie.ROOT
+            for (i in tokenLength - 1 downTo words[w]) {
+                node = reversedPluralEndings.step(node, token[i])
+                if (node == CharTrie.NO_NODE) {
+                    break
+                }
+            }
+            if (node != CharTrie.NO_NODE && reversedPluralEndings.valueAt(node) != null) {
+                return true
+            }
+        }
+        return false
+    }
+
+    private fun isCharacterAsWordInFirstSet(document: String, c: Char, i: Int): Boolean {
+        return if (c.isSurrogate()) {
+            isCharacterAsWordInFirstSet(document, i)
+        } else {
+            c.code in charactersAsWordInFirstSet
+        }
+    }
+
+    private fun isCharacterAsWordInFirstSet(document: String, i: Int): Boolean {
+        // characters as word are looked up without being normalized
+        return dictionary[document, i, i + 1]?.isIn(firstSet) == true || (firstSet.hasWords
+                && firstSet.containsWord(Token(document, i, i + 1, i + 1, null)))
+    }
+
+    // whether the window whose first token is at index windowTokens ends with two inert tokens
+    private fun endsWithInertTokens(tokens: List<Token>, windowTokens: Int): Boolean {
+        return tokens.size - windowTokens >= 2 && firstSet.isInert(tokens[tokens.size - 1])
+                && firstSet.isInert(tokens[tokens.size - 2])
+    }
+
+    private fun isSpace(document: String, i: Int): Boolean {
+        return document.codePointAt(i) in spaces
+    }
+
+    // the start of the chunk of non-space text before the one containing position i, or 0
+    private fun previousChunkStart(document: String, i: Int): Int {
+        var start = i
+        while (start > 0 && !isSpace(document, start - 1)) {
+            --start
+        }
+        while (start > 0 && isSpace(document, start - 1)) {
+            --start
+        }
+        while (start > 0 && !isSpace(document, start - 1)) {
+            --start
+        }
+        return start
+    }
+
+    companion object {
+        private const val PATTERN_WORD = 1 // the whole word, maybe followed by a plural ending
+        private const val PATTERN_PREFIX = 2 // the beginning of a word
+        private const val PATTERN_ANYWHERE = 4 // anywhere, even in the middle of a word
+
+        private const val ASCII_SIZE = 0x80
+
+        private const val KIND_SPACE = 0
+        private const val KIND_CHARACTER_AS_WORD = 1
+        private const val KIND_DIGIT = 2
+        private const val KIND_OTHER = 3
+
+        private fun normalize(word: String): String {
+            val builder = StringBuilder(word.length)
+            for (c in word) {
+                builder.append(WordNormalizer.normalize(c))
+            }
+            return builder.toString()
+        }
+    }
+}
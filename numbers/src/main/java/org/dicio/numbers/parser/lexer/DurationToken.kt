@@ -3,12 +3,35 @@ package org.dicio.numbers.parser.lexer
 import org.dicio.numbers.unit.Duration
 
 class DurationToken internal constructor(
-    value: String,
-    spacesFollowing: String,
+    source: String,
+    start: Int,
+    end: Int,
+    spacesEnd: Int,
+    value: String?,
+    // the shared duration data of the word
+    override val durationMapping: LexicalEntry.DurationMapping
+) : Token(source, start, end, spacesEnd, value) {
+
+    internal constructor(
+        value: String,
+        spacesFollowing: String,
+        durationCategory: String,
+        durationMultiplier: Duration,
+        isRestrictedAfterNumber: Boolean
+    ) : this(
+        value + spacesFollowing, 0, value.length, value.length + spacesFollowing.length, value,
+        LexicalEntry.DurationMapping(durationCategory, durationMultiplier, isRestrictedAfterNumber)
+    )
+
     // this is basically the duration multiplier, but in plain text
-    val durationCategory: String,
-    val durationMultiplier: Duration,
+    val durationCategory: String
+        get() = durationMapping.durationCategory
+
+    val durationMultiplier: Duration
+        get() = durationMapping.durationMultiplier
+
     val isRestrictedAfterNumber: Boolean
-) : Token(value, spacesFollowing) {
+        get() = durationMapping.restrictedAfterNumber
+
     override val asDurationToken = this
 }
@@ -0,0 +1,145 @@
+package org.dicio.numbers.parser.lexer
+
+import java.util.Objects
+
+/**
+ * The tokens at which an extractor can start a match, i.e. the tokens on which it might return
+ * something other than null. A token is in the set if it has any of the [categories], or it is a
+ * duration word (if [withDurationWords] was used), or its value is one of the [words] or starts
+ * with one of the [wordPrefixes]. Scanning an utterance for matches (see
+ * [TokenStream.indexOfFirstSet]) then only needs to call the extractor on the tokens in the set,
+ * and jumps over all of the others just by looking at their category bits.
+ *
+ * A first set must never be smaller than the real one, otherwise matches would be missed: when
+ * in doubt, add more. [ANY] contains all tokens and is always correct.
+ */
+class FirstSet private constructor(
+    // the bits of the categories, as in Token.firstCategoryBits
+    internal val categoryBits: Long,
+    internal val durationWords: Boolean,
+    internal val words: Array<String>,
+    internal val wordPrefixes: Array<String>,
+    // whether this set contains all tokens, regardless of the other fields
+    internal val any: Boolean,
+) {
+    /**
+     * @param categories the ids of some categories, which must be one of the constants in
+     * [Categories], since only those are stored in the bitsets that tokens are scanned with
+     * @return a first set also containing the tokens with any of [categories]
+     */
+    fun withCategories(vararg categories: Int): FirstSet {
+        var bits = categoryBits
+        for (category in categories) {
+            require(category in 0 until Long.SIZE_BITS) {
+                "Only predefined categories can be part of a first set: $category"
+            }
+            bits = bits or (1L shl category)
+        }
+        return FirstSet(bits, durationWords, words, wordPrefixes, any)
+    }
+
+    /**
+     * @return a first set also containing the duration words, e.g. "hour" or "ms"
+     */
+    fun withDurationWords(): FirstSet {
+        return FirstSet(categoryBits, true, words, wordPrefixes, any)
+    }
+
+    /**
+     * @param words words that are checked with [Token.isValue], i.e. ignoring case
+     * @return a first set also containing the tokens whose value is any of [words]
+     */
+    fun withWords(vararg words: String): FirstSet {
+        return FirstSet(
+            categoryBits, durationWords, arrayOf(*this.words, *words), wordPrefixes, any
+        )
+    }
+
+    /**
+     * @param prefixes the prefixes, which are compared case-sensitively with the token value
+     * @return a first set also containing the tokens whose value starts with any of [prefixes]
+     */
+    fun withWordPrefixes(vararg prefixes: String): FirstSet {
+        return FirstSet(
+            categoryBits, durationWords, words, arrayOf(*wordPrefixes, *prefixes), any
+        )
+    }
+
+    /**
+     * @return the union of this first set and [other], e.g. for extractors that try multiple
+     * alternatives at the same position
+     */
+    operator fun plus(other: FirstSet): FirstSet {
+        return FirstSet(
+            categoryBits or other.categoryBits,
+            durationWords || other.durationWords,
+            arrayOf(*words, *other.words),
+            arrayOf(*wordPrefixes, *other.wordPrefixes),
+            any || other.any,
+        )
+    }
+
+    internal val hasWords: Boolean
+        get() = words.isNotEmpty() || wordPrefixes.isNotEmpty()
+
+    /**
+     * Only checks the words and the word prefixes, the categories and the duration words are
+     * checked directly in the arrays of [TokenStream].
+     */
+    internal fun containsWord(token: Token): Boolean {
+        for (word in words) {
+            if (token.isValue(word)) {
+                return true
+            }
+        }
+        if (wordPrefixes.isNotEmpty()) {
+            val value = token.value
+            for (prefix in wordPrefixes) {
+                if (value.startsWith(prefix)) {
+                    return true
+                }
+            }
+        }
+        return false
+    }
+
+    /**
+     * Whether no extractor with this first set could ever consume [token], except for peeking at
+     * it: the token is not in this set and has no category, number or duration. Extractors consume
+     * at most one inert token in the middle of an object, never two in a row.
+     */
+    internal fun isInert(token: Token): Boolean {
+        return token !is MatchedToken && token !is DurationToken && !containsWord(token)
+    }
+
+    // first sets are compared by content, so that e.g. unions built on the fly can be used as keys
+    override fun equals(other: Any?): Boolean {
+        return other is FirstSet
+                && categoryBits == other.categoryBits
+                && durationWords == other.durationWords
+                && words.contentEquals(other.words)
+                && wordPrefixes.contentEquals(other.wordPrefixes)
+                && any == other.any
+    }
+
+    override fun hashCode(): Int {
+        return Objects.hash(
+            categoryBits, durationWords, words.contentHashCode(), wordPrefixes.contentHashCode(),
+            any
+        )
+    }
+
+    companion object {
+        /**
+         * The first set containing all tokens, for extractors that do not declare one.
+         */
+        @JvmField
+        val ANY = FirstSet(0L, false, arrayOf(), arrayOf(), true)
+
+        /**
+         * The empty first set, to be extended with the `with*` functions.
+         */
+        @JvmField
+        val NONE = FirstSet(0L, false, arrayOf(), arrayOf(), false)
+    }
+}
@@ -0,0 +1,138 @@
+package org.dicio.numbers.parser.lexer
+
+import org.dicio.numbers.unit.Duration
+import org.dicio.numbers.unit.Number
+import java.io.DataInputStream
+import java.io.DataOutputStream
+
+/**
+ * The immutable lexical data of a word in the tokenizer dictionary (i.e. its categories, number
+ * and duration), which is created once when loading the tokenizer configuration and then shared
+ * by all of the tokens of that word. The per-occurrence data (i.e. the original text of the word
+ * and the spaces following it) is instead stored in the tokens, so that tokenizing a dictionary
+ * word only allocates the token itself.
+ *
+ * @param categories the bitset of the categories in word_matches or number_mappings, see
+ * [Categories.bitsetOf], or null if the word only appears in duration_words
+ * @param number the number in number_mappings, or null if the word is not there
+ * @param duration the duration in duration_words, or null if the word is not there
+ */
+internal class LexicalEntry(
+    private val categories: LongArray?,
+    private val number: Number?,
+    private val duration: DurationMapping?
+) {
+    init {
+        require(categories != null || duration != null) {
+            "A lexical entry needs either categories or a duration"
+        }
+    }
+
+    /**
+     * The parameters describe this occurrence of the word, see [Token].
+     * @return a [NumberToken] if the word has a number, otherwise a [MatchedToken] if it has
+     * categories, otherwise a [DurationToken]
+     */
+    fun createToken(source: String, start: Int, end: Int, spacesEnd: Int, value: String?): Token {
+        return if (categories == null) {
+            duration!!.createDurationToken(source, start, end, spacesEnd, value)
+        } else if (number == null) {
+            MatchedToken(source, start, end, spacesEnd, value, categories, duration)
+        } else {
+            NumberToken(source, start, end, spacesEnd, value, categories, number, duration)
+        }
+    }
+
+    /**
+     * @return whether the tokens of this word are in [firstSet] because of their categories or
+     * duration, without considering the words of [firstSet]
+     */
+    fun isIn(firstSet: FirstSet): Boolean {
+        return firstSet.any
+                || (categories != null && categories.isNotEmpty()
+                && (categories[0] and firstSet.categoryBits) != 0L)
+                || (firstSet.durationWords && duration != null)
+    }
+
+    /**
+     * Writes this entry in a binary form that can be read back with [read].
+     * @param bitsetIndex returns the index in the snapshot of a category bitset
+     */
+    fun write(output: DataOutputStream, bitsetIndex: (LongArray) -> Int) {
+        output.writeInt(if (categories == null) -1 else bitsetIndex(categories))
+        output.writeBoolean(number != null)
+        if (number != null) {
+            output.writeBoolean(number.isDecimal)
+            if (number.isDecimal) {
+                output.writeDouble(number.decimalValue())
+            } else {
+                output.writeLong(number.integerValue())
+            }
+            output.writeBoolean(number.isOrdinal)
+        }
+        output.writeBoolean(duration != null)
+        if (duration != null) {
+            output.writeUTF(duration.durationCategory)
+            output.writeLong(duration.durationMultiplier.nanos)
+            output.writeLong(duration.durationMultiplier.days)
+            output.writeLong(duration.durationMultiplier.months)
+            output.writeLong(duration.durationMultiplier.years)
+            output.writeBoolean(duration.restrictedAfterNumber)
+        }
+    }
+
+    /**
+     * The immutable data of a word in duration_words.
+     *
+     * @param durationCategory the duration multiplier, but in plain text, e.g. "1 SECONDS"
+     * @param durationMultiplier the duration corresponding to the word
+     * @param restrictedAfterNumber whether the word is in duration_restrict_after_number
+     */
+    class DurationMapping(
+        val durationCategory: String,
+        val durationMultiplier: Duration,
+        val restrictedAfterNumber: Boolean
+    ) {
+        fun createDurationToken(
+            source: String,
+            start: Int,
+            end: Int,
+            spacesEnd: Int,
+            value: String?
+        ): DurationToken {
+            return DurationToken(source, start, end, spacesEnd, value, this)
+        }
+    }
+
+    companion object {
+        /**
+         * @param bitsets the category bitsets in the snapshot, referenced by index by the entries
+         * @return the entry written with [write]
+         */
+        fun read(input: DataInputStream, bitsets: List<LongArray>): LexicalEntry {
+            val bitsetIndex = input.readInt()
+            val categories = if (bitsetIndex < 0) null else bitsets[bitsetIndex]
+            val number = if (input.readBoolean()) {
+                if (input.readBoolean()) {
+                    Number(input.readDouble(), input.readBoolean())
+                } else {
+                    Number(input.readLong(), input.readBoolean())
+                }
+            } else {
+                null
+            }
+            val duration = if (input.readBoolean()) {
+                DurationMapping(
+                    input.readUTF(),
+                    Duration(
+                        input.readLong(), input.readLong(), input.readLong(), input.readLong()
+                    ),
+                    input.readBoolean()
+                )
+            } else {
+                null
+            }
+            return LexicalEntry(categories, number, duration)
+        }
+    }
+}
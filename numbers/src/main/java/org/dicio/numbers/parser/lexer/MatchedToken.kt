@@ -1,20 +1,39 @@
 package org.dicio.numbers.parser.lexer
 
 open class MatchedToken internal constructor(
-    value: String,
-    spacesFollowing: String,
-    private val categories: Set<String>
-) : Token(value, spacesFollowing) {
+    source: String,
+    start: Int,
+    end: Int,
+    spacesEnd: Int,
+    value: String?,
+    // the bitset of the ids of the categories of this token, see Categories.bitsetOf
+    private val categories: LongArray,
+    // the shared duration data of the word, if the word is also in duration_words
+    final override val durationMapping: LexicalEntry.DurationMapping?
+) : Token(source, start, end, spacesEnd, value) {
+    // only created if an extractor actually looks for a duration in this token, which is rare
     private var durationTokenMatch: DurationToken? = null
 
-    fun setDurationTokenMatch(durationTokenMatch: DurationToken?) {
-        this.durationTokenMatch = durationTokenMatch
-    }
+    internal constructor(value: String, spacesFollowing: String, categories: Set<String>) : this(
+        value + spacesFollowing, 0, value.length, value.length + spacesFollowing.length, value,
+        Categories.bitsetOf(categories), null
+    )
 
-    override fun hasCategory(category: String): Boolean {
-        return categories.contains(category)
+    override fun hasCategory(category: Int): Boolean {
+        return Categories.bitsetContains(categories, category)
     }
 
+    override val firstCategoryBits: Long
+        get() = if (categories.isEmpty()) 0L else categories[0]
+
     override val asDurationToken: DurationToken?
-        get() = durationTokenMatch
+        get() {
+            val durationMapping = durationMapping
+            if (durationTokenMatch == null && durationMapping != null) {
+                durationTokenMatch = durationMapping.createDurationToken(
+                    source, start, end, spacesEnd, value
+                )
+            }
+            return durationTokenMatch
+        }
 }
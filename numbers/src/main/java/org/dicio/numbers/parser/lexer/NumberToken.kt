@@ -3,11 +3,26 @@ package org.dicio.numbers.parser.lexer
 import org.dicio.numbers.unit.Number
 
 class NumberToken internal constructor(
-    value: String,
-    spacesFollowing: String,
-    categories: Set<String>,
-    override val number: Number
-) : MatchedToken(value, spacesFollowing, categories) {
+    source: String,
+    start: Int,
+    end: Int,
+    spacesEnd: Int,
+    value: String?,
+    categories: LongArray,
+    override val number: Number,
+    durationMapping: LexicalEntry.DurationMapping?
+) : MatchedToken(source, start, end, spacesEnd, value, categories, durationMapping) {
+
+    internal constructor(
+        value: String,
+        spacesFollowing: String,
+        categories: Set<String>,
+        number: Number
+    ) : this(
+        value + spacesFollowing, 0, value.length, value.length + spacesFollowing.length, value,
+        Categories.bitsetOf(categories), number, null
+    )
+
     override fun isNumberEqualTo(integer: Long): Boolean {
         return number.equals(integer)
     }
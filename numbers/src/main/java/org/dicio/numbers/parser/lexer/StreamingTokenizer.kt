@@ -0,0 +1,119 @@
+package org.dicio.numbers.parser.lexer
+
+import java.io.Reader
+
+/**
+ * Tokenizes text read from [reader] one segment at a time, through a buffer of [bufferSize]
+ * characters, so that the whole text never needs to be in memory. Words and numbers are never
+ * split between segments, since segments end only after spaces (and the text after the end of the
+ * last segment stays in the buffer until more text is read).
+ *
+ * Segments end, whenever possible, at the last position in the buffer where the text can be split
+ * without changing what extractors with [firstSet] would find (see [Tokenizer.safeBoundary]), so
+ * that each segment can be extracted from on its own. Only if the whole buffer does not contain
+ * any such position (which never happens with normal text, but always with [FirstSet.ANY]), the
+ * segment ends at the last space in the buffer, or even in the middle of a word longer than the
+ * buffer, and objects crossing that forced split might be found differently.
+ *
+ * The reader is not closed, and positions are [Int]s like everywhere else.
+ */
+internal class StreamingTokenizer(
+    private val tokenizer: Tokenizer,
+    private val reader: Reader,
+    private val firstSet: FirstSet,
+    bufferSize: Int,
+) {
+    private val buffer = CharArray(bufferSize)
+    private var length = 0 // the number of characters in the buffer
+    private var offset = 0 // the position in the whole text of the first character in the buffer
+    private var endOfInput = false
+
+    init {
+        require(bufferSize >= MIN_BUFFER_SIZE) {
+            "The buffer must contain at least $MIN_BUFFER_SIZE characters: $bufferSize"
+        }
+    }
+
+    /**
+     * A part of the text along with its tokens, which are exactly the tokens [Tokenizer.tokenize]
+     * would produce for that part of the whole text, except that their positions are relative to
+     * [source] (which might go on after the end of the segment).
+     *
+     * @param source the text the tokens point to
+     * @param offset the position in the whole text of the first character of [source]
+     * @param tokens the tokens of the segment
+     */
+    class Segment(val source: String, val offset: Int, val tokens: List<Token>)
+
+    /**
+     * Reads text from the reader until the buffer is full or the input ends, and tokenizes the
+     * longest segment at the beginning of the buffer that can be extracted from on its own.
+     *
+     * @return the next segment, or null if the whole text has been tokenized
+     */
+    fun nextSegment(): Segment? {
+        fill()
+        if (length == 0) {
+            return null
+        }
+
+        val source = String(buffer, 0, length)
+        // the last chunk of non-space text might continue after the end of the buffer
+        var end = if (endOfInput) length else tokenizer.lastChunkStart(source)
+        if (end == 0) {
+            // a single word longer than the whole buffer, which has to be split somewhere
+            end = if (Character.isHighSurrogate(buffer[length - 1])) length - 1 else length
+        }
+        val tokens = ArrayList<Token>()
+        tokenizer.tokenize(source, 0, end, tokens)
+
+        val segmentTokens = if (endOfInput) tokens else tokens.subList(0, safeTokenCount(tokens))
+        val segmentEnd = if (segmentTokens.size == tokens.size) {
+            end
+        } else {
+            segmentTokens[segmentTokens.size - 1].spacesEnd
+        }
+
+        // keep the text after the segment, to be tokenized along with the text read next
+        System.arraycopy(buffer, segmentEnd, buffer, 0, length - segmentEnd)
+        length -= segmentEnd
+        val segmentOffset = offset
+        offset += segmentEnd
+        return Segment(source, segmentOffset, segmentTokens)
+    }
+
+    private fun fill() {
+        while (!endOfInput && length < buffer.size) {
+            val read = reader.read(buffer, length, buffer.size - length)
+            if (read < 0) {
+                endOfInput = true
+            } else {
+                length += read
+            }
+        }
+    }
+
+    /**
+     * @return the number of tokens up to the last position after two inert tokens followed by
+     * spaces, where the text can be split, or the size of [tokens] if there is no such position
+     */
+    private fun safeTokenCount(tokens: List<Token>): Int {
+        if (firstSet.any) {
+            return tokens.size // every token could be part of an object
+        }
+        for (count in tokens.size downTo 2) {
+            val last = tokens[count - 1]
+            if (last.spacesEnd > last.end && firstSet.isInert(last)
+                && firstSet.isInert(tokens[count - 2])
+            ) {
+                return count
+            }
+        }
+        return tokens.size
+    }
+
+    companion object {
+        // the buffer must at least fit a surrogate pair
+        private const val MIN_BUFFER_SIZE = 2
+    }
+}
@@ -2,24 +2,79 @@ package org.dicio.numbers.parser.lexer
 
 import org.dicio.numbers.unit.Number
 
-open class Token internal constructor(@JvmField val value: String, @JvmField var spacesFollowing: String) {
+/**
+ * A word in the tokenized text. Tokens do not copy their text, but just point to a span of the
+ * text they were obtained from (usually the whole utterance): the word goes from [start] to [end],
+ * and the spaces following it go from [end] to [spacesEnd]. [value] and [spacesFollowing] are only
+ * created when needed.
+ */
+open class Token internal constructor(
+    // the text this token was obtained from, usually the whole utterance
+    internal val source: String,
+    @JvmField val start: Int,
+    @JvmField val end: Int,
+    @JvmField val spacesEnd: Int,
+    // the value of the token if already available, or if different from the text in the span
+    // (e.g. for compound word pieces, whose value is the piece in the dictionary)
+    private var cachedValue: String?
+) {
+
+    internal constructor(value: String, spacesFollowing: String) : this(
+        value + spacesFollowing, 0, value.length, value.length + spacesFollowing.length, value
+    )
+
+    val value: String
+        get() {
+            return cachedValue ?: source.substring(start, end).also { cachedValue = it }
+        }
+
+    val spacesFollowing: String
+        get() = source.substring(end, spacesEnd)
 
     fun isValue(value: String?): Boolean {
-        return this.value.equals(value, ignoreCase = true)
+        val cachedValue = cachedValue
+        return if (cachedValue != null) {
+            cachedValue.equals(value, ignoreCase = true)
+        } else {
+            // compare directly with the source, without creating the value string
+            value != null && value.length == end - start
+                    && source.regionMatches(start, value, 0, value.length, ignoreCase = true)
+        }
     }
 
     open fun isNumberEqualTo(integer: Long): Boolean {
         return false // false by default, overridden
     }
 
-    open fun hasCategory(category: String): Boolean {
+    /**
+     * @param category the id of a category, usually one of the constants in [Categories]
+     * @return whether this token has the category
+     */
+    open fun hasCategory(category: Int): Boolean {
         return false // false by default, overridden
     }
 
+    /**
+     * Slower than the overload taking the integer id of the category, prefer that one where
+     * possible.
+     * @param category the name of a category
+     * @return whether this token has the category
+     */
+    fun hasCategory(category: String): Boolean {
+        return hasCategory(Categories.idOf(category))
+    }
+
     open val number: Number? = null
 
     open val asDurationToken: DurationToken? = null // null by default, but overridden
 
+    // the bits of the categories with ids from 0 to 63 (i.e. all of the predefined ones)
+    internal open val firstCategoryBits: Long
+        get() = 0L // no categories by default, overridden
+
+    internal open val durationMapping: LexicalEntry.DurationMapping?
+        get() = null // null by default, overridden
+
 
     companion object {
         private val EMPTY_TOKEN = Token("", "")
@@ -1,11 +1,83 @@
 package org.dicio.numbers.parser.lexer
 
+import org.dicio.numbers.unit.Number
+import java.util.concurrent.atomic.AtomicInteger
 import kotlin.math.max
 
-class TokenStream(private val tokens: List<Token>) {
+/**
+ * The tokens of an utterance, along with the position extractors are currently at. Besides the
+ * token objects, the data that extractors look at most often while looking ahead (the predefined
+ * categories, numbers, durations and spans of the tokens) is copied into parallel arrays indexed
+ * by token position. Functions like [hasCategory] or [isNumberEqualTo] taking an aheadBy offset
+ * thus just access an array, instead of calling virtual methods on a token object.
+ */
+class TokenStream(tokens: List<Token>) {
+    private val tokens: Array<Token> = tokens.toTypedArray()
+    // see Token.firstCategoryBits, categories with higher ids are looked up in the tokens
+    private val firstCategoryBits = LongArray(this.tokens.size)
+    private val numbers = arrayOfNulls<Number>(this.tokens.size)
+    // the values of the numbers in [numbers], either integer or decimal depending on numberFlags
+    private val integerValues = LongArray(this.tokens.size)
+    private val decimalValues = DoubleArray(this.tokens.size)
+    private val numberFlags = ByteArray(this.tokens.size)
+    private val durations = arrayOfNulls<LexicalEntry.DurationMapping>(this.tokens.size)
+    private val starts = IntArray(this.tokens.size)
+    private val ends = IntArray(this.tokens.size)
+    // the bitwise or of all firstCategoryBits, i.e. the predefined categories found anywhere in
+    // the utterance, and whether there is any duration word; see hasCategoryAnywhere()
+    private var categorySummary = 0L
+    private var hasDurations = false
+    // the skip tables built so far by indexOfWithoutCategory, indexed by category id, see
+    // skipTable(); allocated only when first needed
+    private var skipTables: Array<IntArray?>? = null
+    // the results of memoized rules, see memoize(); null if memoization is not enabled
+    private var memo: HashMap<Long, MemoEntry>? = null
+
+    /**
+     * How many times a rule was called through [memoize] on this token stream, including the
+     * calls answered by the memo table.
+     */
+    var ruleCalls: Int = 0
+        private set
+
+    /**
+     * How many times a rule called through [memoize] on this token stream actually ran, i.e. was
+     * not answered by the memo table. Without memoization this is the same as [ruleCalls].
+     */
+    var ruleEvaluations: Int = 0
+        private set
+
     @JvmField
     var position: Int = 0
 
+    /**
+     * The number of tokens in this stream.
+     */
+    val size: Int
+        get() = tokens.size
+
+    init {
+        for ((i, token) in this.tokens.withIndex()) {
+            firstCategoryBits[i] = token.firstCategoryBits
+            val number = token.number
+            if (number != null) {
+                numbers[i] = number
+                if (number.isDecimal) {
+                    decimalValues[i] = number.decimalValue()
+                    numberFlags[i] = NUMBER_DECIMAL
+                } else {
+                    integerValues[i] = number.integerValue()
+                    numberFlags[i] = NUMBER_INTEGER
+                }
+            }
+            durations[i] = token.durationMapping
+            starts[i] = token.start
+            ends[i] = token.end
+            categorySummary = categorySummary or firstCategoryBits[i]
+            hasDurations = hasDurations || durations[i] != null
+        }
+    }
+
     operator fun get(aheadBy: Int): Token {
         val index = position + aheadBy
         if (index < 0 || index >= tokens.size) {
@@ -15,6 +87,119 @@ class TokenStream(private val tokens: List<Token>) {
         return tokens[index]
     }
 
+    /**
+     * Same as `this[aheadBy].hasCategory(category)`, but faster.
+     * @param aheadBy the offset of the token with respect to the current position
+     * @param category the id of a category, usually one of the constants in [Categories]
+     * @return whether the token has the category, or false if there is no such token
+     */
+    fun hasCategory(aheadBy: Int, category: Int): Boolean {
+        val index = position + aheadBy
+        if (index < 0 || index >= tokens.size) {
+            return false
+        } else if (category < Long.SIZE_BITS) {
+            // shl only considers the lowest 6 bits of category, i.e. the index inside the long
+            return category >= 0 && (firstCategoryBits[index] and (1L shl category)) != 0L
+        } else {
+            return tokens[index].hasCategory(category)
+        }
+    }
+
+    /**
+     * Same as `this[aheadBy].number`.
+     */
+    fun numberAt(aheadBy: Int): Number? {
+        val index = position + aheadBy
+        return if (index < 0 || index >= tokens.size) null else numbers[index]
+    }
+
+    /**
+     * Same as `this[aheadBy].number!!.integerValue()`, but returns 0 if there is no number.
+     */
+    fun integerValueAt(aheadBy: Int): Long {
+        val index = position + aheadBy
+        return if (index < 0 || index >= tokens.size) 0 else integerValues[index]
+    }
+
+    /**
+     * Same as `this[aheadBy].isNumberEqualTo(integer)`, but faster.
+     */
+    fun isNumberEqualTo(aheadBy: Int, integer: Long): Boolean {
+        val index = position + aheadBy
+        return index >= 0 && index < tokens.size
+                && numberFlags[index] == NUMBER_INTEGER && integerValues[index] == integer
+    }
+
+    /**
+     * Same as `this[aheadBy].number?.lessThan(integer) == true`, but faster.
+     */
+    fun isNumberLessThan(aheadBy: Int, integer: Long): Boolean {
+        val index = position + aheadBy
+        if (index < 0 || index >= tokens.size) {
+            return false
+        }
+        return when (numberFlags[index]) {
+            NUMBER_INTEGER -> integerValues[index] < integer
+            NUMBER_DECIMAL -> decimalValues[index] < integer
+            else -> false
+        }
+    }
+
+    /**
+     * Same as `this[aheadBy].number?.moreThan(integer) == true`, but faster.
+     */
+    fun isNumberMoreThan(aheadBy: Int, integer: Long): Boolean {
+        val index = position + aheadBy
+        if (index < 0 || index >= tokens.size) {
+            return false
+        }
+        return when (numberFlags[index]) {
+            NUMBER_INTEGER -> integerValues[index] > integer
+            NUMBER_DECIMAL -> decimalValues[index] > integer
+            else -> false
+        }
+    }
+
+    /**
+     * Like `this[aheadBy].asDurationToken`, but without creating any token.
+     */
+    internal fun durationAt(aheadBy: Int): LexicalEntry.DurationMapping? {
+        val index = position + aheadBy
+        return if (index < 0 || index >= tokens.size) null else durations[index]
+    }
+
+    /**
+     * Checks whether any token in this token stream has the provided category, in constant time
+     * for the predefined categories, since a summary of their bits is built along with the stream.
+     * @param category the id of a category, usually one of the constants in [Categories]
+     * @return whether there is at least one token with the category, regardless of the position
+     */
+    fun hasCategoryAnywhere(category: Int): Boolean {
+        if (category < 0) {
+            return false
+        } else if (category < Long.SIZE_BITS) {
+            return (categorySummary and (1L shl category)) != 0L
+        } else {
+            return tokens.any { it.hasCategory(category) }
+        }
+    }
+
+    /**
+     * Same as `this[aheadBy].start`, see [Token].
+     */
+    fun startOf(aheadBy: Int): Int {
+        val index = position + aheadBy
+        return if (index < 0 || index >= tokens.size) 0 else starts[index]
+    }
+
+    /**
+     * Same as `this[aheadBy].end`, see [Token].
+     */
+    fun endOf(aheadBy: Int): Int {
+        val index = position + aheadBy
+        return if (index < 0 || index >= tokens.size) 0 else ends[index]
+    }
+
     /**
      * Moves the position of the token stream ahead by the provided delta. The delta can be
      * negative, i.e. rewinding the stream.
@@ -30,15 +215,88 @@ class TokenStream(private val tokens: List<Token>) {
 
 
     /**
-     * Finds the first token without the provided category and returns the aheadBy offset
-     * @param category the category that tokens have to match to end the search
+     * Finds the first token without the provided category and returns the aheadBy offset. The
+     * first call for a category builds a table with the answer for all positions in linear time,
+     * so that all subsequent calls for the same category take constant time.
+     * @param category the id of the category that tokens have to match to end the search, usually
+     * one of the constants in [Categories]
      * @param startFromAheadBy start the search from the current position plus this value
      * @return the aheadBy offset of the found token, or the aheadBy offset of one past the last
      * token in the token stream if no token was found without the provided category
      */
+    fun indexOfWithoutCategory(category: Int, startFromAheadBy: Int): Int {
+        val start = max(position + startFromAheadBy, 0)
+        if (start >= tokens.size) {
+            return tokens.size - position
+        } else if (category < 0 || category >= Long.SIZE_BITS) {
+            // no token can have this category, or the category is a rare custom one: just scan
+            for (i in start until tokens.size) {
+                if (!hasCategory(i - position, category)) {
+                    return i - position
+                }
+            }
+            return tokens.size - position
+        }
+        return skipTable(category)[start] - position
+    }
+
+    /**
+     * @param category the id of a category, from 0 to 63
+     * @return a table containing, for each token index, the index of the first token at or after
+     * it without the category (or the number of tokens, if there is no such token)
+     */
+    private fun skipTable(category: Int): IntArray {
+        val skipTables = skipTables ?: arrayOfNulls<IntArray>(Long.SIZE_BITS).also {
+            skipTables = it
+        }
+        skipTables[category]?.let { return it }
+
+        val table = IntArray(tokens.size)
+        var next = tokens.size
+        val mask = 1L shl category
+        for (i in tokens.size - 1 downTo 0) {
+            if ((firstCategoryBits[i] and mask) == 0L) {
+                next = i
+            }
+            table[i] = next
+        }
+        skipTables[category] = table
+        return table
+    }
+
+    /**
+     * Same as the [indexOfWithoutCategory] overload taking the integer id of the category.
+     */
     fun indexOfWithoutCategory(category: String, startFromAheadBy: Int): Int {
-        for (i in max(position + startFromAheadBy, 0) until tokens.size) {
-            if (!tokens[i].hasCategory(category)) {
+        return indexOfWithoutCategory(Categories.idOf(category), startFromAheadBy)
+    }
+
+    /**
+     * Finds the first token in the provided first set and returns the aheadBy offset. Tokens are
+     * mostly told apart just by looking at their category bits, without calling any method on
+     * them, so this is much faster than trying an extractor on each token. If the first set has no
+     * words, the summary of the categories of all tokens (see [hasCategoryAnywhere]) is checked
+     * first, so that a token stream with no token in the first set is rejected in constant time.
+     * @param firstSet the tokens at which the search ends, see [FirstSet]
+     * @param startFromAheadBy start the search from the current position plus this value
+     * @return the aheadBy offset of the found token, or the aheadBy offset of one past the last
+     * token in the token stream if no token in the first set was found
+     */
+    fun indexOfFirstSet(firstSet: FirstSet, startFromAheadBy: Int): Int {
+        val start = max(position + startFromAheadBy, 0)
+        if (firstSet.any) {
+            return minOf(start, tokens.size) - position
+        } else if (!firstSet.hasWords && (categorySummary and firstSet.categoryBits) == 0L
+            && !(firstSet.durationWords && hasDurations)
+        ) {
+            return tokens.size - position // quick reject, no token can be in the first set
+        }
+
+        for (i in start until tokens.size) {
+            if ((firstCategoryBits[i] and firstSet.categoryBits) != 0L
+                || (firstSet.durationWords && durations[i] != null)
+                || firstSet.containsWord(tokens[i])
+            ) {
                 return i - position
             }
         }
@@ -46,7 +304,7 @@ class TokenStream(private val tokens: List<Token>) {
     }
 
     fun <T> tryOrSkipCategory(
-        category: String,
+        category: Int,
         doTrySkipping: Boolean,
         function: () -> T
     ): T? {
@@ -61,15 +319,85 @@ class TokenStream(private val tokens: List<Token>) {
                 return result
             }
             movePositionForwardBy(1)
-        } while (get(-1).hasCategory(category) && !finished())
+        } while (hasCategory(-1, category) && !finished())
 
         // found nothing, restore position
         position = originalPosition
         return null
     }
 
+    fun <T> tryOrSkipCategory(
+        category: String,
+        doTrySkipping: Boolean,
+        function: () -> T
+    ): T? {
+        return tryOrSkipCategory(Categories.idOf(category), doTrySkipping, function)
+    }
+
     fun <T> tryOrSkipDateTimeIgnore(doTrySkipping: Boolean, function: () -> T): T? {
-        return tryOrSkipCategory("date_time_ignore", doTrySkipping, function)
+        return tryOrSkipCategory(Categories.DATE_TIME_IGNORE, doTrySkipping, function)
+    }
+
+    /**
+     * Enables memoization in [memoize] for this token stream. Only enable it if all of the
+     * extractors running on this token stream share the same parameters (e.g. short scale), since
+     * those are not part of the memo key.
+     */
+    fun enableMemoization() {
+        if (memo == null) {
+            memo = HashMap()
+        }
+    }
+
+    /**
+     * Like [enableMemoization], but takes over the memo table of [previous] (if it has one),
+     * clearing it, so that processing many utterances in a row does not allocate and grow a new
+     * table for each of them. [previous] must not be used anymore afterwards.
+     */
+    internal fun enableMemoization(previous: TokenStream?) {
+        val previousMemo = previous?.memo
+        if (previousMemo == null) {
+            enableMemoization()
+        } else {
+            previousMemo.clear()
+            previous.memo = null
+            memo = previousMemo
+        }
+    }
+
+    /**
+     * Runs [function], which must extract the result of [rule] at the current position and move
+     * the position to the end of what was extracted. If memoization was enabled with
+     * [enableMemoization], [function] only runs the first time [rule] is called with the same
+     * position and [flags]: any subsequent call just restores the result and the end position.
+     * @param rule the rule being extracted
+     * @param flags anything that changes the result of [rule] for the same position, e.g. whether
+     * ordinal numbers are allowed, in the range from 0 to 255
+     * @param function the actual implementation of the rule
+     * @return the result of [function]
+     */
+    fun <T> memoize(rule: Rule, flags: Int, function: () -> T): T {
+        ++ruleCalls
+        val memo = memo
+        if (memo == null) {
+            ++ruleEvaluations
+            return function()
+        }
+
+        require(flags in 0..0xff) { "Flags must be between 0 and 255: $flags" }
+        val key = (rule.id.toLong() shl 40) or (flags.toLong() shl 32) or
+                (position.toLong() and 0xffffffffL)
+        val entry = memo[key]
+        if (entry != null) {
+            position = entry.endPosition
+            @Suppress("UNCHECKED_CAST")
+            return entry.result as T
+        }
+
+        ++ruleEvaluations
+        val result = function()
+        memo[key] = MemoEntry(result, position)
+        return result
     }
 
     @SafeVarargs
@@ -90,4 +418,28 @@ class TokenStream(private val tokens: List<Token>) {
         position = bestPosition
         return bestResult
     }
+
+
+    /**
+     * An extractor rule whose results can be memoized, see [memoize]. Create one instance for each
+     * rule and keep it in a constant.
+     * @param name the name of the rule, only used for debugging
+     */
+    class Rule(val name: String) {
+        internal val id = NEXT_RULE_ID.getAndIncrement()
+
+        override fun toString(): String {
+            return name
+        }
+    }
+
+    private class MemoEntry(val result: Any?, val endPosition: Int)
+
+    companion object {
+        private val NEXT_RULE_ID = AtomicInteger()
+
+        // the values of numberFlags
+        private const val NUMBER_INTEGER: Byte = 1
+        private const val NUMBER_DECIMAL: Byte = 2
+    }
 }
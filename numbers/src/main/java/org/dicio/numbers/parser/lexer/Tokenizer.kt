@@ -6,189 +6,89 @@ import com.grack.nanojson.JsonParser
 import com.grack.nanojson.JsonParserException
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.unit.Number
+import org.dicio.numbers.util.ConfigSnapshots
 import org.dicio.numbers.util.ResourceOpener
-import org.dicio.numbers.util.Utils
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
 import java.io.FileNotFoundException
-import java.text.Normalizer
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.file.Path
 import java.time.temporal.ChronoUnit
-import java.util.Locale
+import java.util.IdentityHashMap
 import java.util.regex.Pattern
 
-class Tokenizer(configFolder: String) {
-    private val spaces: String
-    private val charactersAsWord: String
-    private val rawNumberCategories: Set<String>
-    private val pluralEndings: MutableList<String>
+class Tokenizer private constructor(tables: Tables) {
+    private val spaces: CodePointSet = tables.spaces
+    private val charactersAsWord: CodePointSet = tables.charactersAsWord
+    // the bitset of the raw_number_categories, see Categories.bitsetOf
+    private val rawNumberCategories: LongArray = tables.rawNumberCategories
+
+    // all of the word_matches, number_mappings and duration_words, compiled into a single trie
+    // whose values are shared by all of the tokens of the same word
+    private val dictionary: CharTrie<LexicalEntry> = tables.dictionary
+    // the plural endings, reversed, each mapped to its index in the plural_endings array
+    private val reversedPluralEndings: CharTrie<Int> = tables.reversedPluralEndings
+    private val compoundWordPieces: List<String> = tables.compoundWordPieces
+    // the compound word pieces, each mapped to its index in compoundWordPieces
+    private val compoundWordPieceTrie: CharTrie<Int> = tables.compoundWordPieceTrie
 
-    private val wordMatches: MutableMap<String, Set<String>>
-    private val numberMappings: MutableMap<String, Mapping>
-    private val compoundWordPieces: MutableList<String>
-    private val durationMappings: MutableMap<String, DurationMapping>
-
-
-    init {
-        try {
-            val root = JsonParser.`object`().from(
-                ResourceOpener.getResourceAsStream("$configFolder/tokenizer.json")
-            )
-
-            spaces = root.getString("spaces")
-            charactersAsWord = root.getString("characters_as_word")
-
-            val compoundWordPieceCategory = root.getString("compound_word_piece_category", null)
-            compoundWordPieces = ArrayList()
-
-            rawNumberCategories = readCategories(root.getArray("raw_number_categories"))
-
-            pluralEndings = ArrayList()
-            for (o in root.getArray("plural_endings")) {
-                if (o !is String) {
-                    throw RuntimeException(
-                        "Content of plural_endings array is not string: $o"
-                    )
-                }
-                pluralEndings.add(o)
-            }
-
-            wordMatches = HashMap()
-            for (match in root.getArray("word_matches")) {
-                if (match !is JsonObject) {
-                    throw RuntimeException("Content of word_matches array is not object: $match")
-                }
-
-                val categories = readCategories(match.getArray("categories"))
-
-                for (v in match.getArray("values")) {
-                    if (v !is String) {
-                        throw RuntimeException("Content of values array is not string: $v")
-                    }
-                    wordMatches[v] = categories
-
-                    if (categories.contains(compoundWordPieceCategory)) {
-                        compoundWordPieces.add(v)
-                    }
-                }
-            }
-
-            numberMappings = HashMap()
-            for (mapping in root.getArray("number_mappings")) {
-                if (mapping !is JsonObject) {
-                    throw RuntimeException(
-                        "Content of number_mappings array is not an object: $mapping"
-                    )
-                }
-
-                val categories = readCategories(mapping.getArray("categories"))
-                val values = mapping.getObject("values")
-                    ?: throw RuntimeException("Missing values object in mapping: $mapping")
-
-                for ((key, value) in values) {
-                    numberMappings[key] = Mapping(categories, Number.fromObject(value))
-                    if (categories.contains(compoundWordPieceCategory)) {
-                        compoundWordPieces.add(key)
-                    }
-                }
-            }
-
-            durationMappings = HashMap()
-            for ((key, value) in root.getObject("duration_words")) {
-                val parts = AT_SPACES_SPLITTER.split(key)
-                if (parts.size != 2) {
-                    throw RuntimeException(
-                        "Duration \"" + key + "\" is not valid, it"
-                                + " should be made of an integer number followed by a unit"
-                    )
-                }
-
-                val multiplier = try {
-                    Number(parts[0].toLong())
-                } catch (e: NumberFormatException) {
-                    throw RuntimeException(
-                        "Multiplier \"" + parts[0] + "\" of duration \""
-                                + key + "\" is not an integer", e
-                    )
-                }
-
-                val chronoUnit = try {
-                    ChronoUnit.valueOf(parts[1])
-                } catch (e: IllegalArgumentException) {
-                    throw RuntimeException(
-                        "Unit \"" + parts[1] + "\" of duration \""
-                                + key + "\" is not a valid unit; valid units are: "
-                                + ChronoUnit::class.java.enumConstants.contentToString()
-                    )
-                }
-
-                if (value !is JsonArray) {
-                    throw RuntimeException(
-                        "Value corresponding to duration \"" + key
-                                + "\" is not an array: " + value
-                    )
-                }
-                for (w in value) {
-                    if (w !is String) {
-                        throw RuntimeException(
-                            "Entry in array for duration \"" + key +
-                                    "\" is not a string: " + w
-                        )
-                    }
-                    // make sure to create a new DurationMapping object each time, since their
-                    // restrictedAfterNumber value is changed in the for below
-                    durationMappings[w] = DurationMapping(
-                        key,
-                        Duration().plus(multiplier, chronoUnit)
-                    )
-                }
-            }
-            for (o in root.getArray("duration_restrict_after_number")) {
-                if (o !is String || !durationMappings.containsKey(o)) {
-                    throw RuntimeException(
-                        "Found entry in duration_restrict_after_number array"
-                                + " that was not in duration_words: " + o
-                    )
-                }
-                durationMappings[o]!!.restrictedAfterNumber = true
-            }
-        } catch (e: FileNotFoundException) {
-            throw RuntimeException(e)
-        } catch (e: JsonParserException) {
-            throw RuntimeException(e)
-        }
-    }
+    /**
+     * Loads the tokenizer configuration in [configFolder] (e.g. `config/en-us`), from the binary
+     * snapshot if there is one (see [ConfigSnapshots]), otherwise from `tokenizer.json`.
+     */
+    constructor(configFolder: String) : this(
+        ConfigSnapshots.open(
+            "$configFolder/${ConfigSnapshots.TOKENIZER_FILE}", ConfigSnapshots.TOKENIZER_MAGIC
+        )?.let { readSnapshot(it) } ?: readJson(configFolder)
+    )
 
 
     fun tokenize(s: String): List<Token> {
         val tokens: MutableList<Token> = ArrayList()
+        tokenize(s, 0, s.length, tokens)
+        return tokens
+    }
 
+    /**
+     * Tokenizes the part of [s] from [start] (inclusive) to [end] (exclusive), adding the tokens
+     * to [tokens]. The tokens refer to positions in the whole [s]. If [start] and [end] are at the
+     * boundaries between tokens of the whole [s] (e.g. right after some spaces), the tokens are
+     * exactly the ones that [tokenize] would produce for that part of [s].
+     */
+    internal fun tokenize(s: String, start: Int, end: Int, tokens: MutableList<Token>) {
         // the spaces at the beginning are put in a separate token
-        var i = 0
-        while (i < s.length && Utils.containsCodePoint(spaces, s.codePointAt(i))) {
+        var i = start
+        while (i < end && s.codePointAt(i) in spaces) {
             ++i
         }
-        if (i != 0) {
-            tokens.add(Token("", s.substring(0, i)))
+        if (i != start) {
+            tokens.add(Token(s, start, start, i, ""))
         }
 
         var begin = i
-        while (i < s.length) {
+        while (i < end) {
             // token values are either a 1-char-long string from the charactersAsWord array,
             // or another arbitrary string not containing any spaces
             var tokenIsDigits = false
             var valueNeedsCleaning = true
-            while (i < s.length) {
-                if (Utils.containsCodePoint(spaces, s.codePointAt(i))) {
+            while (i < end) {
+                val codePoint = s.codePointAt(i)
+                if (codePoint in spaces) {
                     break // current character is a space
-                } else if (Utils.containsCodePoint(charactersAsWord, s.codePointAt(i))) {
+                } else if (codePoint in charactersAsWord) {
                     if (i == begin) {
                         valueNeedsCleaning = false // do not normalize single characters
                         ++i // found character to be considered as a separate word at the beginning
                     }
                     break // current character is to be considered as a separate word, stop
-                } else if (Character.isDigit(s.codePointAt(i))) {
+                } else if (Character.isDigit(codePoint)) {
                     if (i == begin) {
                         tokenIsDigits = true // found a digit at the beginning, get others
                         ++i
-                        while (i < s.length && Character.isDigit(s.codePointAt(i))) {
+                        while (i < end && Character.isDigit(s.codePointAt(i))) {
                             ++i // collect as many digits as possible
                         }
                     }
@@ -196,145 +96,579 @@ class Tokenizer(configFolder: String) {
                 }
                 ++i
             }
-            val value = s.substring(begin, i)
-            begin = i
+            val wordEnd = i
 
-            while (i < s.length && Utils.containsCodePoint(spaces, s.codePointAt(i))) {
+            while (i < end && s.codePointAt(i) in spaces) {
                 ++i // collect as many spaces as possible
             }
-            val spacesFollowing = s.substring(begin, i)
+
+            addToken(tokens, s, begin, wordEnd, i, tokenIsDigits, valueNeedsCleaning)
             begin = i
+        }
+    }
+
 
-            addTokenFromValue(tokens, value, spacesFollowing, tokenIsDigits, valueNeedsCleaning)
+    /**
+     * Finds the first position after [from] at which [s] can be split in two parts which can be
+     * tokenized and extracted from separately, with the same results as for the whole [s], when
+     * extractors only start matching at the tokens in [firstSet]. That is the end of the first
+     * chunk of non-space text after which the two last tokens after [from] are inert (see
+     * [FirstSet.isInert]): objects consume at most one inert token, so any object starting before
+     * those two tokens also ends before them.
+     *
+     * @param from a position in [s] greater than 0
+     * @return the position of the split, which is always right after some spaces, or the length
+     * of [s] if there is no such position
+     */
+    internal fun safeBoundary(s: String, from: Int, firstSet: FirstSet): Int {
+        val tokens = ArrayList<Token>()
+        var end = chunkEnd(s, from - 1)
+        while (end < s.length && !(tokens.size >= 2 && firstSet.isInert(tokens[tokens.size - 1])
+                    && firstSet.isInert(tokens[tokens.size - 2]))
+        ) {
+            // chunks of text separated by spaces can be tokenized independently
+            val chunkEnd = chunkEnd(s, end)
+            tokenize(s, end, chunkEnd, tokens)
+            end = chunkEnd
         }
-        return tokens
+        return end
+    }
+
+    /**
+     * @return the end of the spaces following the chunk of non-space text containing position
+     * [i] of [s], i.e. the start of the next chunk, or the length of [s]
+     */
+    internal fun chunkEnd(s: String, i: Int): Int {
+        var end = i
+        while (end < s.length && s.codePointAt(end) !in spaces) {
+            ++end
+        }
+        while (end < s.length && s.codePointAt(end) in spaces) {
+            ++end
+        }
+        return end
+    }
+
+    /**
+     * @return the start of the last chunk of non-space text in [s], including the spaces after
+     * it, i.e. the end of the text before it, or 0 if [s] contains only one chunk
+     */
+    internal fun lastChunkStart(s: String): Int {
+        var start = s.length
+        while (start > 0 && s.codePointBefore(start) in spaces) {
+            --start
+        }
+        while (start > 0 && s.codePointBefore(start) !in spaces) {
+            --start
+        }
+        return start
+    }
+
+    /**
+     * @param firstSet the first set of an extractor, which must not be [FirstSet.ANY]
+     * @return a scanner finding the parts of documents in which the extractor could find
+     * something, built from this tokenizer's dictionary
+     */
+    internal fun documentScanner(firstSet: FirstSet): DocumentScanner {
+        return DocumentScanner(
+            this, firstSet, spaces, charactersAsWord, dictionary, reversedPluralEndings,
+            compoundWordPieceTrie
+        )
     }
 
 
-    private fun addTokenFromValue(
+    /**
+     * Adds to [tokens] the token(s) for the word in [s] from [start] to [end], followed by spaces
+     * until [spacesEnd]. The word is only copied out of [s] if it needs to be normalized.
+     */
+    private fun addToken(
         tokens: MutableList<Token>,
-        value: String,
-        spacesFollowing: String,
+        s: String,
+        start: Int,
+        end: Int,
+        spacesEnd: Int,
         tokenIsDigits: Boolean,
         valueNeedsCleaning: Boolean
     ) {
         if (tokenIsDigits) {
             tokens.add(
                 NumberToken(
-                    value, spacesFollowing, rawNumberCategories,
-                    Number(value.toLong())
+                    s, start, end, spacesEnd, null, rawNumberCategories,
+                    Number(java.lang.Long.parseLong(s, start, end, 10)), null
                 )
             )
             return
         }
 
-        val clean = if (valueNeedsCleaning) cleanValue(value) else value
-        var token = tokenFromValueExact(clean, value, spacesFollowing)
-        if (token == null) {
-            val removedPluralEndings = removePluralEndings(clean)
-            if (removedPluralEndings != null) {
-                token = tokenFromValueExact(removedPluralEndings, value, spacesFollowing)
-            }
+        val clean: String
+        val cleanStart: Int
+        val cleanEnd: Int
+        if (!valueNeedsCleaning || WordNormalizer.isNormalizedAscii(s, start, end)) {
+            clean = s // the word is already clean, look it up directly in the original text
+            cleanStart = start
+            cleanEnd = end
+        } else {
+            clean = WordNormalizer.normalize(s.substring(start, end))
+            cleanStart = 0
+            cleanEnd = clean.length
         }
 
-        if (token == null) {
-            // try to parse compound word
-            val compoundWord: List<Token>? = tokenizeCompoundWord(clean)
-            if (!compoundWord.isNullOrEmpty()) {
-                compoundWord[0].spacesFollowing = spacesFollowing
-                // results from tokenizeCompoundWord are reversed
-                tokens.addAll(compoundWord.reversed())
-                return
-            }
+        val token = lookupWithPluralEndings(clean, cleanStart, cleanEnd)
+            ?.createToken(s, start, end, spacesEnd, null)
+
+        if (token == null && tokenizeCompoundWord(
+                tokens, s, start, end, spacesEnd, clean, cleanStart, cleanEnd
+            )
+        ) {
+            return // the word was split into multiple compound word pieces
         }
 
-        tokens.add(token ?: Token(value, spacesFollowing))
+        tokens.add(token ?: Token(s, start, end, spacesEnd, null))
     }
 
-    private fun tokenFromValueExact(
+    /**
+     * Looks up the clean word in the dictionary and, if it is not there, looks up the clean word
+     * without the first plural ending (in the order of the plural_endings array) it ends with.
+     * Both lookups happen during a single walk of the dictionary trie, without creating
+     * intermediate strings.
+     * @param clean the text containing the clean word to look up
+     * @param cleanStart the start of the clean word in [clean], inclusive
+     * @param cleanEnd the end of the clean word in [clean], exclusive
+     * @return the dictionary entry of the word, or of the word without its plural ending, or null
+     */
+    private fun lookupWithPluralEndings(
         clean: String,
-        value: String,
-        spacesFollowing: String
-    ): Token? {
-        var matchedToken: MatchedToken? = null
-        val mapping = numberMappings[clean]
-        if (mapping == null) {
-            val wordMatch = wordMatches[clean]
-            if (wordMatch != null) {
-                matchedToken = MatchedToken(value, spacesFollowing, wordMatch)
+        cleanStart: Int,
+        cleanEnd: Int
+    ): LexicalEntry? {
+        val pluralEndingLength = pluralEndingLength(clean, cleanStart, cleanEnd)
+        val singularEnd = if (pluralEndingLength < 0) -1 else cleanEnd - pluralEndingLength
+
+        var node = CharTrie.ROOT
+        var singularEntry: LexicalEntry? = null
+        for (i in cleanStart until cleanEnd) {
+            if (i == singularEnd) {
+                singularEntry = dictionary.valueAt(node)
             }
-        } else {
-            matchedToken = NumberToken(value, spacesFollowing, mapping.categories, mapping.number)
-        }
-
-        val dur = durationMappings[clean]
-        if (dur != null) {
-            val durationToken = DurationToken(
-                value, spacesFollowing,
-                dur.durationCategory, dur.durationMultiplier, dur.restrictedAfterNumber
-            )
-            if (matchedToken == null) {
-                return durationToken
-            } else {
-                matchedToken.setDurationTokenMatch(durationToken)
+            node = dictionary.step(node, clean[i])
+            if (node == CharTrie.NO_NODE) {
+                return singularEntry
             }
         }
-
-        return matchedToken
+        return dictionary.valueAt(node) ?: singularEntry
     }
 
-    private fun removePluralEndings(value: String): String? {
-        for (pluralEnding in pluralEndings) {
-            if (value.endsWith(pluralEnding)) {
-                return value.substring(0, value.length - pluralEnding.length)
+    /**
+     * @param value the text containing the word whose plural ending should be found
+     * @param start the start of the word in [value], inclusive
+     * @param end the end of the word in [value], exclusive
+     * @return the length of the first plural ending (in the order of the plural_endings array)
+     * which the word ends with, or -1 if there is no such ending
+     */
+    private fun pluralEndingLength(value: String, start: Int, end: Int): Int {
+        var node = CharTrie.ROOT
+        var bestIndex = reversedPluralEndings.valueAt(node) ?: Int.MAX_VALUE
+        var bestLength = if (bestIndex == Int.MAX_VALUE) -1 else 0
+        for (i in end - 1 downTo start) {
+            node = reversedPluralEndings.step(node, value[i])
+            if (node == CharTrie.NO_NODE) {
+                break
+            }
+            val index = reversedPluralEndings.valueAt(node)
+            if (index != null && index < bestIndex) {
+                bestIndex = index
+                bestLength = end - i
             }
         }
-        return null
-    }
-
-    private fun cleanValue(value: String): String {
-        // nfkd normalize (i.e. remove accents) and make lowercase
-        val normalized =
-            Normalizer.normalize(value.lowercase(Locale.getDefault()), Normalizer.Form.NFKD)
-        return DIACRITICAL_MARKS_REMOVER.matcher(normalized).replaceAll("")
+        return bestLength
     }
 
     /**
-     * Tokenizes a compound word (e.g. twentytwo is parsed into two tokens: twewnty and two)
-     * @param clean the clean word
-     * @return a list of tokens in reverse order (e.g. [two, twenty] for input twentytwo)
+     * Tokenizes a compound word (e.g. twentytwo is parsed into two tokens: twenty and two). The
+     * pieces are chosen as if trying all compound word pieces in order at each position and
+     * backtracking when the rest of the word can't be split, but in time linear in the length of
+     * the word: a first backwards pass over the word finds out from which positions the rest of
+     * the word can be split into pieces, and then a forward pass just picks, at each position, the
+     * first piece after which the rest of the word can be split.
+     *
+     * The value of each piece token is the piece itself. If the clean word is as long as the
+     * original word, each piece token spans the corresponding part of the original word; otherwise
+     * the last piece token spans the whole original word and the other ones are empty.
+     *
+     * @param tokens the list to which to add the tokens of the compound word pieces
+     * @param s the original text
+     * @param start the start of the original word in [s], inclusive
+     * @param end the end of the original word in [s], exclusive
+     * @param spacesEnd the end of the spaces following the original word in [s], exclusive
+     * @param clean the text containing the clean word
+     * @param cleanStart the start of the clean word in [clean], inclusive
+     * @param cleanEnd the end of the clean word in [clean], exclusive
+     * @return whether the word could be split into pieces (and they were added to [tokens])
      */
-    private fun tokenizeCompoundWord(clean: String): MutableList<Token>? {
-        if (clean.isEmpty()) {
-            return ArrayList()
+    private fun tokenizeCompoundWord(
+        tokens: MutableList<Token>,
+        s: String,
+        start: Int,
+        end: Int,
+        spacesEnd: Int,
+        clean: String,
+        cleanStart: Int,
+        cleanEnd: Int
+    ): Boolean {
+        if (cleanStart == cleanEnd) {
+            return false
         }
 
-        for (compoundPiece in compoundWordPieces) {
-            if (clean.startsWith(compoundPiece)) {
-                val nextTokens = tokenizeCompoundWord(clean.substring(compoundPiece.length))
-                if (nextTokens != null) {
-                    nextTokens.add(tokenFromValueExact(compoundPiece, compoundPiece, "")!!)
-                    return nextTokens // will be in reverse order, since first matches are added last
+        // splittable[i - cleanStart] tells whether clean[i until cleanEnd] can be split into pieces
+        val splittable = BooleanArray(cleanEnd - cleanStart + 1)
+        splittable[cleanEnd - cleanStart] = true
+        for (begin in cleanEnd - 1 downTo cleanStart) {
+            var node = CharTrie.ROOT
+            var i = begin
+            while (i < cleanEnd) {
+                node = compoundWordPieceTrie.step(node, clean[i])
+                ++i
+                if (node == CharTrie.NO_NODE) {
+                    break
+                } else if (splittable[i - cleanStart]
+                    && compoundWordPieceTrie.valueAt(node) != null
+                ) {
+                    splittable[begin - cleanStart] = true
+                    break
                 }
             }
         }
+        if (!splittable[0]) {
+            return false
+        }
 
-        return null
-    }
+        // the offset to add to positions in clean to obtain the positions in s, if they match
+        val offset = if (cleanEnd - cleanStart == end - start) start - cleanStart else null
+        var begin = cleanStart
+        while (begin < cleanEnd) {
+            // find the first piece (in compoundWordPieces order) leading to a splittable position
+            var bestPiece = Int.MAX_VALUE
+            var node = CharTrie.ROOT
+            var i = begin
+            while (i < cleanEnd) {
+                node = compoundWordPieceTrie.step(node, clean[i])
+                ++i
+                if (node == CharTrie.NO_NODE) {
+                    break
+                }
+                val piece = compoundWordPieceTrie.valueAt(node)
+                if (piece != null && piece < bestPiece && splittable[i - cleanStart]) {
+                    bestPiece = piece
+                }
+            }
 
+            val pieceValue = compoundWordPieces[bestPiece]
+            val pieceStart = begin
+            begin += pieceValue.length
+            val entry = dictionary[pieceValue]!!
+            tokens.add(
+                if (begin == cleanEnd) {
+                    entry.createToken(
+                        s, if (offset == null) start else pieceStart + offset, end, spacesEnd,
+                        pieceValue
+                    )
+                } else if (offset == null) {
+                    entry.createToken(s, start, start, start, pieceValue)
+                } else {
+                    entry.createToken(
+                        s, pieceStart + offset, begin + offset, begin + offset, pieceValue
+                    )
+                }
+            )
+        }
+        return true
+    }
 
-    private class Mapping(val categories: Set<String>, val number: Number)
 
-    private class DurationMapping(val durationCategory: String, val durationMultiplier: Duration) {
-        var restrictedAfterNumber: Boolean = false
-    }
+    // all of the tables built from the configuration, either from the json file or a snapshot
+    private class Tables(
+        val spaces: CodePointSet,
+        val charactersAsWord: CodePointSet,
+        val rawNumberCategories: LongArray,
+        val dictionary: CharTrie<LexicalEntry>,
+        val reversedPluralEndings: CharTrie<Int>,
+        val compoundWordPieces: List<String>,
+        val compoundWordPieceTrie: CharTrie<Int>,
+    )
 
     companion object {
-        private val DIACRITICAL_MARKS_REMOVER: Pattern =
-            Pattern.compile("\\p{InCombiningDiacriticalMarks}+")
         private val AT_SPACES_SPLITTER: Pattern = Pattern.compile(" ")
 
 
+        /**
+         * Loads the tokenizer configuration in [configFolder] from `tokenizer.json`, ignoring any
+         * binary snapshot.
+         */
+        @JvmStatic
+        fun fromJson(configFolder: String): Tokenizer {
+            return Tokenizer(readJson(configFolder))
+        }
+
+        /**
+         * Loads a tokenizer configuration from a binary snapshot written with [writeSnapshot].
+         * @throws IOException if the snapshot is invalid or was written with a different
+         * [ConfigSnapshots.FORMAT_VERSION]
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun fromSnapshot(input: InputStream): Tokenizer {
+            return Tokenizer(
+                readSnapshot(ConfigSnapshots.read(input, ConfigSnapshots.TOKENIZER_MAGIC))
+            )
+        }
+
+        /**
+         * Loads a tokenizer configuration from a binary snapshot file written with
+         * [writeSnapshot], by memory-mapping it. The tries of the returned tokenizer are used
+         * directly from the mapped file, so they are not on the heap and are shared through the
+         * page cache with any other process mapping the same file. See also
+         * [ConfigSnapshots.snapshotDirectory].
+         * @throws IOException if the file cannot be mapped, or if the snapshot is invalid or was
+         * written with a different [ConfigSnapshots.FORMAT_VERSION]
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun fromMappedSnapshot(file: Path): Tokenizer {
+            return Tokenizer(
+                readSnapshot(ConfigSnapshots.map(file, ConfigSnapshots.TOKENIZER_MAGIC))
+            )
+        }
+
+        /**
+         * Builds the tokenizer configuration in [configFolder] from `tokenizer.json`, and writes
+         * it to [output] as a binary snapshot, which can then be loaded with [fromSnapshot], or
+         * placed next to `tokenizer.json` to make the [Tokenizer] constructor faster.
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun writeSnapshot(configFolder: String, output: OutputStream) {
+            val tables = readJson(configFolder)
+            val data = DataOutputStream(output)
+            ConfigSnapshots.writeHeader(data, ConfigSnapshots.TOKENIZER_MAGIC)
+
+            writeCodePoints(data, tables.spaces)
+            writeCodePoints(data, tables.charactersAsWord)
+
+            // category ids depend on the loading order, so bitsets are written as category names,
+            // and each distinct bitset (there is one per word match or number mapping) only once
+            val bitsets = IdentityHashMap<LongArray, Int>()
+            val bitsetIndex = { bitset: LongArray -> bitsets.getOrPut(bitset) { bitsets.size } }
+            bitsetIndex(tables.rawNumberCategories)
+            val dictionaryBytes = ByteArrayOutputStream()
+            val dictionaryData = DataOutputStream(dictionaryBytes)
+            tables.dictionary.write(dictionaryData) { it.write(dictionaryData, bitsetIndex) }
+            data.writeInt(bitsets.size)
+            for ((bitset, _) in bitsets.entries.sortedBy { it.value }) {
+                val names = Categories.namesOf(bitset)
+                data.writeInt(names.size)
+                names.forEach(data::writeUTF)
+            }
+            data.write(dictionaryBytes.toByteArray())
+
+            tables.reversedPluralEndings.write(data, data::writeInt)
+            data.writeInt(tables.compoundWordPieces.size)
+            tables.compoundWordPieces.forEach(data::writeUTF)
+            tables.compoundWordPieceTrie.write(data, data::writeInt)
+            data.flush()
+        }
+
+        private fun readSnapshot(data: DataInputStream): Tables {
+            val spaces = readCodePoints(data)
+            val charactersAsWord = readCodePoints(data)
+            val bitsets = List(data.readInt()) {
+                Categories.bitsetOf(List(data.readInt()) { data.readUTF() })
+            }
+            val dictionary = CharTrie.read(data) { LexicalEntry.read(data, bitsets) }
+            val reversedPluralEndings = CharTrie.read(data, data::readInt)
+            val compoundWordPieces = List(data.readInt()) { data.readUTF() }
+            val compoundWordPieceTrie = CharTrie.read(data, data::readInt)
+            return Tables(
+                spaces, charactersAsWord, bitsets[0], dictionary, reversedPluralEndings,
+                compoundWordPieces, compoundWordPieceTrie
+            )
+        }
+
+        private fun writeCodePoints(data: DataOutputStream, codePointSet: CodePointSet) {
+            val codePoints = codePointSet.toCodePoints()
+            data.writeInt(codePoints.size)
+            codePoints.forEach(data::writeInt)
+        }
+
+        private fun readCodePoints(data: DataInputStream): CodePointSet {
+            return CodePointSet(IntArray(data.readInt()) { data.readInt() })
+        }
+
+        private fun readJson(configFolder: String): Tables {
+            try {
+                val root = JsonParser.`object`().from(
+                    ResourceOpener.getResourceAsStream("$configFolder/tokenizer.json")
+                )
+
+                val compoundWordPieceCategory = root.getString("compound_word_piece_category", null)
+                val compoundWordPieces = ArrayList<String>()
+
+                val rawNumberCategories =
+                    Categories.bitsetOf(readCategories(root.getArray("raw_number_categories")))
+
+                val pluralEndings = HashMap<String, Int>()
+                for ((index, o) in root.getArray("plural_endings").withIndex()) {
+                    if (o !is String) {
+                        throw RuntimeException(
+                            "Content of plural_endings array is not string: $o"
+                        )
+                    }
+                    // the first plural ending in the array takes precedence, like before
+                    pluralEndings.putIfAbsent(o.reversed(), index)
+                }
+                val reversedPluralEndings = CharTrie.of(pluralEndings)
+
+                val wordMatches = HashMap<String, LongArray>()
+                for (match in root.getArray("word_matches")) {
+                    if (match !is JsonObject) {
+                        throw RuntimeException(
+                            "Content of word_matches array is not object: $match"
+                        )
+                    }
+
+                    val categories = readCategories(match.getArray("categories"))
+                    val categoryBitset = Categories.bitsetOf(categories)
+
+                    for (v in match.getArray("values")) {
+                        if (v !is String) {
+                            throw RuntimeException("Content of values array is not string: $v")
+                        }
+                        wordMatches[v] = categoryBitset
+
+                        if (categories.contains(compoundWordPieceCategory)) {
+                            compoundWordPieces.add(v)
+                        }
+                    }
+                }
+
+                val numberMappings = HashMap<String, Pair<LongArray, Number>>()
+                for (mapping in root.getArray("number_mappings")) {
+                    if (mapping !is JsonObject) {
+                        throw RuntimeException(
+                            "Content of number_mappings array is not an object: $mapping"
+                        )
+                    }
+
+                    val categories = readCategories(mapping.getArray("categories"))
+                    val categoryBitset = Categories.bitsetOf(categories)
+                    val values = mapping.getObject("values")
+                        ?: throw RuntimeException("Missing values object in mapping: $mapping")
+
+                    for ((key, value) in values) {
+                        numberMappings[key] = Pair(categoryBitset, Number.fromObject(value))
+                        if (categories.contains(compoundWordPieceCategory)) {
+                            compoundWordPieces.add(key)
+                        }
+                    }
+                }
+
+                val durationWords = HashMap<String, Pair<String, Duration>>()
+                for ((key, value) in root.getObject("duration_words")) {
+                    val parts = AT_SPACES_SPLITTER.split(key)
+                    if (parts.size != 2) {
+                        throw RuntimeException(
+                            "Duration \"" + key + "\" is not valid, it"
+                                    + " should be made of an integer number followed by a unit"
+                        )
+                    }
+
+                    val multiplier = try {
+                        Number(parts[0].toLong())
+                    } catch (e: NumberFormatException) {
+                        throw RuntimeException(
+                            "Multiplier \"" + parts[0] + "\" of duration \""
+                                    + key + "\" is not an integer", e
+                        )
+                    }
+
+                    val chronoUnit = try {
+                        ChronoUnit.valueOf(parts[1])
+                    } catch (e: IllegalArgumentException) {
+                        throw RuntimeException(
+                            "Unit \"" + parts[1] + "\" of duration \""
+                                    + key + "\" is not a valid unit; valid units are: "
+                                    + ChronoUnit::class.java.enumConstants.contentToString()
+                        )
+                    }
+
+                    if (value !is JsonArray) {
+                        throw RuntimeException(
+                            "Value corresponding to duration \"" + key
+                                    + "\" is not an array: " + value
+                        )
+                    }
+                    for (w in value) {
+                        if (w !is String) {
+                            throw RuntimeException(
+                                "Entry in array for duration \"" + key +
+                                        "\" is not a string: " + w
+                            )
+                        }
+                        durationWords[w] = Pair(key, Duration().plus(multiplier, chronoUnit))
+                    }
+                }
+                val durationRestrictAfterNumber = HashSet<String>()
+                for (o in root.getArray("duration_restrict_after_number")) {
+                    if (o !is String || !durationWords.containsKey(o)) {
+                        throw RuntimeException(
+                            "Found entry in duration_restrict_after_number array"
+                                    + " that was not in duration_words: " + o
+                        )
+                    }
+                    durationRestrictAfterNumber.add(o)
+                }
+
+                val entries = HashMap<String, LexicalEntry>()
+                for (word in wordMatches.keys + numberMappings.keys + durationWords.keys) {
+                    val numberMapping = numberMappings[word]
+                    val durationWord = durationWords[word]
+                    entries[word] = LexicalEntry(
+                        // number mappings take precedence over word matches
+                        numberMapping?.first ?: wordMatches[word],
+                        numberMapping?.second,
+                        durationWord?.let { (durationCategory, durationMultiplier) ->
+                            LexicalEntry.DurationMapping(
+                                durationCategory,
+                                durationMultiplier,
+                                durationRestrictAfterNumber.contains(word)
+                            )
+                        }
+                    )
+                }
+
+                val compoundWordPieceIndices = HashMap<String, Int>()
+                for ((index, piece) in compoundWordPieces.withIndex()) {
+                    if (piece.isNotEmpty()) {
+                        // earlier pieces take precedence, and an empty piece would never advance
+                        compoundWordPieceIndices.putIfAbsent(piece, index)
+                    }
+                }
+                return Tables(
+                    CodePointSet(root.getString("spaces")),
+                    CodePointSet(root.getString("characters_as_word")),
+                    rawNumberCategories,
+                    CharTrie.of(entries),
+                    reversedPluralEndings,
+                    compoundWordPieces,
+                    CharTrie.of(compoundWordPieceIndices)
+                )
+            } catch (e: FileNotFoundException) {
+                throw RuntimeException(e)
+            } catch (e: JsonParserException) {
+                throw RuntimeException(e)
+            }
+        }
+
+
         private fun readCategories(categoriesArray: JsonArray?): Set<String> {
             if (categoriesArray == null) {
                 throw RuntimeException(
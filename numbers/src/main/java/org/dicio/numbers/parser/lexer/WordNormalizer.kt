@@ -0,0 +1,89 @@
+package org.dicio.numbers.parser.lexer
+
+import java.text.Normalizer
+import java.util.Locale
+import java.util.regex.Pattern
+
+/**
+ * Makes words lowercase and removes accents from them, so that they can be looked up in the
+ * tokenizer dictionary. Words made only of lowercase ASCII characters are returned as they are,
+ * words made only of Latin characters are folded one character at a time through a precomputed
+ * table, and only the remaining words go through full NFKD normalization. The result never depends
+ * on the default locale.
+ */
+internal object WordNormalizer {
+    private val DIACRITICAL_MARKS_REMOVER: Pattern =
+        Pattern.compile("\\p{InCombiningDiacriticalMarks}+")
+
+    // Basic Latin, Latin-1 Supplement, Latin Extended-A and Latin Extended-B
+    private const val FOLDING_TABLE_SIZE = 0x250
+    private val FOLDING_TABLE: Array<String> =
+        Array(FOLDING_TABLE_SIZE) { fullNormalize(it.toChar().toString()) }
+
+    /**
+     * @param value the word to normalize
+     * @return the word made lowercase and without accents, which is [value] itself if it was
+     * already normalized and only made of ASCII characters
+     */
+    fun normalize(value: String): String {
+        var i = firstCharToNormalize(value, 0, value.length)
+        if (i == value.length) {
+            return value // lowercase ASCII, nothing to do
+        }
+
+        val builder = StringBuilder(value.length)
+        builder.append(value, 0, i)
+        while (i < value.length) {
+            val c = value[i]
+            if (c.code >= FOLDING_TABLE_SIZE) {
+                return fullNormalize(value) // exotic character, the folding table can't be used
+            }
+            builder.append(FOLDING_TABLE[c.code])
+            ++i
+        }
+        return builder.toString()
+    }
+
+    /**
+     * @param c a character of a word
+     * @return what [c] becomes when normalizing a word, assuming no other character of the word
+     * interacts with it during normalization, which only happens with exotic characters
+     */
+    fun normalize(c: Char): String {
+        return if (c.code < FOLDING_TABLE_SIZE) {
+            FOLDING_TABLE[c.code]
+        } else {
+            fullNormalize(c.toString())
+        }
+    }
+
+    /**
+     * @param value the text containing the word
+     * @param start the start of the word in [value], inclusive
+     * @param end the end of the word in [value], exclusive
+     * @return whether the word is made only of lowercase ASCII characters, in which case
+     * [normalize] would return it unchanged
+     */
+    fun isNormalizedAscii(value: CharSequence, start: Int, end: Int): Boolean {
+        return firstCharToNormalize(value, start, end) == end
+    }
+
+    private fun firstCharToNormalize(value: CharSequence, start: Int, end: Int): Int {
+        for (i in start until end) {
+            val c = value[i]
+            if (c >= '\u0080' || c in 'A'..'Z') {
+                return i
+            }
+        }
+        return end
+    }
+
+    /**
+     * @param value the word to normalize
+     * @return the word made lowercase and NFKD-normalized, without combining diacritical marks
+     */
+    fun fullNormalize(value: String): String {
+        val normalized = Normalizer.normalize(value.lowercase(Locale.ROOT), Normalizer.Form.NFKD)
+        return DIACRITICAL_MARKS_REMOVER.matcher(normalized).replaceAll("")
+    }
+}
@@ -0,0 +1,157 @@
+package org.dicio.numbers.parser.param
+
+import org.dicio.numbers.parser.Parser
+import org.dicio.numbers.parser.lexer.FirstSet
+import org.dicio.numbers.parser.lexer.TokenStream
+import java.time.LocalDateTime
+
+/**
+ * Extracts date times, durations and numbers together, in a single pass over a single token
+ * stream: at each position all of the enabled [types] are tried, and the [overlap] resolution
+ * decides which one wins. The results are [LocalDateTime], [org.dicio.numbers.unit.Duration] and
+ * [org.dicio.numbers.unit.Number] objects, and never overlap, since the extraction continues after
+ * the end of each result. Use [spans] to get the position of each of them.
+ *
+ * Memoization is enabled by default, so that the number rules that date time and duration
+ * extraction are built upon are evaluated only once per position, and shared by all types.
+ */
+class ExtractAllParams(parser: Parser, utterance: String) :
+    NumberParserParams<Any?>(parser, utterance) {
+    /**
+     * A type of object that can be extracted.
+     */
+    enum class Type {
+        DATE_TIME,
+        DURATION,
+        NUMBER,
+    }
+
+    /**
+     * How to choose the result at a position where multiple types could be extracted.
+     */
+    enum class Overlap {
+        /**
+         * The first type in the priority order passed to [types] that can be extracted wins.
+         */
+        PRIORITY,
+
+        /**
+         * The type whose result uses the most tokens wins, and ties are broken by the priority
+         * order passed to [types]. For example, "two days" is a duration and not the number two,
+         * and "five pm" is a date time and not the number five.
+         */
+        LONGEST,
+    }
+
+    // default values
+    private var now: LocalDateTime = LocalDateTime.now()
+    private var shortScale = true
+    private var preferOrdinal = false
+    private var preferMonthBeforeDay = false
+    // bare numbers could also be days of the month, but they are more likely to be just numbers
+    private var types = listOf(Type.NUMBER, Type.DURATION, Type.DATE_TIME)
+    private var overlap = Overlap.LONGEST
+
+    init {
+        memoize = true
+    }
+
+    fun now(now: LocalDateTime): ExtractAllParams {
+        this.now = now
+        return this
+    }
+
+    fun shortScale(shortScale: Boolean): ExtractAllParams {
+        this.shortScale = shortScale
+        return this
+    }
+
+    fun preferOrdinal(preferOrdinal: Boolean): ExtractAllParams {
+        this.preferOrdinal = preferOrdinal
+        return this
+    }
+
+    fun preferMonthBeforeDay(preferMonthBeforeDay: Boolean): ExtractAllParams {
+        this.preferMonthBeforeDay = preferMonthBeforeDay
+        return this
+    }
+
+    /**
+     * @param types the types of objects to extract, in order of priority (see [Overlap]). The
+     * default is [Type.NUMBER], [Type.DURATION], [Type.DATE_TIME], which with [Overlap.LONGEST]
+     * means that a number is only part of a duration or date time if that uses more tokens.
+     * @return this
+     */
+    fun types(vararg types: Type): ExtractAllParams {
+        require(types.isNotEmpty()) { "At least one type must be extracted" }
+        this.types = types.distinct()
+        return this
+    }
+
+    /**
+     * @param overlap how to choose between types that can be extracted at the same position. The
+     * default is [Overlap.LONGEST].
+     * @return this
+     */
+    fun overlap(overlap: Overlap): ExtractAllParams {
+        this.overlap = overlap
+        return this
+    }
+
+    /**
+     * @param memoize whether to remember the results of the extractor rules at each position of
+     * the utterance, which allows sharing them between the different types. The default is true.
+     * @return this
+     */
+    fun memoize(memoize: Boolean): ExtractAllParams {
+        this.memoize = memoize
+        return this
+    }
+
+    /**
+     * @param document whether the utterance is a long document (e.g. an email or a meeting
+     * transcript) in which objects are rare. Then the whole document is first searched for the
+     * words that could start an object, and only the text around them is tokenized and scanned.
+     * The results are the same, but the [Span]s have -1 as [Span.startToken] and [Span.endToken].
+     * The default is false.
+     * @return this
+     */
+    fun document(document: Boolean): ExtractAllParams {
+        this.document = document
+        return this
+    }
+
+    override fun getExtractorAtCurrentPosition(tokenStream: TokenStream): () -> Any? {
+        val extractors: Array<() -> Any?> = types.map { type ->
+            when (type) {
+                Type.DATE_TIME -> parser.extractDateTime(
+                    tokenStream, shortScale, preferMonthBeforeDay, now
+                )
+                Type.DURATION -> parser.extractDuration(tokenStream, shortScale)
+                Type.NUMBER -> parser.extractNumber(tokenStream, shortScale, preferOrdinal)
+            }
+        }.toTypedArray()
+
+        return when (overlap) {
+            Overlap.LONGEST -> fun(): Any? = tokenStream.firstWhichUsesMostTokens(*extractors)
+            Overlap.PRIORITY -> fun(): Any? {
+                val originalPosition = tokenStream.position
+                for (extractor in extractors) {
+                    tokenStream.position = originalPosition
+                    extractor()?.let { return it }
+                }
+                tokenStream.position = originalPosition
+                return null
+            }
+        }
+    }
+
+    override val firstSet: FirstSet
+        get() = types.map { type ->
+            when (type) {
+                Type.DATE_TIME -> parser.dateTimeFirstSet
+                Type.DURATION -> parser.durationFirstSet
+                Type.NUMBER -> parser.numberFirstSet
+            }
+        }.reduce(FirstSet::plus)
+}
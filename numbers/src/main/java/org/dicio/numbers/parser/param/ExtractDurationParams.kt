@@ -1,6 +1,7 @@
 package org.dicio.numbers.parser.param
 
 import org.dicio.numbers.parser.Parser
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 
@@ -22,7 +23,35 @@ class ExtractDurationParams(parser: Parser, utterance: String) :
         return this
     }
 
+    /**
+     * @param memoize whether to remember the results of the extractor rules at each position of
+     * the utterance, so that rules tried again at the same position by different alternatives are
+     * not evaluated again. Uses more memory but can be faster for long utterances. The default is
+     * false.
+     * @return this
+     */
+    fun memoize(memoize: Boolean): ExtractDurationParams {
+        this.memoize = memoize
+        return this
+    }
+
+    /**
+     * @param document whether the utterance is a long document (e.g. an email or a meeting
+     * transcript) in which objects are rare. Then the whole document is first searched for the
+     * words that could start an object, and only the text around them is tokenized and scanned.
+     * The results are the same, but the [Span]s have -1 as [Span.startToken] and [Span.endToken].
+     * The default is false.
+     * @return this
+     */
+    fun document(document: Boolean): ExtractDurationParams {
+        this.document = document
+        return this
+    }
+
     override fun getExtractorAtCurrentPosition(tokenStream: TokenStream): () -> Duration? {
         return parser.extractDuration(tokenStream, shortScale)
     }
+
+    override val firstSet: FirstSet
+        get() = parser.durationFirstSet
 }
@@ -0,0 +1,60 @@
+package org.dicio.numbers.parser.param
+
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Process-wide counters about the utterances scanned by [NumberParserParams], e.g. to monitor how
+ * much of the traffic is answered by the quick reject, i.e. without running any extractor since
+ * no token of the utterance is in the first set of the extractor (see
+ * [org.dicio.numbers.parser.lexer.FirstSet]). Each call to `first`, `mixedWithText` and similar,
+ * and each iteration of a sequence, counts as one scan, even when the text is extracted from in
+ * chunks or segments (e.g. by `spansInParallel` or `spanSequenceOf`), in which case it is a quick
+ * reject only if all of them are. The counters can be updated from multiple threads at the same
+ * time with little contention.
+ */
+object ExtractionMetrics {
+    private val scans = LongAdder()
+    private val quickRejects = LongAdder()
+
+    /**
+     * How many utterances were scanned since the start of the process (or the last [reset]).
+     */
+    @JvmStatic
+    val scanCount: Long
+        get() = scans.sum()
+
+    /**
+     * How many of the [scanCount] scans were quick rejects.
+     */
+    @JvmStatic
+    val quickRejectCount: Long
+        get() = quickRejects.sum()
+
+    /**
+     * The fraction of scans that were quick rejects, from 0.0 to 1.0, or 0.0 if nothing was
+     * scanned yet. Both counters are read separately, so the result is only approximate while
+     * other threads are scanning.
+     */
+    @JvmStatic
+    val quickRejectRate: Double
+        get() {
+            val scanCount = scanCount
+            return if (scanCount == 0L) 0.0 else quickRejectCount.toDouble() / scanCount
+        }
+
+    /**
+     * Sets all counters back to 0.
+     */
+    @JvmStatic
+    fun reset() {
+        scans.reset()
+        quickRejects.reset()
+    }
+
+    internal fun recordScan(quickReject: Boolean) {
+        scans.increment()
+        if (quickReject) {
+            quickRejects.increment()
+        }
+    }
+}
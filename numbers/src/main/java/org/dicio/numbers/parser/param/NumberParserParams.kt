@@ -1,7 +1,18 @@
 package org.dicio.numbers.parser.param
 
 import org.dicio.numbers.parser.Parser
+import org.dicio.numbers.parser.lexer.FirstSet
+import org.dicio.numbers.parser.lexer.StreamingTokenizer
 import org.dicio.numbers.parser.lexer.TokenStream
+import java.io.Reader
+import java.nio.channels.Channels
+import java.nio.channels.ReadableByteChannel
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
 
 /**
  * TODO add documentation
@@ -9,59 +20,410 @@ import org.dicio.numbers.parser.lexer.TokenStream
 abstract class NumberParserParams<T> protected constructor(
     protected val parser: Parser, private val utterance: String
 ) {
+    // whether to memoize extractor rules on the token stream, see TokenStream.enableMemoization()
+    protected var memoize = false
+    // whether to only tokenize the windows around candidates, see Parser.tokenizeDocument()
+    protected var document = false
+
     protected abstract fun getExtractorAtCurrentPosition(tokenStream: TokenStream): () -> T?
 
+    /**
+     * The tokens at which the extractor returned by [getExtractorAtCurrentPosition] can find
+     * something, see [FirstSet]. The extractor is not even called on the other tokens.
+     */
+    protected open val firstSet: FirstSet
+        get() = FirstSet.ANY
+
+    /**
+     * @param previous the token stream of the previous utterance processed by the same thread,
+     * whose scratch state can be reused, see [TokenStream.enableMemoization]
+     */
+    private fun tokenize(utterance: String, previous: TokenStream? = null): TokenStream {
+        return prepare(
+            if (document) {
+                parser.tokenizeDocument(utterance, firstSet)
+            } else {
+                parser.tokenize(utterance)
+            },
+            previous
+        )
+    }
+
+    private fun prepare(ts: TokenStream, previous: TokenStream?): TokenStream {
+        if (memoize) {
+            ts.enableMemoization(previous)
+        }
+        return ts
+    }
+
 
     val first: T?
-        get() {
-            val ts = parser.tokenize(utterance)
-            val extractorAtCurrentPosition = getExtractorAtCurrentPosition(ts)
-
-            while (!ts.finished()) {
-                val result: T? = extractorAtCurrentPosition()
-                if (result != null) {
-                    // found the first match here, return it
-                    return result
-                }
+        get() = first(utterance, tokenize(utterance))
 
-                // nothing found here, try next position
-                ts.movePositionForwardBy(1)
+    val mixedWithText: List<Any>
+        get() = mixedWithText(utterance, tokenize(utterance))
+
+    /**
+     * The objects found in the utterance, like [first] would find them one after another. The
+     * utterance is only tokenized when iteration starts, and each object is only extracted when
+     * the iterator is advanced to it, so stopping early skips the rest of the extraction. Each
+     * iteration of the sequence starts from the beginning of the utterance again. From Java, use
+     * `getMatchSequence().iterator()`.
+     */
+    val matchSequence: Sequence<T>
+        get() = Sequence {
+            @Suppress("UNCHECKED_CAST")
+            extract(utterance, tokenize(utterance), false) as Iterator<T>
+        }
+
+    /**
+     * Like [matchSequence], but with the text between the objects too, like in [mixedWithText].
+     * The text before an object is only produced once the object itself has been found.
+     */
+    val mixedWithTextSequence: Sequence<Any>
+        get() = Sequence { extract(utterance, tokenize(utterance), true) }
+
+    /**
+     * The objects found in the utterance, like in [matchSequence], each along with its position
+     * in the utterance and among the tokens. See [spanSequence] for a lazy version.
+     */
+    val spans: List<Span<T>>
+        get() = spanSequence.toList()
+
+    /**
+     * Like [matchSequence], but with the position of each object in the utterance and among the
+     * tokens, see [Span].
+     */
+    val spanSequence: Sequence<Span<T>>
+        get() = Sequence {
+            @Suppress("UNCHECKED_CAST")
+            extract(utterance, tokenize(utterance), false, true) as Iterator<Span<T>>
+        }
+
+    /**
+     * Like [first], but for each of [utterances] instead of the utterance this object was created
+     * with, using the parameters set on this object. The utterances are split into chunks, which
+     * are processed in parallel on [executor], and each thread reuses its scratch state for all
+     * of the utterances in a chunk. This object must not be modified until this method returns.
+     *
+     * @param utterances the utterances to extract from
+     * @param executor the executor on which to run the extraction, by default the common
+     * [ForkJoinPool]
+     * @return the results for each of [utterances], in the same order
+     */
+    @JvmOverloads
+    fun firstOf(
+        utterances: List<String>,
+        executor: Executor = ForkJoinPool.commonPool(),
+    ): List<T?> {
+        return extractEach(utterances, executor) { utterance, ts -> first(utterance, ts) }
+    }
+
+    /**
+     * Like [mixedWithText], but for each of [utterances], in parallel on [executor]. See
+     * [firstOf] for details.
+     *
+     * @param utterances the utterances to extract from
+     * @param executor the executor on which to run the extraction, by default the common
+     * [ForkJoinPool]
+     * @return the results for each of [utterances], in the same order
+     */
+    @JvmOverloads
+    fun mixedWithTextOf(
+        utterances: List<String>,
+        executor: Executor = ForkJoinPool.commonPool(),
+    ): List<List<Any>> {
+        return extractEach(utterances, executor) { utterance, ts -> mixedWithText(utterance, ts) }
+    }
+
+    /**
+     * Like [spans], but for a long utterance (e.g. a whole document), which is split into chunks
+     * that are tokenized and extracted from in parallel on [executor]. The utterance is only split
+     * where no object could cross the split (see [Parser.safeBoundary]), and the results are
+     * merged in order, so they are exactly the same as those of [spans], including the token
+     * indices. Extractors without a first set are run on the whole utterance at once, and document
+     * mode is not used. This object must not be modified until this method returns.
+     *
+     * @param executor the executor on which to run the extraction, by default the common
+     * [ForkJoinPool]
+     * @return the objects found in the utterance, in order, each with its position
+     */
+    @JvmOverloads
+    fun spansInParallel(executor: Executor = ForkJoinPool.commonPool()): List<Span<T>> {
+        val firstSet = firstSet
+        val chunkCount = if (firstSet.any) {
+            1 // the extractor might match anywhere, so there is no safe boundary
+        } else {
+            minOf(threadsOf(executor) * CHUNKS_PER_THREAD, utterance.length / MIN_CHUNK_LENGTH)
+                .coerceAtLeast(1)
+        }
+
+        // split points roughly evenly spaced, each moved forward to the next safe boundary; since
+        // safe boundaries are found by tokenizing only a few words, this is done sequentially
+        val boundaries = IntArray(chunkCount + 1)
+        for (i in 1 until chunkCount) {
+            boundaries[i] = maxOf(
+                boundaries[i - 1],
+                parser.safeBoundary(utterance, utterance.length / chunkCount * i, firstSet)
+            )
+        }
+        boundaries[chunkCount] = utterance.length
+
+        val tokenCounts = IntArray(chunkCount)
+        val quickRejects = BooleanArray(chunkCount)
+        val results = arrayOfNulls<List<Span<T>>>(chunkCount)
+        runAll((0 until chunkCount).map { i ->
+            CompletableFuture.runAsync({
+                val ts = prepare(parser.tokenize(utterance, boundaries[i], boundaries[i + 1]), null)
+                tokenCounts[i] = ts.size
+                @Suppress("UNCHECKED_CAST")
+                results[i] = extract(utterance, ts, false, true, true) { quickRejects[i] = it }
+                    .asSequence().toList() as List<Span<T>>
+            }, executor)
+        })
+        // the whole utterance counts as a single scan, see ExtractionMetrics
+        ExtractionMetrics.recordScan(quickRejects.all { it })
+
+        // the tokens of each chunk are the same as in the whole utterance, so token indices only
+        // need to be shifted by the number of tokens in the previous chunks
+        val spans = ArrayList<Span<T>>()
+        var tokenOffset = 0
+        for (i in 0 until chunkCount) {
+            for (span in results[i]!!) {
+                spans.add(
+                    Span(
+                        span.value, span.start, span.end,
+                        tokenOffset + span.startToken, tokenOffset + span.endToken
+                    )
+                )
             }
+            tokenOffset += tokenCounts[i]
+        }
+        return spans
+    }
 
-            // nothing was found at any position
-            return null
+    /**
+     * Like [mixedWithText], but extracting from chunks of the utterance in parallel on
+     * [executor], see [spansInParallel] for details.
+     *
+     * @param executor the executor on which to run the extraction, by default the common
+     * [ForkJoinPool]
+     * @return the objects found in the utterance, in order, with the text between them
+     */
+    @JvmOverloads
+    fun mixedWithTextInParallel(executor: Executor = ForkJoinPool.commonPool()): List<Any> {
+        val textAndObjects: MutableList<Any> = ArrayList()
+        var textStart = 0
+        for (span in spansInParallel(executor)) {
+            if (span.start > textStart) {
+                textAndObjects.add(utterance.substring(textStart, span.start))
+            }
+            textAndObjects.add(span.value as Any)
+            textStart = span.end
         }
+        if (textStart < utterance.length) {
+            textAndObjects.add(utterance.substring(textStart))
+        }
+        return textAndObjects
+    }
 
-    val mixedWithText: List<Any>
-        get() {
-            val ts = parser.tokenize(utterance)
-            val extractorAtCurrentPosition = getExtractorAtCurrentPosition(ts)
-            val textAndObjects: MutableList<Any> = ArrayList()
-            val currentText = StringBuilder()
-
-            while (!ts.finished()) {
-                val o: Any? = extractorAtCurrentPosition()
-
-                if (o == null) {
-                    // no object here, add text and spaces of the current token to currentText instead
-                    currentText.append(ts[0].value)
-                    currentText.append(ts[0].spacesFollowing)
-                    ts.movePositionForwardBy(1)
-                } else {
-                    if (currentText.isNotEmpty()) {
-                        textAndObjects.add(currentText.toString()) // add the text before the object
-                        currentText.setLength(0) // clear the string builder efficiently
-                    }
-                    textAndObjects.add(o)
-                    currentText.append(ts[-1].spacesFollowing) // spaces after the object
+    /**
+     * Like [spanSequence], but for the text read from [reader] instead of the utterance this
+     * object was created with. The text can be arbitrarily long, since it is tokenized and
+     * extracted from one segment at a time while the sequence is iterated, and only one segment
+     * of text, at most [bufferSize] characters long, and its tokens are kept in memory at any
+     * time. Segments are split where no object could cross the split, so the results are the same
+     * as for [spans] on the whole text, as long as the buffer is longer than any object, see
+     * [StreamingTokenizer]. Document mode is not used. The reader is not closed.
+     *
+     * @param reader the reader to read the text from, only while the sequence is iterated, so
+     * the sequence can be iterated only once
+     * @param bufferSize how many characters of text to read at once
+     * @return the objects found in the text, in order, each with its position in the whole text
+     */
+    @JvmOverloads
+    fun spanSequenceOf(
+        reader: Reader,
+        bufferSize: Int = STREAM_BUFFER_SIZE,
+    ): Sequence<Span<T>> {
+        val streamingTokenizer = parser.streamingTokenizer(reader, firstSet, bufferSize)
+        return sequence {
+            var previous: TokenStream? = null
+            var tokenOffset = 0
+            // the whole text counts as a single scan, see ExtractionMetrics, which is a quick
+            // reject only if all of the segments are; it is recorded as soon as that is known
+            var recorded = false
+            val onScan = { quickReject: Boolean ->
+                if (!quickReject && !recorded) {
+                    ExtractionMetrics.recordScan(false)
+                    recorded = true
                 }
             }
+            while (true) {
+                val segment = streamingTokenizer.nextSegment() ?: break
+                val ts = prepare(TokenStream(segment.tokens), previous)
+                for (o in extract(segment.source, ts, false, true, true, onScan)) {
+                    @Suppress("UNCHECKED_CAST")
+                    val span = o as Span<T>
+                    // the positions of the tokens are relative to the segment
+                    yield(
+                        Span(
+                            span.value, segment.offset + span.start, segment.offset + span.end,
+                            tokenOffset + span.startToken, tokenOffset + span.endToken
+                        )
+                    )
+                }
+                tokenOffset += ts.size
+                previous = ts
+            }
+            if (!recorded) {
+                ExtractionMetrics.recordScan(true)
+            }
+        }.constrainOnce()
+    }
+
+    /**
+     * Like [spanSequenceOf], but for the text decoded with [charset] from the bytes read from
+     * [channel], which is not closed.
+     */
+    @JvmOverloads
+    fun spanSequenceOf(
+        channel: ReadableByteChannel,
+        charset: Charset = StandardCharsets.UTF_8,
+        bufferSize: Int = STREAM_BUFFER_SIZE,
+    ): Sequence<Span<T>> {
+        return spanSequenceOf(Channels.newReader(channel, charset.newDecoder(), -1), bufferSize)
+    }
+
+
+    private fun first(utterance: String, ts: TokenStream): T? {
+        val objects = extract(utterance, ts, false)
+        @Suppress("UNCHECKED_CAST")
+        return if (objects.hasNext()) objects.next() as T else null
+    }
+
+    private fun mixedWithText(utterance: String, ts: TokenStream): List<Any> {
+        val textAndObjects: MutableList<Any> = ArrayList()
+        extract(utterance, ts, true).forEach(textAndObjects::add)
+        return textAndObjects
+    }
 
-            if (currentText.isNotEmpty()) {
-                // add leftover text
-                textAndObjects.add(currentText.toString())
+    /**
+     * Lazily extracts the objects in [utterance] from [ts], moving forward to the next token in
+     * [firstSet] where nothing is found.
+     * @param withText whether to also produce the text between the objects
+     * @param asSpans whether to produce each object wrapped in a [Span]
+     * @param tokenIndices whether the spans contain the indices of their tokens in [ts], which
+     * are meaningless in document mode
+     * @param onScan called with whether the scan was a quick reject, by default records it in
+     * [ExtractionMetrics]; callers extracting from parts of a text combine the parts into one
+     */
+    private fun extract(
+        utterance: String,
+        ts: TokenStream,
+        withText: Boolean,
+        asSpans: Boolean = false,
+        tokenIndices: Boolean = !document,
+        onScan: (Boolean) -> Unit = ExtractionMetrics::recordScan,
+    ): Iterator<Any> = iterator {
+        val firstSet = firstSet
+        ts.movePositionForwardBy(ts.indexOfFirstSet(firstSet, 0))
+        onScan(ts.finished())
+        if (ts.finished()) {
+            // quick reject: no token can start an object, so do not even build the extractor
+            if (withText && utterance.isNotEmpty()) {
+                yield(utterance)
+            }
+            return@iterator
+        }
+
+        val extractorAtCurrentPosition = getExtractorAtCurrentPosition(ts)
+        // the text between objects is sliced directly from the utterance, since tokens contain
+        // the position in the utterance of their value and of their following spaces
+        var textStart = 0
+
+        while (!ts.finished()) {
+            val textEnd = ts.startOf(0)
+            val startToken = ts.position
+            val o: Any? = extractorAtCurrentPosition()
+
+            if (o == null) {
+                // no object here, the current token will be part of the text
+                ts.movePositionForwardBy(1)
+            } else {
+                if (withText && textEnd > textStart) {
+                    // add the text before the object
+                    yield(utterance.substring(textStart, textEnd))
+                }
+                textStart = ts.endOf(-1) // the spaces after the object are part of the text
+                yield(
+                    if (!asSpans) {
+                        o
+                    } else if (!tokenIndices) {
+                        // most tokens of the utterance are never created, see Span
+                        Span(o, textEnd, textStart, -1, -1)
+                    } else {
+                        Span(o, textEnd, textStart, startToken, ts.position)
+                    }
+                )
             }
+            // skip the tokens at which nothing can be found, they will be part of the text
+            ts.movePositionForwardBy(ts.indexOfFirstSet(firstSet, 0))
+        }
+
+        if (withText && textStart < utterance.length) {
+            // add leftover text
+            yield(utterance.substring(textStart))
+        }
+    }
+
+    private fun <R> extractEach(
+        utterances: List<String>,
+        executor: Executor,
+        extract: (String, TokenStream) -> R,
+    ): List<R> {
+        val input = utterances.toTypedArray() // random access even if utterances is not
+        val results = arrayOfNulls<Any>(input.size)
+        val threads = threadsOf(executor)
+        // a few chunks per thread, so that threads which get the faster chunks can take more
+        val chunkSize = maxOf(1, (input.size + threads * CHUNKS_PER_THREAD - 1)
+                / (threads * CHUNKS_PER_THREAD))
+
+        val chunks = (input.indices step chunkSize).map { chunkStart ->
+            CompletableFuture.runAsync({
+                var previous: TokenStream? = null
+                for (i in chunkStart until minOf(chunkStart + chunkSize, input.size)) {
+                    val ts = tokenize(input[i], previous)
+                    results[i] = extract(input[i], ts)
+                    previous = ts
+                }
+            }, executor)
+        }
+
+        runAll(chunks)
+        @Suppress("UNCHECKED_CAST")
+        return results.asList() as List<R>
+    }
+
+    private fun runAll(futures: List<CompletableFuture<Void>>) {
+        try {
+            // completing the futures also makes the writes to results visible to this thread
+            CompletableFuture.allOf(*futures.toTypedArray()).join()
+        } catch (e: CompletionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    companion object {
+        private const val CHUNKS_PER_THREAD = 4
+        // shorter chunks are not worth the overhead of finding safe boundaries and of threads
+        private const val MIN_CHUNK_LENGTH = 4096
+        // the default size of the buffer through which text is read in spanSequenceOf()
+        private const val STREAM_BUFFER_SIZE = 1 shl 16
 
-            return textAndObjects
+        private fun threadsOf(executor: Executor): Int {
+            return (executor as? ForkJoinPool)?.parallelism
+                ?: Runtime.getRuntime().availableProcessors()
         }
+    }
 }
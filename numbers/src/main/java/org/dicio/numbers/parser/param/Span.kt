@@ -0,0 +1,45 @@
+package org.dicio.numbers.parser.param
+
+import java.util.Objects
+
+/**
+ * An object extracted from an utterance, along with where it was found. The positions come
+ * directly from the tokens the object was extracted from, so there is never any ambiguity even if
+ * the same value appears multiple times in the utterance.
+ *
+ * @param value the extracted object, e.g. a [org.dicio.numbers.unit.Number]
+ * @param start the index in the utterance of the first character of the object
+ * @param end the index in the utterance right after the last character of the object, excluding
+ * any spaces following it, so that `utterance.substring(start, end)` is the text of the object
+ * @param startToken the index of the first token of the object, among the tokens returned by
+ * [org.dicio.numbers.parser.Parser.tokenize] for the utterance, or -1 in document mode (see e.g.
+ * [ExtractNumberParams.document]), where most of the utterance is never tokenized
+ * @param endToken the index right after the last token of the object, or -1 in document mode
+ */
+class Span<T>(
+    @JvmField val value: T,
+    @JvmField val start: Int,
+    @JvmField val end: Int,
+    @JvmField val startToken: Int,
+    @JvmField val endToken: Int,
+) {
+    override fun equals(other: Any?): Boolean {
+        if (this === other) {
+            return true
+        } else if (other == null || javaClass != other.javaClass) {
+            return false
+        } else {
+            val span = other as Span<*>
+            return value == span.value && start == span.start && end == span.end
+                    && startToken == span.startToken && endToken == span.endToken
+        }
+    }
+
+    override fun hashCode(): Int {
+        return Objects.hash(value, start, end, startToken, endToken)
+    }
+
+    override fun toString(): String {
+        return "$value@[$start,$end)"
+    }
+}
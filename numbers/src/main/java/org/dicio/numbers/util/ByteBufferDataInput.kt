@@ -0,0 +1,61 @@
+package org.dicio.numbers.util
+
+import java.io.DataInputStream
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.IntBuffer
+
+/**
+ * A [DataInputStream] reading from a [ByteBuffer], e.g. a memory-mapped file, which can also
+ * provide views of the arrays in the buffer instead of copying them to the heap. Since
+ * [DataInputStream] never reads ahead, the position of the buffer is always right after the data
+ * read so far.
+ */
+internal class ByteBufferDataInput(private val buffer: ByteBuffer) :
+    DataInputStream(ByteBufferInputStream(buffer)) {
+
+    /**
+     * @return a view of the next [size] big-endian ints in the buffer (as written by
+     * [java.io.DataOutputStream.writeInt]), which are then skipped
+     */
+    fun intView(size: Int): IntBuffer {
+        return view(size * Int.SIZE_BYTES).asIntBuffer()
+    }
+
+    /**
+     * @return a view of the next [size] big-endian chars in the buffer (as written by
+     * [java.io.DataOutputStream.writeChar]), which are then skipped
+     */
+    fun charView(size: Int): CharBuffer {
+        return view(size * Char.SIZE_BYTES).asCharBuffer()
+    }
+
+    private fun view(bytes: Int): ByteBuffer {
+        val view = buffer.duplicate()
+        view.limit(view.position() + bytes) // throws if there are not enough bytes left
+        buffer.position(buffer.position() + bytes)
+        return view.slice() // slices are always big-endian, like DataOutputStream
+    }
+
+    private class ByteBufferInputStream(private val buffer: ByteBuffer) : InputStream() {
+        override fun read(): Int {
+            return if (buffer.hasRemaining()) buffer.get().toInt() and 0xff else -1
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (len == 0) {
+                return 0
+            } else if (!buffer.hasRemaining()) {
+                return -1
+            }
+            val count = minOf(len, buffer.remaining())
+            buffer.get(b, off, count)
+            return count
+        }
+
+        override fun available(): Int {
+            return buffer.remaining()
+        }
+    }
+}
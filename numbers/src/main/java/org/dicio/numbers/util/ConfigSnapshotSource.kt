@@ -0,0 +1,15 @@
+package org.dicio.numbers.util
+
+/**
+ * Provides config snapshots (see [ConfigSnapshots]) compiled into classes, so that loading them
+ * does not need any resource lookup. Implementations are generated at build time by the
+ * `generateConfigSources` Gradle task and discovered with [java.util.ServiceLoader].
+ */
+interface ConfigSnapshotSource {
+    /**
+     * @param path the path the snapshot would have as a resource, e.g.
+     * `config/en-us/tokenizer.bin`
+     * @return the content of the snapshot, or null if this source does not contain it
+     */
+    fun snapshot(path: String): ByteArray?
+}
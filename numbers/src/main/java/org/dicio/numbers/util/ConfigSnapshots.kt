@@ -0,0 +1,252 @@
+package org.dicio.numbers.util
+
+import org.dicio.numbers.formatter.datetime.DateTimeConfig
+import org.dicio.numbers.parser.lexer.Tokenizer
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.ServiceLoader
+
+/**
+ * Binary snapshots of the language configurations, i.e. the fully built tables of [Tokenizer] and
+ * [DateTimeConfig], which load much faster than parsing the json files they are built from. The
+ * snapshots are generated at build time by running [main], either as resources placed next to the
+ * json files, e.g. `config/en-us/tokenizer.bin` (see the `generateConfigSnapshots` Gradle task),
+ * or compiled into a [ConfigSnapshotSource] (see the `generateConfigSources` Gradle task). Since
+ * generating them loads the json files, invalid configurations make the build fail. Snapshots can
+ * also be memory-mapped from a directory, see [snapshotDirectory]. When a snapshot is missing or
+ * was written with a different [FORMAT_VERSION], the json files are used.
+ */
+object ConfigSnapshots {
+    /**
+     * The version of the snapshot format, to be increased whenever the way [Tokenizer] or
+     * [DateTimeConfig] write their snapshots changes.
+     */
+    const val FORMAT_VERSION = 1
+
+    const val TOKENIZER_FILE = "tokenizer.bin"
+    const val DATE_TIME_CONFIG_FILE = "date_time.bin"
+
+    // written at the beginning of the snapshots, to recognize their content
+    internal const val TOKENIZER_MAGIC = 0x444e544b // "DNTK"
+    internal const val DATE_TIME_CONFIG_MAGIC = 0x444e4454 // "DNDT"
+
+    // the package and name of the generated ConfigSnapshotSource
+    private const val GENERATED_PACKAGE = "org.dicio.numbers.generated"
+    private const val GENERATED_CLASS = "GeneratedConfigSnapshots"
+    // the maximum number of bytes in each string constant of the generated source, so that the
+    // constant stays below the class file limit of 65535 bytes even if every byte takes two
+    private const val GENERATED_CHUNK_SIZE = 30000
+
+    // the snapshots compiled into classes, if any were generated
+    private val SOURCES: List<ConfigSnapshotSource> by lazy {
+        ServiceLoader.load(
+            ConfigSnapshotSource::class.java, ConfigSnapshotSource::class.java.classLoader
+        ).toList()
+    }
+
+    /**
+     * A directory containing snapshots written by [main] (e.g. by the `generateConfigSnapshots`
+     * Gradle task), which take precedence over any other snapshot. The snapshots in it are
+     * memory-mapped instead of being read, and the tries of [Tokenizer] are used directly from the
+     * mapped file without copying them to the heap, so that all of the processes on a host that
+     * use the same directory share a single copy of them through the page cache. Should be set
+     * before any language is loaded, since loaded configurations are never reloaded.
+     */
+    @JvmStatic
+    @Volatile
+    var snapshotDirectory: Path? = null
+
+    internal fun writeHeader(output: DataOutputStream, magic: Int) {
+        output.writeInt(magic)
+        output.writeInt(FORMAT_VERSION)
+    }
+
+    /**
+     * Reads the whole snapshot with a single sequential read and checks its header.
+     * @return the content of the snapshot after the header
+     * @throws IOException if the snapshot cannot be read or does not have the expected header
+     */
+    @Throws(IOException::class)
+    internal fun read(input: InputStream, magic: Int): DataInputStream {
+        val bytes = input.use { it.readAllBytes() }
+        return readHeader(DataInputStream(ByteArrayInputStream(bytes)), bytes.size, magic)
+    }
+
+    /**
+     * Maps the snapshot in [file] in memory and checks its header.
+     * @return the content of the snapshot after the header, which can be viewed in place
+     * @throws IOException if the snapshot cannot be mapped or does not have the expected header
+     */
+    @Throws(IOException::class)
+    internal fun map(file: Path, magic: Int): ByteBufferDataInput {
+        val buffer = ResourceOpener.mapFile(file)
+        return readHeader(ByteBufferDataInput(buffer), buffer.remaining(), magic)
+    }
+
+    @Throws(IOException::class)
+    private fun <D : DataInputStream> readHeader(data: D, size: Int, magic: Int): D {
+        if (size < 8 || data.readInt() != magic) {
+            throw IOException("Not a config snapshot of the expected type")
+        }
+        val version = data.readInt()
+        if (version != FORMAT_VERSION) {
+            throw IOException("Unsupported config snapshot version $version")
+        }
+        return data
+    }
+
+    /**
+     * @param path the path of the snapshot, e.g. `config/en-us/tokenizer.bin`, which is looked up
+     * in the [snapshotDirectory] first, then in the generated [ConfigSnapshotSource]s, and then
+     * among resources
+     * @return the content of the snapshot after the header, or null if there is no such snapshot
+     * or if it was not written with the current snapshot format, in which case the json files
+     * should be used instead
+     */
+    internal fun open(path: String, magic: Int): DataInputStream? {
+        val file = snapshotDirectory?.resolve(path)
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                return map(file, magic)
+            } catch (e: IOException) {
+                // fall back to the other snapshots
+            }
+        }
+
+        val input = SOURCES.firstNotNullOfOrNull { it.snapshot(path) }?.let(::ByteArrayInputStream)
+            ?: ResourceOpener.getResourceAsStreamOrNull(path)
+            ?: return null
+        return try {
+            read(input, magic)
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    /**
+     * Used by the generated [ConfigSnapshotSource] to decode the string constants in which it
+     * stores snapshots, one byte per character.
+     */
+    @JvmStatic
+    fun decode(chunks: Array<String>): ByteArray {
+        val bytes = ByteArray(chunks.sumOf { it.length })
+        var i = 0
+        for (chunk in chunks) {
+            for (c in chunk) {
+                bytes[i++] = c.code.toByte()
+            }
+        }
+        return bytes
+    }
+
+    /**
+     * Writes the snapshots of some language configurations, reading their json files from the
+     * classpath. Fails if any of the configurations is invalid.
+     * @param args the output directory followed by the config folders to write snapshots for,
+     * e.g. `build/snapshots config/en-us config/it-it`. If the first argument is `--java`, the
+     * snapshots are written as the Java source of a [ConfigSnapshotSource], along with the
+     * `META-INF/services` file needed to find it, instead of as resources.
+     */
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val java = args.firstOrNull() == "--java"
+        val otherArgs = if (java) args.drop(1) else args.toList()
+        require(otherArgs.isNotEmpty()) {
+            "Usage: ConfigSnapshots [--java] OUTPUT_DIR CONFIG_FOLDER..."
+        }
+        val outputDir = File(otherArgs[0])
+
+        val snapshots = LinkedHashMap<String, ByteArray>()
+        for (configFolder in otherArgs.drop(1)) {
+            try {
+                snapshots["$configFolder/$TOKENIZER_FILE"] = ByteArrayOutputStream().also {
+                    Tokenizer.writeSnapshot(configFolder, it)
+                }.toByteArray()
+                snapshots["$configFolder/$DATE_TIME_CONFIG_FILE"] = ByteArrayOutputStream().also {
+                    DateTimeConfig.writeSnapshot(configFolder, it)
+                }.toByteArray()
+            } catch (e: RuntimeException) {
+                throw IllegalArgumentException(
+                    "Invalid configuration in $configFolder: ${e.message}", e
+                )
+            }
+        }
+
+        if (java) {
+            writeFile(
+                File(outputDir, GENERATED_PACKAGE.replace('.', '/') + "/$GENERATED_CLASS.java"),
+                generateJavaSource(snapshots).toByteArray()
+            )
+            writeFile(
+                File(outputDir, "META-INF/services/" + ConfigSnapshotSource::class.java.name),
+                "$GENERATED_PACKAGE.$GENERATED_CLASS\n".toByteArray()
+            )
+        } else {
+            for ((path, snapshot) in snapshots) {
+                writeFile(File(outputDir, path), snapshot)
+            }
+        }
+    }
+
+    private fun writeFile(file: File, content: ByteArray) {
+        val folder = file.parentFile
+        if (!folder.isDirectory && !folder.mkdirs()) {
+            throw IOException("Could not create directory $folder")
+        }
+        file.writeBytes(content)
+    }
+
+    private fun generateJavaSource(snapshots: Map<String, ByteArray>): String {
+        val source = StringBuilder()
+        source.append("// generated by ${ConfigSnapshots::class.java.name}, do not edit\n")
+            .append("package $GENERATED_PACKAGE;\n\n")
+            .append("import ${ConfigSnapshotSource::class.java.name};\n")
+            .append("import ${ConfigSnapshots::class.java.name};\n\n")
+            .append("public final class $GENERATED_CLASS implements ")
+            .append("${ConfigSnapshotSource::class.java.simpleName} {\n")
+            .append("    @Override\n")
+            .append("    public byte[] snapshot(final String path) {\n")
+            .append("        switch (path) {\n")
+        for ((index, path) in snapshots.keys.withIndex()) {
+            source.append("            case \"$path\":\n")
+                .append("                return ConfigSnapshots.decode(Snapshot$index.DATA);\n")
+        }
+        source.append("            default:\n")
+            .append("                return null;\n")
+            .append("        }\n")
+            .append("    }\n")
+
+        // each snapshot is in its own nested class, so that only the requested ones are loaded
+        for ((index, snapshot) in snapshots.values.withIndex()) {
+            source.append("\n    private static final class Snapshot$index {\n")
+                .append("        static final String[] DATA = {\n")
+            for (chunkStart in snapshot.indices step GENERATED_CHUNK_SIZE) {
+                val chunkEnd = minOf(chunkStart + GENERATED_CHUNK_SIZE, snapshot.size)
+                source.append("            \"")
+                for (i in chunkStart until chunkEnd) {
+                    if (i != chunkStart && (i - chunkStart) % 32 == 0) {
+                        source.append("\"\n                + \"")
+                    }
+                    val b = snapshot[i].toInt() and 0xff
+                    if (b in 0x20..0x7e && b != '"'.code && b != '\\'.code) {
+                        source.append(b.toChar())
+                    } else {
+                        // always three octal digits, so that following digits are not included
+                        source.append('\\').append(Integer.toOctalString(b).padStart(3, '0'))
+                    }
+                }
+                source.append("\",\n")
+            }
+            source.append("        };\n")
+                .append("    }\n")
+        }
+        return source.append("}\n").toString()
+    }
+}
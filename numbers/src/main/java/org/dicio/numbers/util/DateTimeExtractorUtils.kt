@@ -1,5 +1,7 @@
 package org.dicio.numbers.util
 
+import org.dicio.numbers.parser.lexer.Categories
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import java.time.DayOfWeek
@@ -19,28 +21,42 @@ class DateTimeExtractorUtils(
     private val extractIntegerInRange: (Int, Int) -> Int?
 ) {
     fun ampm(): Boolean? {
-        return bcadOrAmpm("ampm")
+        return bcadOrAmpm(
+            Categories.AMPM_BEFORE, Categories.AMPM_AFTER,
+            Categories.AMPM_BEFORE_COMBINED, Categories.AMPM_AFTER_COMBINED,
+            Categories.AMPM_IDENTIFIER
+        )
     }
 
     fun bcad(): Boolean? {
-        return bcadOrAmpm("bcad")
+        return bcadOrAmpm(
+            Categories.BCAD_BEFORE, Categories.BCAD_AFTER,
+            Categories.BCAD_BEFORE_COMBINED, Categories.BCAD_AFTER_COMBINED,
+            Categories.BCAD_IDENTIFIER
+        )
     }
 
     /**
-     * @param prefix either "bcad" or "ampm", i.e. the prefix to use for the following categories:
-     * _before, _after, _identifier, _before_combined, _after_combined
+     * The parameters are the ids of either the bcad or the ampm categories: e.g. bcad_before,
+     * bcad_after, bcad_before_combined, bcad_after_combined and bcad_identifier.
      * @return false if before+identifier matches, true if after+identifier matches, null otherwise
      */
-    private fun bcadOrAmpm(prefix: String): Boolean? {
+    private fun bcadOrAmpm(
+        before: Int,
+        after: Int,
+        beforeCombined: Int,
+        afterCombined: Int,
+        identifier: Int
+    ): Boolean? {
         ts.movePositionForwardBy(1)
-        val result = if (ts[-1].hasCategory(prefix + "_before")) {
+        val result = if (ts.hasCategory(-1, before)) {
             false
-        } else if (ts[-1].hasCategory(prefix + "_after")) {
+        } else if (ts.hasCategory(-1, after)) {
             true
-        } else if (ts[-1].hasCategory(prefix + "_before_combined")) {
+        } else if (ts.hasCategory(-1, beforeCombined)) {
             // found am or bc in a single word -> return "before"
             return false
-        } else if (ts[-1].hasCategory(prefix + "_after_combined")) {
+        } else if (ts.hasCategory(-1, afterCombined)) {
             // found pm or ad in a single word -> return "after"
             return true
         } else {
@@ -51,8 +67,8 @@ class DateTimeExtractorUtils(
 
         // we can't use ts.indexOfWithoutCategory, since some ignore words might be identifiers
         val foundIdentifier = ts.tryOrSkipCategory(
-            "ignore", true
-        ) { if (ts[0].hasCategory(prefix + "_identifier")) true else null }
+            Categories.IGNORE, true
+        ) { if (ts.hasCategory(0, identifier)) true else null }
         if (foundIdentifier != null) {
             ts.movePositionForwardBy(1)
             return result
@@ -64,18 +80,18 @@ class DateTimeExtractorUtils(
 
 
     fun monthName(): Int? {
-        if (ts[0].hasCategory("month_name")) {
+        if (ts.hasCategory(0, Categories.MONTH_NAME)) {
             ts.movePositionForwardBy(1)
-            return ts[-1].number!!.integerValue().toInt()
+            return ts.integerValueAt(-1).toInt()
         } else {
             return null
         }
     }
 
     fun dayOfWeek(): Int? {
-        if (ts[0].hasCategory("day_of_week")) {
+        if (ts.hasCategory(0, Categories.DAY_OF_WEEK)) {
             ts.movePositionForwardBy(1)
-            return ts[-1].number!!.integerValue().toInt()
+            return ts.integerValueAt(-1).toInt()
         } else {
             return null
         }
@@ -93,7 +109,7 @@ class DateTimeExtractorUtils(
     fun minuteOrSecond(durationCategory: String): Int? {
         val number = extractIntegerInRange(0, 59) ?: return null
 
-        if (ts[0].asDurationToken?.durationCategory == durationCategory) {
+        if (ts.durationAt(0)?.durationCategory == durationCategory) {
             // skip "minuti"/"secondi" said after a minute/second count, e.g. ventiquattro minuti
             ts.movePositionForwardBy(1)
         }
@@ -103,7 +119,7 @@ class DateTimeExtractorUtils(
 
 
     fun relativeToday(): Int? {
-        if (ts[0].hasCategory("today")) {
+        if (ts.hasCategory(0, Categories.TODAY)) {
             ts.movePositionForwardBy(1)
             return 0 // no offset
         } else {
@@ -119,11 +135,11 @@ class DateTimeExtractorUtils(
                 number = 1
             } else {
                 // found a number, e.g. fra due
-                ts.movePositionForwardBy(ts.indexOfWithoutCategory("date_time_ignore", 0))
+                ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 0))
             }
-            if (ts[0].hasCategory("day_of_week")) {
+            if (ts.hasCategory(0, Categories.DAY_OF_WEEK)) {
                 // found a day of week, e.g. giovedì
-                val daysDifference = ts[0].number!!.integerValue().toInt() - now.dayOfWeek.ordinal
+                val daysDifference = ts.integerValueAt(0).toInt() - now.dayOfWeek.ordinal
                 val daysOffset =
                     ((daysDifference + DAYS_IN_WEEK) % DAYS_IN_WEEK // add a week if the two days coincide
                             + (if (daysDifference == 0) DAYS_IN_WEEK else 0) // sum some additional weeks if the input says so
@@ -143,8 +159,8 @@ class DateTimeExtractorUtils(
 
     fun relativeMonthDuration(): Duration? {
         val months = relativeIndicatorDuration({
-            if (ts[0].hasCategory("month_name")) {
-                val monthsDifference = ts[0].number!!.integerValue() - now.month.value
+            if (ts.hasCategory(0, Categories.MONTH_NAME)) {
+                val monthsDifference = ts.integerValueAt(0) - now.month.value
                 val monthsOffset =
                     ((monthsDifference + MONTHS_IN_YEAR) % MONTHS_IN_YEAR // add a year if the two months coincide
                             + (if (monthsDifference == 0L) MONTHS_IN_YEAR else 0))
@@ -169,10 +185,10 @@ class DateTimeExtractorUtils(
         val originalTsPosition = ts.position
 
         var relativeIndicator = 0 // 0 = not found, otherwise the sign, +1 or -1
-        if (ts[0].hasCategory("pre_relative_indicator")) {
+        if (ts.hasCategory(0, Categories.PRE_RELATIVE_INDICATOR)) {
             // there is a relative indicator before, e.g. fra
-            relativeIndicator = if (ts[0].hasCategory("negative")) -1 else 1
-            ts.movePositionForwardBy(ts.indexOfWithoutCategory("date_time_ignore", 1))
+            relativeIndicator = if (ts.hasCategory(0, Categories.NEGATIVE)) -1 else 1
+            ts.movePositionForwardBy(ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 1))
         }
 
         val result: T? = durationExtractor()
@@ -182,12 +198,12 @@ class DateTimeExtractorUtils(
             return null
         }
 
-        val nextNotIgnore = ts.indexOfWithoutCategory("date_time_ignore", 0)
+        val nextNotIgnore = ts.indexOfWithoutCategory(Categories.DATE_TIME_IGNORE, 0)
         if (relativeIndicator == 0
-            && ts[nextNotIgnore].hasCategory("post_relative_indicator")
+            && ts.hasCategory(nextNotIgnore, Categories.POST_RELATIVE_INDICATOR)
         ) {
             // there is a relative indicator after, e.g. due settimane fa
-            relativeIndicator = if (ts[nextNotIgnore].hasCategory("negative")) -1 else 1
+            relativeIndicator = if (ts.hasCategory(nextNotIgnore, Categories.NEGATIVE)) -1 else 1
             ts.movePositionForwardBy(nextNotIgnore + 1)
         }
 
@@ -210,5 +226,36 @@ class DateTimeExtractorUtils(
         fun isMomentOfDayPm(momentOfDay: Int): Boolean {
             return momentOfDay >= 12
         }
+
+        /**
+         * @param numberFirstSet the first set of the number extractor of the language
+         * @return the first set of date time extractors built upon this class (see [FirstSet]),
+         * i.e. numbers, durations, and all of the words that can start a date or a time on their
+         * own, e.g. yesterday, the (day after tomorrow), next (week), march, noon, at (five)
+         */
+        @JvmStatic
+        fun firstSet(numberFirstSet: FirstSet): FirstSet {
+            return DurationExtractorUtils.firstSet(numberFirstSet).withCategories(
+                Categories.PRE_RELATIVE_INDICATOR,
+                Categories.YESTERDAY,
+                Categories.YESTERDAY_ADDER,
+                Categories.TODAY,
+                Categories.TODAY_ADDER,
+                Categories.TOMORROW,
+                Categories.TOMORROW_ADDER,
+                Categories.DAY_ADDER_THE,
+                Categories.DAY_ADDER_DAY,
+                Categories.DAY_OF_WEEK,
+                Categories.MONTH_NAME,
+                Categories.MOMENT_OF_DAY,
+                Categories.NOON_MIDNIGHT_LIKE,
+                Categories.PRE_SPECIAL_HOUR,
+                Categories.PRE_HOUR,
+                Categories.BCAD_BEFORE,
+                Categories.BCAD_AFTER,
+                Categories.BCAD_BEFORE_COMBINED,
+                Categories.BCAD_AFTER_COMBINED,
+            )
+        }
     }
 }
@@ -1,5 +1,7 @@
 package org.dicio.numbers.util
 
+import org.dicio.numbers.parser.lexer.Categories
+import org.dicio.numbers.parser.lexer.FirstSet
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Duration
 import org.dicio.numbers.unit.Number
@@ -40,7 +42,7 @@ class DurationExtractorUtils(
             val number = extractOneNumberNoOrdinal()
             val duration = durationAfterNullableNumber(number)
 
-            if (number == null && duration == null && ts[0].hasCategory("ignore")) {
+            if (number == null && duration == null && ts.hasCategory(0, Categories.IGNORE)) {
                 ts.movePositionForwardBy(1) // skip this ignorable word and continue
             } else if (duration == null) {
                 break
@@ -56,8 +58,8 @@ class DurationExtractorUtils(
 
     private fun durationAfterNullableNumber(number: Number?): Duration? {
         if (number == null) {
-            val durationToken = ts[0].asDurationToken ?: return null
-            if (durationToken.isRestrictedAfterNumber) {
+            val duration = ts.durationAt(0) ?: return null
+            if (duration.restrictedAfterNumber) {
                 // found duration token that requires a number before it, but there is not one,
                 // e.g. s, ms, h
                 return null
@@ -65,16 +67,16 @@ class DurationExtractorUtils(
                 // found valid duration token at current position, without a number before,
                 // e.g. a second (since "a" is not considered a number)
                 ts.movePositionForwardBy(1)
-                return durationToken.durationMultiplier
+                return duration.durationMultiplier
             }
         } else {
-            var nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
-            if (ts[nextNotIgnore].hasCategory("duration_separator")) {
+            var nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+            if (ts.hasCategory(nextNotIgnore, Categories.DURATION_SEPARATOR)) {
                 // found a duration separator (like "of") after the number, e.g. a couple of hours
-                nextNotIgnore = ts.indexOfWithoutCategory("ignore", nextNotIgnore + 1)
+                nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, nextNotIgnore + 1)
             }
 
-            val durationToken = ts[nextNotIgnore].asDurationToken ?:
+            val duration = ts.durationAt(nextNotIgnore) ?:
                 // the number that was found was not followed by a duration multiplier,
                 // e.g. fifteen people, a couple of houses
                 return null
@@ -82,7 +84,18 @@ class DurationExtractorUtils(
             // found a number followed by a duration multiplier,
             // e.g. two seconds, a couple of hours
             ts.movePositionForwardBy(nextNotIgnore + 1)
-            return durationToken.durationMultiplier.multiply(number)
+            return duration.durationMultiplier.multiply(number)
+        }
+    }
+
+    companion object {
+        /**
+         * @param numberFirstSet the first set of the number extractor of the language
+         * @return the first set of [duration] (see [FirstSet]), i.e. numbers and duration words
+         */
+        @JvmStatic
+        fun firstSet(numberFirstSet: FirstSet): FirstSet {
+            return numberFirstSet.withDurationWords()
         }
     }
 }
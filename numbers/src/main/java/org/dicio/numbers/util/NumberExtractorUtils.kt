@@ -1,5 +1,6 @@
 package org.dicio.numbers.util
 
+import org.dicio.numbers.parser.lexer.Categories
 import org.dicio.numbers.parser.lexer.Token
 import org.dicio.numbers.parser.lexer.TokenStream
 import org.dicio.numbers.unit.Number
@@ -29,10 +30,10 @@ object NumberExtractorUtils {
         ts: TokenStream,
         numberSupplier: () -> Number?
     ): Number? {
-        if (ts[0].hasCategory("sign")) {
+        if (ts.hasCategory(0, Categories.SIGN)) {
             // parse sign from e.g. "minus twelve"
 
-            val negative = ts[0].hasCategory("negative")
+            val negative = ts.hasCategory(0, Categories.NEGATIVE)
             ts.movePositionForwardBy(1)
 
             val n = numberSupplier()
@@ -48,15 +49,15 @@ object NumberExtractorUtils {
 
     fun numberBigRaw(ts: TokenStream, allowOrdinal: Boolean): Number? {
         // try to parse big raw numbers (bigger than 999), e.g. 1207, 57378th
-        val nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
-        if (isRawNumber(ts[nextNotIgnore])) {
-            val ordinal = ts[nextNotIgnore + 1].hasCategory("ordinal_suffix")
+        val nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+        if (isRawNumber(ts, nextNotIgnore)) {
+            val ordinal = ts.hasCategory(nextNotIgnore + 1, Categories.ORDINAL_SUFFIX)
             if (!allowOrdinal && ordinal) {
                 return null // do not allow ordinal if allowOrdinal is false
             } else {
                 // a big number in raw form, e.g. 1250067, 5839th
                 ts.movePositionForwardBy(nextNotIgnore + (if (ordinal) 2 else 1))
-                return ts[if (ordinal) -2 else -1].number!!.withOrdinal(ordinal)
+                return ts.numberAt(if (ordinal) -2 else -1)!!.withOrdinal(ordinal)
             }
         } else {
             return null // nothing was found
@@ -109,11 +110,11 @@ object NumberExtractorUtils {
             return groupValue
         }
 
-        val nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
-        val ordinal = ts[nextNotIgnore].hasCategory("ordinal")
-        if (ts[nextNotIgnore].hasCategory("multiplier") && (allowOrdinal || !ordinal)) {
+        val nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+        val ordinal = ts.hasCategory(nextNotIgnore, Categories.ORDINAL)
+        if (ts.hasCategory(nextNotIgnore, Categories.MULTIPLIER) && (allowOrdinal || !ordinal)) {
             // prevent ordinal multiplier if allowOrdinal is false
-            val multiplier = ts[nextNotIgnore].number
+            val multiplier = ts.numberAt(nextNotIgnore)
             if (multiplier!!.lessThan(lastMultiplier)) {
                 ts.movePositionForwardBy(nextNotIgnore + 1)
                 return if (groupValue == null) {
@@ -142,35 +143,35 @@ object NumberExtractorUtils {
         var digit: Long = -1
         var ordinal = false
         while (true) {
-            val nextNotIgnore = ts.indexOfWithoutCategory("ignore", 0)
-            if (!allowOrdinal && ts[nextNotIgnore].hasCategory("ordinal")) {
+            val nextNotIgnore = ts.indexOfWithoutCategory(Categories.IGNORE, 0)
+            if (!allowOrdinal && ts.hasCategory(nextNotIgnore, Categories.ORDINAL)) {
                 // prevent ordinal numbers if allowOrdinal is false
                 break
             }
 
-            if (ts[nextNotIgnore].hasCategory("digit")) {
-                if (digit < 0 && (!ts[nextNotIgnore].isNumberEqualTo(0)
+            if (ts.hasCategory(nextNotIgnore, Categories.DIGIT)) {
+                if (digit < 0 && (!ts.isNumberEqualTo(nextNotIgnore, 0)
                             || (ten < 0 && hundred < 0))
                 ) {
                     // do not allow zero after ten or hundred, e.g. twenty zero or hundred nought
-                    digit = ts[nextNotIgnore].number!!.integerValue()
+                    digit = ts.integerValueAt(nextNotIgnore)
                 } else {
                     break // unexpected double digit
                 }
-            } else if (ts[nextNotIgnore].hasCategory("teen")) {
+            } else if (ts.hasCategory(nextNotIgnore, Categories.TEEN)) {
                 if (ten < 0 && digit < 0) {
-                    ten = ts[nextNotIgnore].number!!.integerValue()
+                    ten = ts.integerValueAt(nextNotIgnore)
                     digit = 0 // ten contains also the digit, but set to 0 to prevent double digit
                 } else {
                     break // unexpected double ten or ten after digit
                 }
-            } else if (ts[nextNotIgnore].hasCategory("tens")) {
+            } else if (ts.hasCategory(nextNotIgnore, Categories.TENS)) {
                 if (ten < 0 && digit < 0) {
-                    ten = ts[nextNotIgnore].number!!.integerValue()
+                    ten = ts.integerValueAt(nextNotIgnore)
                 } else {
                     break // unexpected double ten or ten after digit
                 }
-            } else if (ts[nextNotIgnore].hasCategory("hundred")) {
+            } else if (ts.hasCategory(nextNotIgnore, Categories.HUNDRED)) {
                 if (hundred < 0 && ten < 0) {
                     if (digit < 0) {
                         hundred = 100 // e.g. a hundred
@@ -183,16 +184,16 @@ object NumberExtractorUtils {
                 } else {
                     break // unexpected double hundred
                 }
-            } else if (isRawNumber(ts[nextNotIgnore])) {
+            } else if (isRawNumber(ts, nextNotIgnore)) {
                 // raw number, e.g. 192
-                val rawNumber = ts[nextNotIgnore].number
+                val rawNumber = ts.numberAt(nextNotIgnore)
                 if (rawNumber!!.isDecimal) {
                     // this can happen only for numbers really big, like with 50 digits
                     // so they surely are not less than 1000
                     break
                 }
 
-                if (!allowOrdinal && ts[nextNotIgnore + 1].hasCategory("ordinal_suffix")) {
+                if (!allowOrdinal && ts.hasCategory(nextNotIgnore + 1, Categories.ORDINAL_SUFFIX)) {
                     break // do not allow ordinal if allowOrdinal is false
                 }
 
@@ -224,7 +225,7 @@ object NumberExtractorUtils {
                 }
 
                 // this point is reached only if the raw number was accepted
-                ordinal = ts[nextNotIgnore + 1].hasCategory("ordinal_suffix")
+                ordinal = ts.hasCategory(nextNotIgnore + 1, Categories.ORDINAL_SUFFIX)
                 if (ordinal) {
                     ts.movePositionForwardBy(nextNotIgnore + 2)
                     break // raw number followed by st/nd/rd/th, nothing else allowed, e.g. 407th
@@ -234,7 +235,7 @@ object NumberExtractorUtils {
             }
 
             ts.movePositionForwardBy(nextNotIgnore + 1)
-            if (ts[-1].hasCategory("ordinal")) {
+            if (ts.hasCategory(-1, Categories.ORDINAL)) {
                 // ordinal number encountered, nothing else can follow, e.g. two hundredth
                 ordinal = true
                 break
@@ -252,6 +253,13 @@ object NumberExtractorUtils {
     }
 
     fun isRawNumber(token: Token): Boolean {
-        return token.hasCategory("number") && token.hasCategory("raw")
+        return token.hasCategory(Categories.NUMBER) && token.hasCategory(Categories.RAW)
+    }
+
+    /**
+     * Same as `isRawNumber(ts[aheadBy])`, but faster.
+     */
+    fun isRawNumber(ts: TokenStream, aheadBy: Int): Boolean {
+        return ts.hasCategory(aheadBy, Categories.NUMBER) && ts.hasCategory(aheadBy, Categories.RAW)
     }
 }
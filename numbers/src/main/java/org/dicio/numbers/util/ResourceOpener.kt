@@ -1,7 +1,12 @@
 package org.dicio.numbers.util
 
 import java.io.FileNotFoundException
+import java.io.IOException
 import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
 
 object ResourceOpener {
     @JvmStatic
@@ -13,4 +18,28 @@ object ResourceOpener {
 
         return inputStream
     }
+
+    /**
+     * Like [getResourceAsStream], but for optional resources.
+     * @return the stream of the resource at [path], or null if there is no such resource
+     */
+    @JvmStatic
+    fun getResourceAsStreamOrNull(path: String): InputStream? {
+        val normalizedPath = if (path.startsWith("/")) path else "/$path"
+        return ResourceOpener::class.java.getResourceAsStream(normalizedPath)
+    }
+
+    /**
+     * The filesystem counterpart of [getResourceAsStream], which maps the whole file at [path] in
+     * memory instead of reading it. The returned buffer is read-only and stays valid after the
+     * file is closed, and its pages are shared through the page cache with any other process
+     * mapping the same file.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun mapFile(path: Path): ByteBuffer {
+        return FileChannel.open(path, StandardOpenOption.READ).use {
+            it.map(FileChannel.MapMode.READ_ONLY, 0, it.size())
+        }
+    }
 }
@@ -1,13 +1,23 @@
 package org.dicio.numbers;
 
+import org.dicio.numbers.lang.en.EnglishFormatter;
+import org.dicio.numbers.lang.en.EnglishParser;
+import org.dicio.numbers.lang.es.SpanishParser;
+import org.dicio.numbers.lang.it.ItalianParser;
+import org.dicio.numbers.test.CountingLanguageProvider;
 import org.junit.Test;
 
+import java.time.LocalTime;
 import java.util.Locale;
+import java.util.Set;
 
 import static org.dicio.numbers.ParserFormatterBuilder.ParserFormatterPair;
 import static org.dicio.numbers.ParserFormatterBuilder.parserFormatterPairForLocale;
+import static org.dicio.numbers.test.TestUtils.n;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 public class ParserFormatterBuilderTest {
 
@@ -30,6 +40,60 @@ public class ParserFormatterBuilderTest {
                 npf.extractNumber("hello first twenty four three point two").shortScale(true).preferOrdinal(false).getFirst());
     }
 
+    @Test
+    public void languageProvidersDiscovered() {
+        final Set<String> localeStrings = ParserFormatterBuilder.supportedLocaleStrings();
+        assertTrue(localeStrings.toString(), localeStrings.contains("en"));
+        assertTrue(localeStrings.toString(), localeStrings.contains("it"));
+        assertTrue(localeStrings.toString(), localeStrings.contains("es"));
+    }
+
+    @Test
+    public void parserFormatterPairForLocaleResolution() {
+        final ParserFormatterPair pfp = parserFormatterPairForLocale(Locale.US);
+        assertTrue(pfp.formatter instanceof EnglishFormatter);
+        assertTrue(pfp.parser instanceof EnglishParser);
+        assertTrue(parserFormatterPairForLocale(new Locale("it", "CH")).parser
+                instanceof ItalianParser);
+        assertTrue(parserFormatterPairForLocale(new Locale("es", "MX")).parser
+                instanceof SpanishParser);
+
+        // not shared, a new pair is built each time
+        assertNotSame(pfp.parser, parserFormatterPairForLocale(Locale.US).parser);
+    }
+
+    @Test
+    public void parserFormatterLoadsSidesLazily() {
+        final ParserFormatter pf = new ParserFormatter(new Locale(CountingLanguageProvider.Lazy.LANGUAGE));
+        assertEquals(0, CountingLanguageProvider.Lazy.FORMATTERS_BUILT.get());
+        assertEquals(0, CountingLanguageProvider.Lazy.PARSERS_BUILT.get());
+
+        assertEquals("forty two", pf.pronounceNumber(42).get());
+        assertEquals(1, CountingLanguageProvider.Lazy.FORMATTERS_BUILT.get());
+        assertEquals(0, CountingLanguageProvider.Lazy.PARSERS_BUILT.get());
+
+        assertEquals(n(42, false), pf.extractNumber("forty two").getFirst());
+        assertEquals(1, CountingLanguageProvider.Lazy.FORMATTERS_BUILT.get());
+        assertEquals(1, CountingLanguageProvider.Lazy.PARSERS_BUILT.get());
+
+        // the formatter and parser are shared with new instances
+        new ParserFormatter(new Locale(CountingLanguageProvider.Lazy.LANGUAGE)).niceTime(LocalTime.NOON).get();
+        assertEquals(1, CountingLanguageProvider.Lazy.FORMATTERS_BUILT.get());
+        assertEquals(1, CountingLanguageProvider.Lazy.PARSERS_BUILT.get());
+    }
+
+    @Test
+    public void parserFormatterForParsingAndFormatting() {
+        final Locale locale = new Locale(CountingLanguageProvider.Eager.LANGUAGE);
+        ParserFormatter.forParsing(locale);
+        assertEquals(0, CountingLanguageProvider.Eager.FORMATTERS_BUILT.get());
+        assertEquals(1, CountingLanguageProvider.Eager.PARSERS_BUILT.get());
+
+        ParserFormatter.forFormatting(locale);
+        assertEquals(1, CountingLanguageProvider.Eager.FORMATTERS_BUILT.get());
+        assertEquals(1, CountingLanguageProvider.Eager.PARSERS_BUILT.get());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void parserFormatterPairForLocaleUnsupported() {
         parserFormatterPairForLocale(Locale.ROOT);
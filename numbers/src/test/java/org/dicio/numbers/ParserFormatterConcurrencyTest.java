@@ -0,0 +1,120 @@
+package org.dicio.numbers;
+
+import static org.dicio.numbers.ParserFormatterBuilder.ParserFormatterPair;
+import static org.dicio.numbers.ParserFormatterBuilder.sharedParserFormatterPairForLocale;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+public class ParserFormatterConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 200;
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 2, 5, 9, 41, 12);
+
+    private static final List<Function<ParserFormatter, Object>> OPERATIONS = List.of(
+            pf -> pf.extractNumber("I have twenty three apples and 1.5 pears").getMixedWithText(),
+            pf -> pf.extractNumber("the one hundred and eighth").preferOrdinal(true).getFirst(),
+            pf -> pf.extractDuration("set a timer for two minutes and ten seconds")
+                    .getMixedWithText(),
+            pf -> pf.extractDateTime("remind me next tuesday at half past five pm").now(NOW)
+                    .getMixedWithText(),
+            pf -> pf.pronounceNumber(-4000619).get(),
+            pf -> pf.niceNumber(5.75).get(),
+            pf -> pf.niceDateTime(NOW).get()
+    );
+
+    /**
+     * Runs {@code task} on {@link #THREADS} threads at the same time, and returns the results of each thread.
+     */
+    private static <T> List<T> runConcurrently(final Callable<T> task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; ++i) {
+                futures.add(executor.submit(() -> {
+                    start.await(); // make all threads start together to maximize contention
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            final List<T> results = new ArrayList<>();
+            for (final Future<T> future : futures) {
+                results.add(future.get()); // also rethrows any exception thrown by the task
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sharedPairIsBuiltOnce() throws Exception {
+        final List<ParserFormatterPair> pairs =
+                runConcurrently(() -> sharedParserFormatterPairForLocale(Locale.ITALIAN));
+        for (final ParserFormatterPair pair : pairs) {
+            assertSame(pairs.get(0).formatter, pair.formatter);
+            assertSame(pairs.get(0).parser, pair.parser);
+        }
+
+        // different ways to ask for the same language resolve to the same instances
+        final ParserFormatterPair italy = sharedParserFormatterPairForLocale(Locale.ITALY);
+        assertSame(pairs.get(0).formatter, italy.formatter);
+        assertSame(pairs.get(0).parser, italy.parser);
+        assertNotSame(pairs.get(0).parser, sharedParserFormatterPairForLocale(Locale.ENGLISH).parser);
+    }
+
+    @Test
+    public void sharedParserFormatterStress() throws Exception {
+        final ParserFormatter pf = new ParserFormatter(Locale.ENGLISH);
+        final List<String> expected = new ArrayList<>();
+        for (final Function<ParserFormatter, Object> operation : OPERATIONS) {
+            // compare string representations, since e.g. Duration does not implement equals()
+            expected.add(String.valueOf(operation.apply(pf)));
+        }
+
+        runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS; ++i) {
+                // each thread goes through the operations in a different order
+                final int index = (i + (int) Thread.currentThread().getId()) % OPERATIONS.size();
+                assertEquals(expected.get(index),
+                        String.valueOf(OPERATIONS.get(index).apply(pf)));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void newParserFormattersStress() throws Exception {
+        final ParserFormatter pf = new ParserFormatter(Locale.ENGLISH);
+        final List<String> expected = new ArrayList<>();
+        for (final Function<ParserFormatter, Object> operation : OPERATIONS) {
+            // compare string representations, since e.g. Duration does not implement equals()
+            expected.add(String.valueOf(operation.apply(pf)));
+        }
+
+        // creating a ParserFormatter for each request must be cheap and must not affect results
+        runConcurrently(() -> {
+            for (int i = 0; i < ITERATIONS; ++i) {
+                final int index = i % OPERATIONS.size();
+                assertEquals(expected.get(index), String.valueOf(
+                        OPERATIONS.get(index).apply(new ParserFormatter(Locale.US))));
+            }
+            return null;
+        });
+    }
+}
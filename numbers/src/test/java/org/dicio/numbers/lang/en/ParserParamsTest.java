@@ -1,5 +1,10 @@
 package org.dicio.numbers.lang.en;
 
+import static org.dicio.numbers.parser.param.ExtractAllParams.Overlap.LONGEST;
+import static org.dicio.numbers.parser.param.ExtractAllParams.Overlap.PRIORITY;
+import static org.dicio.numbers.parser.param.ExtractAllParams.Type.DATE_TIME;
+import static org.dicio.numbers.parser.param.ExtractAllParams.Type.DURATION;
+import static org.dicio.numbers.parser.param.ExtractAllParams.Type.NUMBER;
 import static org.dicio.numbers.test.TestUtils.DAY;
 import static org.dicio.numbers.test.TestUtils.F;
 import static org.dicio.numbers.test.TestUtils.HOUR;
@@ -11,11 +16,28 @@ import static org.dicio.numbers.test.TestUtils.n;
 import static org.dicio.numbers.test.TestUtils.t;
 
 import org.dicio.numbers.parser.Parser;
+import org.dicio.numbers.parser.param.ExtractAllParams.Type;
 import org.dicio.numbers.parser.param.NumberParserParamsTestBase;
 import org.junit.Test;
 
+import java.time.LocalDateTime;
+
 public class ParserParamsTest extends NumberParserParamsTestBase {
 
+    // a transcript with objects of all kinds, which the document, parallel and stream tests repeat
+    // many times, with the filler between the lines
+    private static final LocalDateTime TRANSCRIPT_NOW = LocalDateTime.of(2023, 2, 27, 9, 41, 12);
+    private static final String TRANSCRIPT_FILLER =
+            "and then we talked about the plans for the new office with the rest of the team";
+    private static final String[] TRANSCRIPT_LINES = {
+            "it is nineteen sixty four trillionths",
+            " hello  ciao!, 3/5 or four sevenths?",
+            "Set a two minute and two billion nanosecond timer",
+            "remind me in three days and two hours at 5 pm",
+            "I'm twenty three years old.",
+            "the meeting is on Monday the 5th of June 2023 at 10:30"
+    };
+
     @Override
     protected Parser numberParser() {
         return new EnglishParser();
@@ -61,4 +83,56 @@ public class ParserParamsTest extends NumberParserParamsTestBase {
         assertDurationMixedWithText("2ns and four hours while six milliseconds.", F, t(4 * HOUR, 2), " while ", t(0, 6 * MILLIS), ".");
         assertDurationMixedWithText("you know two years ago are not billions of day", T, "you know ", t(2 * YEAR), " ago are not ", t(1000000000L * DAY));
     }
+
+    @Test
+    public void testAllMixedWithText() {
+        final LocalDateTime now = LocalDateTime.of(2023, 2, 27, 9, 41, 12);
+        assertAllMixedWithText("Remind me in two days to buy three apples", now, LONGEST, null,
+                "Remind me ", now.plusDays(2), " to buy ", n(3, F), " apples");
+        assertAllMixedWithText("set a timer for ten minutes and call me at 5 pm", now, LONGEST, null,
+                "set a timer for ", t(10 * MINUTE), " and call me ", now.withHour(17).withMinute(0).withSecond(0));
+        assertAllMixedWithText("set a timer for ten minutes and call me at 5 pm", now, PRIORITY, null,
+                "set a timer for ", n(10, F), " ", t(MINUTE), " and call me ", now.withHour(17).withMinute(0).withSecond(0));
+        assertAllMixedWithText("I have two days, three hours and fifty four cats", now, LONGEST, new Type[]{DURATION},
+                "I have ", t(2 * DAY + 3 * HOUR), " and fifty four cats");
+        assertAllMixedWithText("I have two days, three hours and fifty four cats", now, LONGEST, new Type[]{DATE_TIME, NUMBER},
+                "I have ", now.withDayOfMonth(2), " days, ", now.withDayOfMonth(3), " hours and ", now.withYear(54).withMonth(1).withDayOfMonth(1), " cats");
+    }
+
+    @Test
+    public void testBatch() {
+        assertBatchMatchesSingle(LocalDateTime.of(2023, 2, 27, 0, 0, 0, 0),
+                "it is nineteen sixty four trillionths",
+                " hello  ciao!, 3/5 or four sevenths?",
+                "Set a two minute and two billion nanosecond timer",
+                "",
+                "nothing to see here",
+                "remind me in three days and two hours at 5 pm",
+                "I'm twenty three years old.");
+    }
+
+    @Test
+    public void testDocument() {
+        assertDocumentMatchesWhole(TRANSCRIPT_NOW, TRANSCRIPT_FILLER, TRANSCRIPT_LINES);
+    }
+
+    @Test
+    public void testParallel() {
+        assertParallelMatchesSequential(TRANSCRIPT_NOW, TRANSCRIPT_FILLER, TRANSCRIPT_LINES);
+    }
+
+    @Test
+    public void testSplits() {
+        // objects right before and after pairs of inert words, i.e. the only places where the text
+        // can be split, and objects made of multiple tokens ("3:32", "nineteen sixty four")
+        assertSplitsMatchWhole(TRANSCRIPT_NOW, TRANSCRIPT_FILLER,
+                "it is 3:32 ok so at ten past five so so the 5th of June 2023 at 10:30 well well "
+                        + "nineteen sixty four trillionths, ok I'm twenty three years old; so in three "
+                        + "days and two hours at 5 pm");
+    }
+
+    @Test
+    public void testStream() {
+        assertStreamMatchesWhole(TRANSCRIPT_NOW, TRANSCRIPT_FILLER, TRANSCRIPT_LINES);
+    }
 }
@@ -19,6 +19,19 @@ import java.time.LocalDateTime;
 
 public class ParserParamsTest extends NumberParserParamsTestBase {
 
+    // a transcript with objects of all kinds, which the document, parallel and stream tests repeat
+    // many times, with the filler between the lines
+    private static final LocalDateTime TRANSCRIPT_NOW = LocalDateTime.of(2023, 2, 27, 9, 41, 12);
+    private static final String TRANSCRIPT_FILLER =
+            "e poi abbiamo parlato dei progetti per il nuovo ufficio con il resto della squadra";
+    private static final String[] TRANSCRIPT_LINES = {
+            "millemiliardesimi e milleseicento novantaquattro",
+            "Ho ventitré anni",
+            "sai due anni fa non sono 750gg",
+            "ci vediamo a mezzanotte o a mezzogiorno",
+            "ven 14 lug del 2017 alle 3:32:00 era dopo pranzo"
+    };
+
     @Override
     protected Parser numberParser() {
         return new ItalianParser();
@@ -103,4 +116,29 @@ public class ParserParamsTest extends NumberParserParamsTestBase {
         assertDateTimeMixedWithText("nel 1612, non dieci anni fa!", LocalDateTime.of(1, 2, 3, 4, 5, 6), "nel ", LocalDateTime.of(1612, 1, 1, 4, 5, 6), ", non ", LocalDateTime.of(-9, 2, 3, 4, 5, 6), "!");
         assertDateTimeMixedWithText("ven 14 lug del 2017 alle 3:32:00 era dopo pranzo", LocalDateTime.of(9, 8, 7, 6, 5, 4), LocalDateTime.of(2017, 7, 14, 3, 32, 0), " era ", LocalDateTime.of(9, 8, 7, 13, 0, 0));
     }
+
+    @Test
+    public void testDocument() {
+        assertDocumentMatchesWhole(TRANSCRIPT_NOW, TRANSCRIPT_FILLER, TRANSCRIPT_LINES);
+    }
+
+    @Test
+    public void testParallel() {
+        assertParallelMatchesSequential(TRANSCRIPT_NOW, TRANSCRIPT_FILLER, TRANSCRIPT_LINES);
+    }
+
+    @Test
+    public void testSplits() {
+        // objects right before and after pairs of inert words, i.e. the only places where the text
+        // can be split, and "mezza nottetempo", an object ending with an inert token
+        assertSplitsMatchWhole(TRANSCRIPT_NOW, TRANSCRIPT_FILLER,
+                "ci vediamo a mezza nottetempo o a mezzogiorno e poi alle 3:32:00 dopo pranzo, ho "
+                        + "ventitre anni e millemiliardesimi e milleseicento novantaquattro; sai due "
+                        + "anni fa");
+    }
+
+    @Test
+    public void testStream() {
+        assertStreamMatchesWhole(TRANSCRIPT_NOW, TRANSCRIPT_FILLER, TRANSCRIPT_LINES);
+    }
 }
@@ -0,0 +1,74 @@
+package org.dicio.numbers.parser.lexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.dicio.numbers.unit.Number;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+public class CategoriesTest {
+
+    @Test
+    public void testConstantsMatchNames() throws IllegalAccessException {
+        final Set<Integer> ids = new HashSet<>();
+        for (final Field field : Categories.class.getDeclaredFields()) {
+            if (Modifier.isPublic(field.getModifiers()) && field.getType() == int.class) {
+                final String name = field.getName().toLowerCase(Locale.ROOT);
+                final int id = field.getInt(null);
+                assertEquals(name, id, Categories.idOf(name));
+                assertTrue("Duplicate id " + id, ids.add(id));
+            }
+        }
+        assertTrue(ids.contains(Categories.ORDINAL));
+    }
+
+    @Test
+    public void testUnknownCategory() {
+        assertEquals(-1, Categories.idOf("category_that_no_tokenizer_uses"));
+        final Token token = new MatchedToken("a", " ", Set.of("ignore"));
+        assertFalse(token.hasCategory("category_that_no_tokenizer_uses"));
+        assertFalse(token.hasCategory(-1));
+        assertFalse(Token.emptyToken().hasCategory(Categories.IGNORE));
+    }
+
+    @Test
+    public void testStringAndIntAgree() {
+        final Token token = new NumberToken("1", "", Set.of("number", "raw"), new Number(1));
+        assertTrue(token.hasCategory(Categories.NUMBER));
+        assertTrue(token.hasCategory("number"));
+        assertTrue(token.hasCategory(Categories.RAW));
+        assertTrue(token.hasCategory("raw"));
+        assertFalse(token.hasCategory(Categories.ORDINAL));
+        assertFalse(token.hasCategory("ordinal"));
+    }
+
+    @Test
+    public void testCustomCategories() {
+        // more than 64 custom categories, so that the bitset can't fit in a single long
+        final String[] names = new String[100];
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = "custom_test_category_" + i;
+        }
+        final Token token = new MatchedToken("a", "", new HashSet<>(Arrays.asList(names)));
+        final Token other = new MatchedToken("b", "", Set.of(names[99], "ordinal"));
+
+        for (final String name : names) {
+            final int id = Categories.idOf(name);
+            assertNotEquals(name, -1, id);
+            assertTrue(name, token.hasCategory(name));
+            assertTrue(name, token.hasCategory(id));
+            assertEquals(name.equals(names[99]), other.hasCategory(id));
+        }
+        assertFalse(token.hasCategory(Categories.ORDINAL));
+        assertTrue(other.hasCategory(Categories.ORDINAL));
+    }
+}
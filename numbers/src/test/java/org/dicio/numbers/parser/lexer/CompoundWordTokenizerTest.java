@@ -0,0 +1,81 @@
+package org.dicio.numbers.parser.lexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.dicio.numbers.test.WithTokenizerTestBase;
+import org.dicio.numbers.unit.Number;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CompoundWordTokenizerTest extends WithTokenizerTestBase {
+
+    @Override
+    public String configFolder() {
+        return "config/it-it";
+    }
+
+
+    private static void assertPieces(final List<Token> tokens,
+                                     final String spacesFollowingLast,
+                                     final String... pieces) {
+        assertEquals(pieces.length, tokens.size());
+        for (int i = 0; i < pieces.length; ++i) {
+            assertEquals(pieces[i], tokens.get(i).getValue());
+            assertEquals(i == pieces.length - 1 ? spacesFollowingLast : "",
+                    tokens.get(i).getSpacesFollowing());
+        }
+    }
+
+    @Test
+    public void testPieces() {
+        assertPieces(tokenizer.tokenize("duemilacentoventitre "), " ",
+                "due", "mila", "cento", "venti", "tre");
+        assertPieces(tokenizer.tokenize("TrentaQuattro"), "", "trenta", "quattro");
+        // "un" comes before "undici" in the pieces, but "diciotto" lets "un" be used first
+        assertPieces(tokenizer.tokenize("undiciotto"), "", "un", "diciotto");
+        // here "un" would leave "dicisette", which can't be split, so "undici" is chosen
+        assertPieces(tokenizer.tokenize("undicisette"), "", "undici", "sette");
+
+        final List<Token> tokens = tokenizer.tokenize("ventitreesimo");
+        assertPieces(tokens, "", "venti", "treesimo");
+        assertEquals(new Number(20), tokens.get(0).getNumber());
+        assertTrue(tokens.get(1).hasCategory("ordinal"));
+    }
+
+    @Test
+    public void testSpans() {
+        final List<Token> tokens = tokenizer.tokenize("TrentaQuattro  ciao");
+        assertPieces(tokens.subList(0, 2), "  ", "trenta", "quattro");
+        assertEquals(0, tokens.get(0).start);
+        assertEquals(6, tokens.get(0).end);
+        assertEquals(6, tokens.get(0).spacesEnd);
+        assertEquals(6, tokens.get(1).start);
+        assertEquals(13, tokens.get(1).end);
+        assertEquals(15, tokens.get(1).spacesEnd);
+        assertTrue(tokens.get(1).isValue("QUATTRO"));
+    }
+
+    @Test
+    public void testNotCompound() {
+        final List<Token> tokens = tokenizer.tokenize("ventitrex");
+        assertEquals(1, tokens.size());
+        assertSame(Token.class, tokens.get(0).getClass());
+        assertEquals("ventitrex", tokens.get(0).getValue());
+    }
+
+    @Test(timeout = 4000) // takes a few milliseconds, while backtracking would take forever
+    public void testAdversarialPerformance() {
+        // every "undiciotto" can be split both as un+diciotto and as undici+otto, so a
+        // backtracking segmenter would try 2^20 splits before noticing the final "x"
+        final String repeated = "undiciotto".repeat(20);
+        final String unsplittable = repeated + "x";
+
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(1, tokenizer.tokenize(unsplittable).size());
+            assertEquals(40, tokenizer.tokenize(repeated).size());
+        }
+    }
+}
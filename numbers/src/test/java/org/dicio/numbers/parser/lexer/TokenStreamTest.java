@@ -7,6 +7,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import kotlin.jvm.functions.Function0;
 import org.junit.Test;
 
 import java.time.temporal.ChronoUnit;
@@ -100,4 +101,156 @@ public class TokenStreamTest {
             }
         }
     }
+
+    @Test
+    public void testIndexOfWithoutCategorySkipTables() {
+        final TokenStream ts = new TokenStream(TOKENS_IGNORES);
+        final String[] categories = {"ignore", "other", "another", "test", "unknown_category"};
+        // query each category multiple times, so that the skip tables are both built and reused
+        for (int repetition = 0; repetition < 2; ++repetition) {
+            for (final String category : categories) {
+                for (int i = -2; i <= TOKENS_IGNORES.size() + 1; ++i) {
+                    ts.position = i;
+                    for (int startFromAheadBy = -3; startFromAheadBy <= 3; ++startFromAheadBy) {
+                        int index = Math.max(i + startFromAheadBy, 0);
+                        while (index < TOKENS_IGNORES.size()
+                                && TOKENS_IGNORES.get(index).hasCategory(category)) {
+                            ++index;
+                        }
+                        assertEquals(category + " " + i + " " + startFromAheadBy,
+                                Math.min(index, TOKENS_IGNORES.size()) - i,
+                                ts.indexOfWithoutCategory(category, startFromAheadBy));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexOfFirstSet() {
+        final TokenStream ts = new TokenStream(TOKENS_IGNORES);
+        final FirstSet ignore = FirstSet.NONE.withCategories(Categories.IGNORE);
+        assertEquals(0, ts.indexOfFirstSet(ignore, 0));
+        assertEquals(0, ts.indexOfFirstSet(ignore, -2));
+        assertEquals(2, ts.indexOfFirstSet(ignore, 1));
+        assertEquals(6, ts.indexOfFirstSet(ignore, 4));
+        assertEquals(8, ts.indexOfFirstSet(ignore, 7));
+
+        ts.position = 4;
+        assertEquals(2, ts.indexOfFirstSet(ignore, 0)); // aheadBy offsets are relative
+        assertEquals(3, ts.indexOfFirstSet(FirstSet.NONE.withDurationWords(), 0));
+        assertEquals(1, ts.indexOfFirstSet(FirstSet.NONE.withWordPrefixes("go"), 0));
+        assertEquals(-2, ts.indexOfFirstSet(FirstSet.NONE.withWords("how", "going"), -4));
+        assertEquals(5, ts.indexOfFirstSet(FirstSet.NONE, 0));
+        assertEquals(5, ts.indexOfFirstSet(ignore, 5));
+        assertEquals(-4, ts.indexOfFirstSet(FirstSet.ANY, -7));
+        assertEquals(3, ts.indexOfFirstSet(FirstSet.ANY, 3));
+        assertEquals(5, ts.indexOfFirstSet(FirstSet.ANY, 8));
+
+        final FirstSet union = FirstSet.NONE.withWords("going").plus(ignore.withDurationWords());
+        assertEquals(1, ts.indexOfFirstSet(union, 0));
+        assertEquals(2, ts.indexOfFirstSet(union, 2));
+        assertEquals(3, ts.indexOfFirstSet(union, 3));
+    }
+
+    @Test
+    public void testHasCategoryAnywhere() {
+        final TokenStream ts = new TokenStream(TOKENS_IGNORES);
+        ts.position = TOKENS_IGNORES.size(); // the position does not matter
+        assertTrue(ts.hasCategoryAnywhere(Categories.IGNORE));
+        assertFalse(ts.hasCategoryAnywhere(Categories.MONTH_NAME));
+        assertTrue(ts.hasCategoryAnywhere(Categories.idOf("another")));
+        assertFalse(ts.hasCategoryAnywhere(Categories.idOf("category_that_does_not_exist")));
+        assertFalse(new TokenStream(Collections.emptyList()).hasCategoryAnywhere(Categories.IGNORE));
+
+        // no token can be in these first sets, so they are rejected without looking at tokens
+        assertEquals(0, ts.indexOfFirstSet(FirstSet.NONE.withCategories(Categories.MONTH_NAME), 0));
+        final TokenStream withDuration = new TokenStream(TOKENS);
+        assertEquals(3, withDuration.indexOfFirstSet(
+                FirstSet.NONE.withCategories(Categories.NUMBER), 0));
+        assertEquals(2, withDuration.indexOfFirstSet(FirstSet.NONE.withDurationWords(), 0));
+        assertEquals(-2, ts.indexOfFirstSet(FirstSet.NONE.withDurationWords(), -2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFirstSetCustomCategory() {
+        FirstSet.NONE.withCategories(Long.SIZE);
+    }
+
+    @Test
+    public void testArrayAccessorsMatchTokens() {
+        final TokenStream ts = new TokenStream(TOKENS_IGNORES);
+        final String[] categories = {"ignore", "other", "another", "test", "unknown_category"};
+        for (int i = -2; i <= TOKENS_IGNORES.size() + 1; ++i) {
+            ts.position = i;
+            for (int aheadBy = -2; aheadBy <= 2; ++aheadBy) {
+                final Token token = ts.get(aheadBy);
+                final String message = "position=" + i + ", aheadBy=" + aheadBy;
+                for (final String category : categories) {
+                    assertEquals(message, token.hasCategory(category),
+                            ts.hasCategory(aheadBy, Categories.idOf(category)));
+                }
+                assertSame(message, token.getNumber(), ts.numberAt(aheadBy));
+                for (final long integer : new long[]{-1, 0, 5, 2022}) {
+                    assertEquals(message, token.isNumberEqualTo(integer),
+                            ts.isNumberEqualTo(aheadBy, integer));
+                    assertEquals(message, token.getNumber() != null
+                            && token.getNumber().lessThan(integer),
+                            ts.isNumberLessThan(aheadBy, integer));
+                    assertEquals(message, token.getNumber() != null
+                            && token.getNumber().moreThan(integer),
+                            ts.isNumberMoreThan(aheadBy, integer));
+                }
+                assertEquals(message, token.start, ts.startOf(aheadBy));
+                assertEquals(message, token.end, ts.endOf(aheadBy));
+            }
+        }
+    }
+
+    @Test
+    public void testMemoize() {
+        final TokenStream.Rule rule = new TokenStream.Rule("test");
+        final TokenStream ts = new TokenStream(TOKENS_IGNORES);
+        final int[] evaluations = {0};
+        final Function0<String> function = () -> {
+            ++evaluations[0];
+            ts.movePositionForwardBy(2);
+            return "result " + ts.position;
+        };
+
+        // without memoization the function is always run
+        assertEquals("result 2", ts.memoize(rule, 0, function));
+        ts.position = 0;
+        assertEquals("result 2", ts.memoize(rule, 0, function));
+        assertEquals(2, evaluations[0]);
+        assertEquals(2, ts.getRuleCalls());
+        assertEquals(2, ts.getRuleEvaluations());
+
+        ts.enableMemoization();
+        ts.position = 0;
+        assertEquals("result 2", ts.memoize(rule, 0, function));
+        assertEquals(3, evaluations[0]);
+        ts.position = 0;
+        assertEquals("result 2", ts.memoize(rule, 0, function));
+        assertEquals(3, evaluations[0]); // answered by the memo table
+        assertEquals(2, ts.position); // the end position is restored, too
+
+        // different flags, positions or rules are evaluated again
+        ts.position = 0;
+        assertEquals("result 2", ts.memoize(rule, 1, function));
+        ts.position = 1;
+        assertEquals("result 3", ts.memoize(rule, 0, function));
+        ts.position = 0;
+        assertEquals("result 2", ts.memoize(new TokenStream.Rule("other"), 0, function));
+        assertEquals(6, evaluations[0]);
+        assertEquals(7, ts.getRuleCalls());
+        assertEquals(6, ts.getRuleEvaluations());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMemoizeInvalidFlags() {
+        final TokenStream ts = new TokenStream(TOKENS_IGNORES);
+        ts.enableMemoization();
+        ts.memoize(new TokenStream.Rule("test"), 256, () -> null);
+    }
 }
@@ -8,6 +8,8 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TokenizerTest extends WithTokenizerTestBase {
@@ -21,8 +23,8 @@ public class TokenizerTest extends WithTokenizerTestBase {
     private static void assertBaseToken(final Token token,
                                         final String value,
                                         final String spacesFollowing) {
-        assertEquals(value, token.value);
-        assertEquals(spacesFollowing, token.spacesFollowing);
+        assertEquals(value, token.getValue());
+        assertEquals(spacesFollowing, token.getSpacesFollowing());
         assertTrue(token.isValue(value));
         assertFalse(token.isValue(spacesFollowing));
     }
@@ -103,4 +105,56 @@ public class TokenizerTest extends WithTokenizerTestBase {
         assertToken(tokens.get(2),  "çòÙplé", " ", cat("number", "suffix_multiplier"),   cat("multiplier"), new Number(2));
         assertToken(tokens.get(3),  "mInùs",  "",  cat("sign", "negative"),              cat("number"));
     }
+
+    @Test
+    public void durations() {
+        final List<Token> tokens = tokenizer.tokenize("Second hour MS second twenty");
+        assertToken(tokens.get(0),  "Second", " ", cat("number", "ordinal", "digit"),   cat("tens"),       new Number(2));
+        assertToken(tokens.get(3),  "second", " ", cat("number", "ordinal", "digit"),   cat("tens"),       new Number(2));
+        assertNull(tokens.get(4).getAsDurationToken());
+
+        final DurationToken second = tokens.get(0).getAsDurationToken();
+        assertSame(second, tokens.get(0).getAsDurationToken());
+        assertEquals("Second", second.getValue());
+        assertEquals(" ", second.getSpacesFollowing());
+        assertEquals("1 SECONDS", second.getDurationCategory());
+        assertFalse(second.isRestrictedAfterNumber());
+
+        assertEquals("hour", tokens.get(1).getAsDurationToken().getValue());
+        assertEquals("1 HOURS", tokens.get(1).getAsDurationToken().getDurationCategory());
+
+        assertSame(DurationToken.class, tokens.get(2).getClass());
+        assertSame(tokens.get(2), tokens.get(2).getAsDurationToken());
+        assertEquals("1 MILLIS", ((DurationToken) tokens.get(2)).getDurationCategory());
+        assertTrue(((DurationToken) tokens.get(2)).isRestrictedAfterNumber());
+    }
+
+    @Test
+    public void sharedLexicalData() {
+        final List<Token> tokens = tokenizer.tokenize("twenty Twenty twentY");
+        assertSame(tokens.get(0).getNumber(), tokens.get(1).getNumber());
+        assertSame(tokens.get(0).getNumber(), tokens.get(2).getNumber());
+        assertEquals("Twenty", tokens.get(1).getValue());
+        assertEquals("", tokens.get(2).getSpacesFollowing());
+    }
+
+    @Test
+    public void spans() {
+        final String s = "  Hello, twenTy2  x";
+        final List<Token> tokens = tokenizer.tokenize(s);
+        final int[][] expectedSpans = {{0, 0, 2}, {2, 7, 7}, {7, 8, 9}, {9, 15, 15}, {15, 16, 18},
+                {18, 19, 19}};
+        assertEquals(expectedSpans.length, tokens.size());
+        for (int i = 0; i < expectedSpans.length; ++i) {
+            final Token token = tokens.get(i);
+            assertEquals(expectedSpans[i][0], token.start);
+            assertEquals(expectedSpans[i][1], token.end);
+            assertEquals(expectedSpans[i][2], token.spacesEnd);
+            assertEquals(s.substring(token.start, token.end), token.getValue());
+            assertEquals(s.substring(token.end, token.spacesEnd), token.getSpacesFollowing());
+        }
+        assertTrue(tokens.get(3).isValue("TWENTY"));
+        assertFalse(tokens.get(3).isValue("twent"));
+        assertFalse(tokens.get(3).isValue(null));
+    }
 }
@@ -0,0 +1,77 @@
+package org.dicio.numbers.parser.lexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+public class WordNormalizerTest {
+    private static final WordNormalizer NORMALIZER = WordNormalizer.INSTANCE;
+
+    private static void assertNormalized(final String expected, final String value) {
+        assertEquals(expected, NORMALIZER.normalize(value));
+        assertEquals(NORMALIZER.fullNormalize(value), NORMALIZER.normalize(value));
+    }
+
+    @Test
+    public void testAsciiIsNotCopied() {
+        for (final String value : new String[]{"", "hello", "twenty-two", "1,5", "a.m."}) {
+            assertSame(value, NORMALIZER.normalize(value));
+        }
+    }
+
+    @Test
+    public void testFolding() {
+        assertNormalized("hello",       "HeLLo");
+        assertNormalized("tre",         "tré");
+        assertNormalized("couple",      "çòÙplé");
+        assertNormalized("ventitre",    "ventitrÈ");
+        assertNormalized("miercoles",   "miércoles");
+        assertNormalized("ij",          "Ĳ");
+        assertNormalized("dz",          "ǅ");
+        assertNormalized("ß",           "ß");
+        assertNormalized("i",           "İ"); // does not depend on locale-specific rules
+    }
+
+    @Test
+    public void testExoticFallback() {
+        assertNormalized("e",           "é"); // already decomposed
+        assertNormalized("αβγ",         "ΑΒΓ");
+        assertNormalized("fi",          "ﬁ"); // ligature
+        assertNormalized("tres",        "TRÉS"); // uppercase with an accented Latin-1 letter
+        assertNormalized("tres",        "ＴＲés"); // fullwidth compatibility characters
+    }
+
+    @Test
+    public void testLocaleIndependent() {
+        final Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertNormalized("title", "TITLE");
+            assertNormalized("iıi", "IıI"); // the dotless i is a different letter
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testSameAsFullNormalization() {
+        for (char c = 0; c < 0x400; ++c) {
+            assertEquals("character " + (int) c, NORMALIZER.fullNormalize(String.valueOf(c)),
+                    NORMALIZER.normalize(String.valueOf(c)));
+        }
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 10000; ++i) {
+            final char[] chars = new char[random.nextInt(8)];
+            for (int j = 0; j < chars.length; ++j) {
+                chars[j] = (char) random.nextInt(random.nextBoolean() ? 0x80 : 0x250);
+            }
+            final String value = new String(chars);
+            assertEquals(NORMALIZER.fullNormalize(value), NORMALIZER.normalize(value));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.dicio.numbers.parser.param;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import kotlin.jvm.functions.Function0;
+import kotlin.sequences.Sequence;
+import kotlin.sequences.SequencesKt;
+import org.dicio.numbers.lang.en.EnglishParser;
+import org.dicio.numbers.parser.lexer.FirstSet;
+import org.dicio.numbers.parser.lexer.TokenStream;
+import org.dicio.numbers.unit.Number;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class NumberParserParamsTest {
+    private static final String UTTERANCE = "a x b c x, d x ";
+
+    /**
+     * Extracts the "x" tokens, counting how many times the extractor is called.
+     */
+    private static class XParams extends NumberParserParams<String> {
+        private int calls = 0;
+
+        XParams(final String utterance) {
+            super(new EnglishParser(), utterance);
+        }
+
+        @Override
+        protected Function0<String> getExtractorAtCurrentPosition(final TokenStream tokenStream) {
+            return () -> {
+                ++calls;
+                if (tokenStream.get(0).getValue().equals("x")) {
+                    tokenStream.movePositionForwardBy(1);
+                    return "x";
+                }
+                return null;
+            };
+        }
+    }
+
+    /**
+     * Like {@link XParams}, but the extractor is only called on the "x" tokens.
+     */
+    private static class XFirstSetParams extends XParams {
+        XFirstSetParams(final String utterance) {
+            super(utterance);
+        }
+
+        @Override
+        protected FirstSet getFirstSet() {
+            return FirstSet.NONE.withWords("x");
+        }
+    }
+
+    @Test
+    public void matchSequenceIsLazy() {
+        final XParams params = new XParams(UTTERANCE);
+        final Iterator<String> matches = params.getMatchSequence().iterator();
+        assertEquals(0, params.calls); // not even tokenized yet
+
+        assertEquals("x", matches.next());
+        assertEquals(2, params.calls); // "a", "x"
+        assertEquals("x", matches.next());
+        assertEquals(5, params.calls); // "b", "c", "x"
+
+        assertEquals("x", matches.next());
+        assertFalse(matches.hasNext());
+    }
+
+    @Test
+    public void mixedWithTextSequence() {
+        final XParams params = new XParams(UTTERANCE);
+        final Iterator<Object> textAndObjects = params.getMixedWithTextSequence().iterator();
+        assertEquals("a ", textAndObjects.next());
+        assertEquals("x", textAndObjects.next());
+        assertEquals(2, params.calls);
+
+        assertEquals(Arrays.asList("a ", "x", " b c ", "x", ", d ", "x", " "),
+                params.getMixedWithText());
+    }
+
+    @Test
+    public void sequencesCanBeIteratedAgain() {
+        final Sequence<Object> sequence = new XParams(UTTERANCE).getMixedWithTextSequence();
+        assertEquals(SequencesKt.toList(sequence), SequencesKt.toList(sequence));
+        assertEquals(7, SequencesKt.count(sequence));
+    }
+
+    @Test
+    public void spans() {
+        // tokens: a x b c x , d x
+        assertEquals(Arrays.asList(new Span<>("x", 2, 3, 1, 2), new Span<>("x", 8, 9, 4, 5),
+                        new Span<>("x", 13, 14, 7, 8)),
+                new XParams(UTTERANCE).getSpans());
+
+        final XParams params = new XParams(UTTERANCE);
+        assertEquals(new Span<>("x", 2, 3, 1, 2), params.getSpanSequence().iterator().next());
+        assertEquals(2, params.calls);
+    }
+
+    @Test
+    public void firstSetSkipsOtherTokens() {
+        final XParams params = new XFirstSetParams(UTTERANCE);
+        assertEquals(new XParams(UTTERANCE).getMixedWithText(), params.getMixedWithText());
+        assertEquals(3, params.calls);
+
+        final XParams spansParams = new XFirstSetParams(UTTERANCE);
+        assertEquals(new XParams(UTTERANCE).getSpans(), spansParams.getSpans());
+        assertEquals(3, spansParams.calls);
+
+        final XParams noMatches = new XFirstSetParams("a b c");
+        assertEquals(Arrays.asList("a b c"), noMatches.getMixedWithText());
+        assertEquals(0, noMatches.calls);
+    }
+
+    @Test
+    public void quickRejectMetrics() {
+        final EnglishParser parser = new EnglishParser();
+        final long scans = ExtractionMetrics.getScanCount();
+        final long quickRejects = ExtractionMetrics.getQuickRejectCount();
+
+        // nothing in these utterances can start a date time or a number
+        assertEquals(Collections.singletonList("play some jazz"),
+                new ExtractDateTimeParams(parser, "play some jazz").getMixedWithText());
+        assertNull(new ExtractNumberParams(parser, "turn off the lights").getFirst());
+        assertEquals(scans + 2, ExtractionMetrics.getScanCount());
+        assertEquals(quickRejects + 2, ExtractionMetrics.getQuickRejectCount());
+
+        assertNotNull(new ExtractDurationParams(parser, "wait two minutes").getFirst());
+        assertEquals(scans + 3, ExtractionMetrics.getScanCount());
+        assertEquals(quickRejects + 2, ExtractionMetrics.getQuickRejectCount());
+    }
+
+    @Test
+    public void metricsCountOneScanPerCall() {
+        final EnglishParser parser = new EnglishParser();
+        final String text = "lorem ipsum dolor sit amet ".repeat(1000);
+        final long scans = ExtractionMetrics.getScanCount();
+        final long quickRejects = ExtractionMetrics.getQuickRejectCount();
+
+        // many chunks and segments, but a single scan each, a quick reject only if all of them are
+        assertEquals(Collections.emptyList(), new ExtractNumberParams(parser, text).spansInParallel());
+        assertEquals(0, SequencesKt.count(new ExtractNumberParams(parser, "")
+                .spanSequenceOf(new StringReader(text), 64)));
+        assertEquals(scans + 2, ExtractionMetrics.getScanCount());
+        assertEquals(quickRejects + 2, ExtractionMetrics.getQuickRejectCount());
+
+        final String withNumber = text + "42";
+        assertEquals(1, new ExtractNumberParams(parser, withNumber).spansInParallel().size());
+        assertEquals(1, SequencesKt.count(new ExtractNumberParams(parser, "")
+                .spanSequenceOf(new StringReader(withNumber), 64)));
+        assertEquals(scans + 4, ExtractionMetrics.getScanCount());
+        assertEquals(quickRejects + 2, ExtractionMetrics.getQuickRejectCount());
+    }
+
+    @Test
+    public void streamDigitsAcrossBuffers() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            builder.append("lorem ipsum ").append(1234567 * i).append(" dolor sit amet ");
+        }
+        final String document = builder.toString();
+        final ExtractNumberParams params = new ExtractNumberParams(new EnglishParser(), document);
+        for (final int bufferSize : new int[]{20, 21, 33, 64}) {
+            assertEquals(params.getSpans(),
+                    SequencesKt.toList(params.spanSequenceOf(new StringReader(document), bufferSize)));
+        }
+    }
+
+    @Test
+    public void streamBufferEndsInsideObject() {
+        final String document = "ok so it is nineteen sixty four ok so we meet at 10:30 ok so";
+        final ExtractAllParams params = new ExtractAllParams(new EnglishParser(), document)
+                .now(LocalDateTime.of(2023, 6, 5, 9, 41, 12));
+        final List<Span<Object>> whole = params.getSpans();
+        assertEquals("[1964@[12,31), 2023-06-05T10:30@[46,54)]", whole.toString());
+
+        // for most of these sizes the buffer ends in the middle of "nineteen sixty four" or of
+        // "10:30", but each of them fits in the buffer along with the inert words before it, so
+        // the segments end before them
+        for (int bufferSize = 21; bufferSize <= document.length(); ++bufferSize) {
+            assertEquals("buffer of " + bufferSize, whole,
+                    SequencesKt.toList(params.spanSequenceOf(new StringReader(document), bufferSize)));
+        }
+
+        // "nineteen sixty four " does not fit, so the segment is forced to end at the last space,
+        // and its parts are found separately, while "10:30" is still found as a whole
+        final List<Span<Object>> forced =
+                SequencesKt.toList(params.spanSequenceOf(new StringReader(document), 16));
+        assertEquals("[1960@[12,26), 4@[27,31), 2023-06-05T10:30@[46,54)]", forced.toString());
+        assertEquals(whole.get(0).startToken, forced.get(0).startToken);
+        assertEquals(whole.get(0).endToken, forced.get(1).endToken);
+        assertEquals(whole.get(1), forced.get(2));
+    }
+
+    @Test
+    public void streamWordLongerThanBuffer() {
+        final String document = "supercalifragilisticexpialidocious 42 lorem ipsum";
+        final List<Span<Number>> spans = SequencesKt.toList(new ExtractNumberParams(new EnglishParser(), "")
+                .spanSequenceOf(new StringReader(document), 16));
+        assertEquals(1, spans.size());
+        assertEquals(35, spans.get(0).start);
+        assertEquals(37, spans.get(0).end);
+    }
+}
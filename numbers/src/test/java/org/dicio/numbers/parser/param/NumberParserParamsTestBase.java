@@ -2,14 +2,28 @@ package org.dicio.numbers.parser.param;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import kotlin.jvm.functions.Function0;
+import kotlin.sequences.SequencesKt;
 import org.dicio.numbers.parser.Parser;
+import org.dicio.numbers.parser.lexer.TokenStream;
 import org.dicio.numbers.unit.Duration;
 import org.dicio.numbers.unit.Number;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 public abstract class NumberParserParamsTestBase {
@@ -20,14 +34,19 @@ public abstract class NumberParserParamsTestBase {
                                        final Function<T, R> transformActualResult,
                                        final R expectedResult) {
         assertEquals(expectedResult, transformActualResult.apply(npp.getFirst()));
+        final Iterator<T> matches = npp.getMatchSequence().iterator();
+        assertEquals(expectedResult, transformActualResult.apply(matches.hasNext() ? matches.next() : null));
     }
 
-    private <T, R> void assertNppMixedWithText(final NumberParserParams<T> npp,
+    private <T, R> void assertNppMixedWithText(final String utterance,
+                                               final NumberParserParams<T> npp,
                                                final Class<T> nppClass,
                                                final Function<T, R> transformActualResult,
                                                final Object... expectedResults) {
         final List<Object> actualResults = npp.getMixedWithText();
         final String actualResultsString = actualResults.toString();
+        // compare strings, since Duration does not implement equals
+        assertEquals(actualResultsString, SequencesKt.toList(npp.getMixedWithTextSequence()).toString());
 
         assertEquals("Wrong results size: " + actualResultsString, expectedResults.length, actualResults.size());
         for (int i = 0; i < expectedResults.length; i++) {
@@ -41,35 +60,329 @@ public abstract class NumberParserParamsTestBase {
                 fail("Wrong object type at position " + i + ": " + actualResultsString);
             }
         }
+
+        // the spans must be exactly where the objects are, with the text of mixedWithText between
+        final List<Span<T>> spans = npp.getSpans();
+        int spanIndex = 0;
+        int position = 0;
+        for (final Object o : actualResults) {
+            if (o instanceof String) {
+                assertTrue("Text not at " + position + ": " + actualResultsString,
+                        utterance.startsWith((String) o, position));
+                position += ((String) o).length();
+            } else {
+                final Span<T> span = spans.get(spanIndex++);
+                assertEquals("Wrong span start: " + span, position, span.start);
+                assertEquals(String.valueOf(o), String.valueOf(span.value));
+                assertTrue("Wrong span tokens: " + span, span.startToken < span.endToken);
+                position = span.end;
+            }
+        }
+        assertEquals(spans.size(), spanIndex);
+        assertEquals(utterance.length(), position);
+    }
+
+    // every assertion is checked both without and with memoization, which must not change results
+    private static final boolean[] MEMOIZE_VALUES = {false, true};
+
+    /**
+     * Extracts like the wrapped parameters, but calling the extractor on every token (i.e. with
+     * {@link org.dicio.numbers.parser.lexer.FirstSet#ANY}), so that the results of the methods
+     * which skip, split or window the utterance based on the first set can be checked against it.
+     */
+    private static final class UnskippingParams<T> extends NumberParserParams<T> {
+        private final NumberParserParams<T> params;
+
+        UnskippingParams(final NumberParserParams<T> params, final String utterance) {
+            super(params.getParser(), utterance);
+            this.params = params;
+        }
+
+        @Override
+        protected Function0<T> getExtractorAtCurrentPosition(final TokenStream tokenStream) {
+            return params.getExtractorAtCurrentPosition(tokenStream);
+        }
     }
 
     protected void assertNumberFirst(final String s, final boolean shortScale, final boolean preferOrdinal, final Number expectedResult) {
-        assertNppFirst(new ExtractNumberParams(numberParser(), s).shortScale(shortScale)
-                .preferOrdinal(preferOrdinal), Function.identity(), expectedResult);
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertNppFirst(new ExtractNumberParams(numberParser(), s).memoize(memoize).shortScale(shortScale)
+                    .preferOrdinal(preferOrdinal), Function.identity(), expectedResult);
+        }
     }
 
     protected void assertNumberMixedWithText(final String s, final boolean shortScale, final boolean preferOrdinal, final Object... expectedResults) {
-        assertNppMixedWithText(new ExtractNumberParams(numberParser(), s).shortScale(shortScale)
-                .preferOrdinal(preferOrdinal), Number.class, Function.identity(), expectedResults);
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertNppMixedWithText(s, new ExtractNumberParams(numberParser(), s).memoize(memoize).shortScale(shortScale)
+                    .preferOrdinal(preferOrdinal), Number.class, Function.identity(), expectedResults);
+        }
     }
 
     protected void assertDurationFirst(final String s, final boolean shortScale, final java.time.Duration expectedResult) {
-        assertNppFirst(new ExtractDurationParams(numberParser(), s).shortScale(shortScale),
-                Duration::toJavaDuration, expectedResult);
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertNppFirst(new ExtractDurationParams(numberParser(), s).memoize(memoize).shortScale(shortScale),
+                    Duration::toJavaDuration, expectedResult);
+        }
     }
 
     protected void assertDurationMixedWithText(final String s, final boolean shortScale, final Object... expectedResults) {
-        assertNppMixedWithText(new ExtractDurationParams(numberParser(), s).shortScale(shortScale),
-                Duration.class, Duration::toJavaDuration, expectedResults);
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertNppMixedWithText(s, new ExtractDurationParams(numberParser(), s).memoize(memoize).shortScale(shortScale),
+                    Duration.class, Duration::toJavaDuration, expectedResults);
+        }
     }
 
     protected void assertDateTimeFirst(final String s, final LocalDateTime now, final LocalDateTime expectedResult) {
-        assertNppFirst(new ExtractDateTimeParams(numberParser(), s).now(now),
-                Function.identity(), expectedResult);
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertNppFirst(new ExtractDateTimeParams(numberParser(), s).memoize(memoize).now(now),
+                    Function.identity(), expectedResult);
+        }
     }
 
     protected void assertDateTimeMixedWithText(final String s, final LocalDateTime now, final Object... expectedResults) {
-        assertNppMixedWithText(new ExtractDateTimeParams(numberParser(), s).now(now),
-                LocalDateTime.class, Function.identity(), expectedResults);
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertNppMixedWithText(s, new ExtractDateTimeParams(numberParser(), s).memoize(memoize).now(now),
+                    LocalDateTime.class, Function.identity(), expectedResults);
+        }
+    }
+
+    protected void assertAllMixedWithText(final String s, final LocalDateTime now, final ExtractAllParams.Overlap overlap,
+                                          final ExtractAllParams.Type[] types, final Object... expectedResults) {
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            final ExtractAllParams npp = new ExtractAllParams(numberParser(), s).memoize(memoize).now(now).overlap(overlap);
+            if (types != null) {
+                npp.types(types);
+            }
+            assertNppMixedWithText(s, npp, Object.class,
+                    o -> o instanceof Duration ? ((Duration) o).toJavaDuration() : o, expectedResults);
+        }
+    }
+
+    private static <T> void assertBatchMatches(final NumberParserParams<T> npp,
+                                               final Function<String, NumberParserParams<T>> single,
+                                               final List<String> utterances,
+                                               final ExecutorService executor) {
+        final List<T> first = executor == null ? npp.firstOf(utterances) : npp.firstOf(utterances, executor);
+        final List<List<Object>> mixedWithText = executor == null
+                ? npp.mixedWithTextOf(utterances) : npp.mixedWithTextOf(utterances, executor);
+
+        assertEquals(utterances.size(), first.size());
+        assertEquals(utterances.size(), mixedWithText.size());
+        for (int i = 0; i < utterances.size(); ++i) {
+            // compare strings, since Duration does not implement equals
+            assertEquals(utterances.get(i), String.valueOf(single.apply(utterances.get(i)).getFirst()),
+                    String.valueOf(first.get(i)));
+            assertEquals(utterances.get(i), String.valueOf(single.apply(utterances.get(i)).getMixedWithText()),
+                    String.valueOf(mixedWithText.get(i)));
+        }
+    }
+
+    /**
+     * Checks that the batch methods of all of the parameter classes return, in order, the same
+     * results as extracting from each utterance on its own, both on the common pool and on a
+     * custom executor.
+     */
+    protected void assertBatchMatchesSingle(final LocalDateTime now, final String... utterances) {
+        // repeat the utterances so that each chunk processed by a thread contains more than one of
+        // them, and the scratch state is reused
+        final List<String> repeated = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            repeated.addAll(Arrays.asList(utterances));
+        }
+
+        final Parser parser = numberParser();
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (final ExecutorService e : new ExecutorService[]{null, executor}) {
+                for (final boolean memoize : MEMOIZE_VALUES) {
+                    assertBatchMatches(new ExtractNumberParams(parser, "").memoize(memoize).preferOrdinal(true),
+                            s -> new ExtractNumberParams(parser, s).memoize(memoize).preferOrdinal(true),
+                            repeated, e);
+                    assertBatchMatches(new ExtractDurationParams(parser, "").memoize(memoize),
+                            s -> new ExtractDurationParams(parser, s).memoize(memoize),
+                            repeated, e);
+                    assertBatchMatches(new ExtractDateTimeParams(parser, "").memoize(memoize).now(now),
+                            s -> new ExtractDateTimeParams(parser, s).memoize(memoize).now(now),
+                            repeated, e);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static <T> void assertDocumentMatches(final NumberParserParams<T> whole,
+                                                  final NumberParserParams<T> document) {
+        // compare strings, since Duration does not implement equals
+        assertEquals(String.valueOf(whole.getMixedWithText()), String.valueOf(document.getMixedWithText()));
+        final List<Span<T>> wholeSpans = whole.getSpans();
+        final List<Span<T>> documentSpans = document.getSpans();
+        assertEquals(wholeSpans.size(), documentSpans.size());
+        for (int i = 0; i < wholeSpans.size(); ++i) {
+            assertEquals(wholeSpans.get(i).start, documentSpans.get(i).start);
+            assertEquals(wholeSpans.get(i).end, documentSpans.get(i).end);
+            assertEquals(String.valueOf(wholeSpans.get(i).value), String.valueOf(documentSpans.get(i).value));
+        }
+    }
+
+    /**
+     * Checks that extracting in document mode from the concatenation of {@code lines} (each line
+     * separated by a lot of text without any object) gives the same results and text positions as
+     * extracting from the whole document without skipping any token.
+     */
+    protected void assertDocumentMatchesWhole(final LocalDateTime now, final String filler, final String... lines) {
+        assertDocumentMatches(buildDocument(20, filler, lines), now);
+    }
+
+    private void assertDocumentMatches(final String document, final LocalDateTime now) {
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertDocumentMatches(unskipping(new ExtractNumberParams(numberParser(), document), document),
+                    new ExtractNumberParams(numberParser(), document).memoize(memoize).document(true));
+            assertDocumentMatches(unskipping(new ExtractDurationParams(numberParser(), document), document),
+                    new ExtractDurationParams(numberParser(), document).memoize(memoize).document(true));
+            assertDocumentMatches(unskipping(new ExtractDateTimeParams(numberParser(), document).now(now), document),
+                    new ExtractDateTimeParams(numberParser(), document).memoize(memoize).now(now).document(true));
+            assertDocumentMatches(unskipping(new ExtractAllParams(numberParser(), document).now(now), document),
+                    new ExtractAllParams(numberParser(), document).memoize(memoize).now(now).document(true));
+        }
+    }
+
+    private static String buildDocument(final int repetitions, final String filler, final String... lines) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < repetitions; ++i) {
+            for (final String line : lines) {
+                builder.append(line).append(i % 2 == 0 ? "\n" : " ").append(filler).append(i % 3 == 0 ? ".\n\n" : " ");
+            }
+        }
+        return builder.toString();
+    }
+
+    private static <T> NumberParserParams<T> unskipping(final NumberParserParams<T> params, final String utterance) {
+        return new UnskippingParams<>(params, utterance);
+    }
+
+    private static <T> void assertSpansMatch(final String message,
+                                             final List<Span<T>> expected,
+                                             final List<Span<T>> actual) {
+        // compare strings, since Duration does not implement equals
+        assertEquals(message, String.valueOf(expected), String.valueOf(actual));
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(message, expected.get(i).startToken, actual.get(i).startToken);
+            assertEquals(message, expected.get(i).endToken, actual.get(i).endToken);
+        }
+    }
+
+    private static <T> void assertParallelMatches(final NumberParserParams<T> unskipping,
+                                                  final NumberParserParams<T> npp,
+                                                  final ExecutorService executor) {
+        // compare strings, since Duration does not implement equals
+        final List<Span<T>> spans = unskipping.getSpans();
+        final String mixedWithText = String.valueOf(unskipping.getMixedWithText());
+        assertSpansMatch("common pool", spans, npp.spansInParallel());
+        assertEquals(mixedWithText, String.valueOf(npp.mixedWithTextInParallel()));
+        assertSpansMatch("custom executor", spans, npp.spansInParallel(executor));
+        assertEquals(mixedWithText, String.valueOf(npp.mixedWithTextInParallel(executor)));
+    }
+
+    /**
+     * Checks that extracting from chunks of a long transcript in parallel, built by concatenating
+     * {@code lines} and {@code filler} many times, gives the same results as the sequential
+     * extraction without skipping any token, both on the common pool and on a custom executor.
+     */
+    protected void assertParallelMatchesSequential(final LocalDateTime now, final String filler, final String... lines) {
+        final String document = buildDocument(60, filler, lines);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (final boolean memoize : MEMOIZE_VALUES) {
+                assertParallelMatches(unskipping(new ExtractNumberParams(numberParser(), document), document),
+                        new ExtractNumberParams(numberParser(), document).memoize(memoize), executor);
+                assertParallelMatches(unskipping(new ExtractDurationParams(numberParser(), document), document),
+                        new ExtractDurationParams(numberParser(), document).memoize(memoize), executor);
+                assertParallelMatches(unskipping(new ExtractDateTimeParams(numberParser(), document).now(now), document),
+                        new ExtractDateTimeParams(numberParser(), document).memoize(memoize).now(now), executor);
+                assertParallelMatches(unskipping(new ExtractAllParams(numberParser(), document).now(now), document),
+                        new ExtractAllParams(numberParser(), document).memoize(memoize).now(now), executor);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // documents between two and three times as long as the minimum chunk length in
+    // NumberParserParams are split into exactly two chunks, at a safe boundary after the middle
+    private static final int SPLIT_PADDING_LENGTH = 2048;
+
+    private static <T> void assertSplitsMatch(final Function<String, NumberParserParams<T>> params,
+                                              final String prefix,
+                                              final String text,
+                                              final String suffix) {
+        final String document = prefix + text + suffix;
+        final List<Span<T>> spans = unskipping(params.apply(document), document).getSpans();
+        final StringBuilder spaces = new StringBuilder();
+        for (int split = prefix.length(); split <= prefix.length() + text.length(); ++split) {
+            // trailing spaces move the middle of the document, and therefore the split, forward
+            while (document.length() + spaces.length() < 2 * split) {
+                spaces.append(' ');
+            }
+            assertSpansMatch("split at " + (split - prefix.length()) + " in: " + text, spans,
+                    params.apply(document + spaces).spansInParallel(Runnable::run));
+        }
+    }
+
+    /**
+     * Checks that extracting in parallel from a document containing {@code text}, padded with
+     * {@code filler}, gives the same results as extracting from the whole document without
+     * skipping any token, whichever character of {@code text} the document is split at. The text
+     * should contain objects right next to each other, and objects with an inert token inside, so
+     * that splits right before and after objects are covered. Document mode is checked too.
+     */
+    protected void assertSplitsMatchWhole(final LocalDateTime now, final String filler, final String text) {
+        final StringBuilder padding = new StringBuilder();
+        while (padding.length() < Math.max(SPLIT_PADDING_LENGTH, text.length() + 1)) {
+            padding.append(filler).append(". ");
+        }
+        // the split is in the middle of the document, so there must be more text before than after
+        final String prefix = padding.toString() + padding;
+        final String suffix = " " + padding;
+
+        final Parser parser = numberParser();
+        assertSplitsMatch(s -> new ExtractNumberParams(parser, s), prefix, text, suffix);
+        assertSplitsMatch(s -> new ExtractDurationParams(parser, s), prefix, text, suffix);
+        assertSplitsMatch(s -> new ExtractDateTimeParams(parser, s).now(now), prefix, text, suffix);
+        assertSplitsMatch(s -> new ExtractAllParams(parser, s).now(now), prefix, text, suffix);
+        assertDocumentMatches(prefix + text + suffix, now);
+    }
+
+    private static <T> void assertStreamMatches(final NumberParserParams<T> unskipping,
+                                                final NumberParserParams<T> npp,
+                                                final String document) {
+        final List<Span<T>> whole = unskipping.getSpans();
+        for (final int bufferSize : new int[]{200, 1000, 65536}) {
+            assertSpansMatch("buffer of " + bufferSize, whole,
+                    SequencesKt.toList(npp.spanSequenceOf(new StringReader(document), bufferSize)));
+        }
+
+        final ReadableByteChannel channel = Channels.newChannel(
+                new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+        assertSpansMatch("channel", whole, SequencesKt.toList(npp.spanSequenceOf(channel)));
+    }
+
+    /**
+     * Checks that extracting from a long transcript read through small buffers, built by
+     * concatenating {@code lines} and {@code filler} many times, gives the same results as
+     * extracting from the whole transcript at once without skipping any token.
+     */
+    protected void assertStreamMatchesWhole(final LocalDateTime now, final String filler, final String... lines) {
+        final String document = buildDocument(20, filler, lines);
+        for (final boolean memoize : MEMOIZE_VALUES) {
+            assertStreamMatches(unskipping(new ExtractNumberParams(numberParser(), document), document),
+                    new ExtractNumberParams(numberParser(), document).memoize(memoize), document);
+            assertStreamMatches(unskipping(new ExtractDurationParams(numberParser(), document), document),
+                    new ExtractDurationParams(numberParser(), document).memoize(memoize), document);
+            assertStreamMatches(unskipping(new ExtractDateTimeParams(numberParser(), document).now(now), document),
+                    new ExtractDateTimeParams(numberParser(), document).memoize(memoize).now(now), document);
+            assertStreamMatches(unskipping(new ExtractAllParams(numberParser(), document).now(now), document),
+                    new ExtractAllParams(numberParser(), document).memoize(memoize).now(now), document);
+        }
     }
 }
@@ -0,0 +1,47 @@
+package org.dicio.numbers.test;
+
+import org.dicio.numbers.LanguageProvider;
+import org.dicio.numbers.lang.en.EnglishFormatter;
+import org.dicio.numbers.lang.en.EnglishParser;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fake language backed by the English formatter and parser, which counts how many times they
+ * are built. Each subclass is registered for tests in META-INF/services with its own language
+ * code, so that tests using different subclasses do not share formatters and parsers.
+ */
+public abstract class CountingLanguageProvider extends LanguageProvider {
+    private CountingLanguageProvider(final String localeString,
+                                     final AtomicInteger formattersBuilt,
+                                     final AtomicInteger parsersBuilt) {
+        super(List.of(localeString), () -> {
+            formattersBuilt.incrementAndGet();
+            return new EnglishFormatter();
+        }, () -> {
+            parsersBuilt.incrementAndGet();
+            return new EnglishParser();
+        });
+    }
+
+    public static final class Lazy extends CountingLanguageProvider {
+        public static final String LANGUAGE = "zz";
+        public static final AtomicInteger FORMATTERS_BUILT = new AtomicInteger();
+        public static final AtomicInteger PARSERS_BUILT = new AtomicInteger();
+
+        public Lazy() {
+            super(LANGUAGE, FORMATTERS_BUILT, PARSERS_BUILT);
+        }
+    }
+
+    public static final class Eager extends CountingLanguageProvider {
+        public static final String LANGUAGE = "zy";
+        public static final AtomicInteger FORMATTERS_BUILT = new AtomicInteger();
+        public static final AtomicInteger PARSERS_BUILT = new AtomicInteger();
+
+        public Eager() {
+            super(LANGUAGE, FORMATTERS_BUILT, PARSERS_BUILT);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.dicio.numbers.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeNotNull;
+
+import com.grack.nanojson.JsonArray;
+import com.grack.nanojson.JsonObject;
+import com.grack.nanojson.JsonParser;
+
+import org.dicio.numbers.formatter.datetime.DateTimeConfig;
+import org.dicio.numbers.formatter.datetime.FormatString;
+import org.dicio.numbers.formatter.datetime.FormatStringCollection;
+import org.dicio.numbers.parser.lexer.DurationToken;
+import org.dicio.numbers.parser.lexer.Token;
+import org.dicio.numbers.parser.lexer.Tokenizer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+public class ConfigSnapshotsTest {
+    private static final String[] CONFIG_FOLDERS = {"config/en-us", "config/it-it", "config/es-es"};
+    private static final String GENERATED_PACKAGE = "org.dicio.numbers.generated.";
+
+    // returns "<key>" for any key, so that format strings can be compared without substitutions
+    private static final Map<String, String> ANY_SUBSTITUTION = new HashMap<>() {
+        @Override
+        public boolean containsKey(final Object key) {
+            return true;
+        }
+
+        @Override
+        public String get(final Object key) {
+            return "<" + key + ">";
+        }
+    };
+
+    // the generated snapshots, sources and classes are deleted after each test
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static byte[] tokenizerSnapshot(final String configFolder) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Tokenizer.writeSnapshot(configFolder, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * @return an utterance made of all of the words in the tokenizer config, plus some variations
+     * of them (e.g. uppercase, with plural endings, joined as compound words)
+     */
+    private static String allWordsUtterance(final String configFolder) throws Exception {
+        final JsonObject root = JsonParser.object().from(
+                ResourceOpener.getResourceAsStream(configFolder + "/tokenizer.json"));
+        final List<String> words = new ArrayList<>();
+        for (final Object match : root.getArray("word_matches")) {
+            for (final Object value : ((JsonObject) match).getArray("values")) {
+                words.add((String) value);
+            }
+        }
+        for (final Object mapping : root.getArray("number_mappings")) {
+            words.addAll(((JsonObject) mapping).getObject("values").keySet());
+        }
+        for (final Object durationWords : root.getObject("duration_words").values()) {
+            for (final Object word : (JsonArray) durationWords) {
+                words.add((String) word);
+            }
+        }
+
+        final StringBuilder builder = new StringBuilder(" \t");
+        for (int i = 0; i < words.size(); ++i) {
+            final String word = words.get(i);
+            builder.append(word).append(" ")
+                    .append(word.toUpperCase()).append(", ")
+                    .append(word).append("s ")
+                    .append(word).append(words.get((i * 7) % words.size())).append(" 12")
+                    .append(word).append("\n");
+        }
+        return builder.append("3.5 -1 4.000,3 unknownword à ").toString();
+    }
+
+    private static void assertTokensEqual(final List<Token> expected, final List<Token> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            final Token e = expected.get(i);
+            final Token a = actual.get(i);
+            final String message = "token " + i + " \"" + e.getValue() + "\"";
+            assertSame(message, e.getClass(), a.getClass());
+            assertEquals(message, e.getValue(), a.getValue());
+            assertEquals(message, e.getSpacesFollowing(), a.getSpacesFollowing());
+            assertEquals(message, e.start, a.start);
+            assertEquals(message, e.end, a.end);
+            assertEquals(message, e.getNumber(), a.getNumber());
+            // also test non-predefined categories, which are interned when loading the config
+            for (int category = 0; category < 128; ++category) {
+                assertEquals(message + " category " + category,
+                        e.hasCategory(category), a.hasCategory(category));
+            }
+
+            final DurationToken ed = e.getAsDurationToken();
+            final DurationToken ad = a.getAsDurationToken();
+            if (ed == null) {
+                assertNull(message, ad);
+            } else {
+                assertEquals(message, ed.getDurationCategory(), ad.getDurationCategory());
+                assertEquals(message, ed.getDurationMultiplier().nanos,
+                        ad.getDurationMultiplier().nanos);
+                assertEquals(message, ed.getDurationMultiplier().days,
+                        ad.getDurationMultiplier().days);
+                assertEquals(message, ed.getDurationMultiplier().months,
+                        ad.getDurationMultiplier().months);
+                assertEquals(message, ed.getDurationMultiplier().years,
+                        ad.getDurationMultiplier().years);
+                assertEquals(message, ed.isRestrictedAfterNumber(), ad.isRestrictedAfterNumber());
+            }
+        }
+    }
+
+    private static void assertFormatEqual(final FormatString expected, final FormatString actual) {
+        assertEquals(expected.format(ANY_SUBSTITUTION), actual.format(ANY_SUBSTITUTION));
+    }
+
+    private static void assertFormatEqual(final FormatStringCollection expected,
+                                          final FormatStringCollection actual) {
+        for (int number = 0; number < 10000; number += 7) {
+            assertFormatEqual(expected.getMostSuitableFormatString(number),
+                    actual.getMostSuitableFormatString(number));
+        }
+    }
+
+    @Test
+    public void tokenizerSnapshotRoundTrip() throws Exception {
+        for (final String configFolder : CONFIG_FOLDERS) {
+            final Tokenizer fromJson = Tokenizer.fromJson(configFolder);
+            final Tokenizer fromSnapshot = Tokenizer.fromSnapshot(
+                    new ByteArrayInputStream(tokenizerSnapshot(configFolder)));
+
+            final String utterance = allWordsUtterance(configFolder);
+            assertTokensEqual(fromJson.tokenize(utterance), fromSnapshot.tokenize(utterance));
+        }
+    }
+
+    @Test
+    public void tokenizerSnapshotIsDeterministic() throws Exception {
+        for (final String configFolder : CONFIG_FOLDERS) {
+            assertArrayEquals(tokenizerSnapshot(configFolder), tokenizerSnapshot(configFolder));
+        }
+    }
+
+    @Test
+    public void dateTimeConfigSnapshotRoundTrip() throws Exception {
+        for (final String configFolder : CONFIG_FOLDERS) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            DateTimeConfig.writeSnapshot(configFolder, output);
+            final DateTimeConfig e = DateTimeConfig.fromJson(configFolder);
+            final DateTimeConfig a = DateTimeConfig.fromSnapshot(
+                    new ByteArrayInputStream(output.toByteArray()));
+
+            assertFormatEqual(e.decadeFormat, a.decadeFormat);
+            assertFormatEqual(e.hundredFormat, a.hundredFormat);
+            assertFormatEqual(e.thousandFormat, a.thousandFormat);
+            assertFormatEqual(e.yearFormat, a.yearFormat);
+            assertEquals(e.bc, a.bc);
+            assertFormatEqual(e.dateFormatFull, a.dateFormatFull);
+            assertFormatEqual(e.dateFormatFullNoYear, a.dateFormatFullNoYear);
+            assertFormatEqual(e.dateFormatFullNoYearMonth, a.dateFormatFullNoYearMonth);
+            assertFormatEqual(e.dateTimeFormat, a.dateTimeFormat);
+            assertEquals(e.today, a.today);
+            assertEquals(e.tomorrow, a.tomorrow);
+            assertEquals(e.yesterday, a.yesterday);
+            assertArrayEquals(e.weekdays, a.weekdays);
+            assertArrayEquals(e.days, a.days);
+            assertArrayEquals(e.months, a.months);
+            assertEquals(e.numbers, a.numbers);
+            assertEquals(e.dayWord, a.dayWord);
+            assertEquals(e.daysWord, a.daysWord);
+            assertEquals(e.hourWord, a.hourWord);
+            assertEquals(e.hoursWord, a.hoursWord);
+            assertEquals(e.minuteWord, a.minuteWord);
+            assertEquals(e.minutesWord, a.minutesWord);
+            assertEquals(e.secondWord, a.secondWord);
+            assertEquals(e.secondsWord, a.secondsWord);
+        }
+    }
+
+    @Test
+    public void mappedTokenizerSnapshot() throws Exception {
+        for (final String configFolder : CONFIG_FOLDERS) {
+            final Path file = Files.createTempFile("tokenizer", ".bin");
+            try {
+                Files.write(file, tokenizerSnapshot(configFolder));
+                final Tokenizer fromJson = Tokenizer.fromJson(configFolder);
+                final Tokenizer mapped = Tokenizer.fromMappedSnapshot(file);
+
+                final String utterance = allWordsUtterance(configFolder);
+                assertTokensEqual(fromJson.tokenize(utterance), mapped.tokenize(utterance));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void snapshotDirectory() throws Exception {
+        final Path directory = temporaryFolder.newFolder("configSnapshots").toPath();
+        ConfigSnapshots.main(new String[]{directory.toString(), "config/en-us"});
+        // not a valid snapshot, so the other snapshots or the json files are used instead
+        Files.createDirectories(directory.resolve("config/it-it"));
+        Files.write(directory.resolve("config/it-it/tokenizer.bin"), new byte[]{1, 2, 3});
+
+        ConfigSnapshots.setSnapshotDirectory(directory);
+        try {
+            final String utterance = allWordsUtterance("config/en-us");
+            assertTokensEqual(Tokenizer.fromJson("config/en-us").tokenize(utterance),
+                    new Tokenizer("config/en-us").tokenize(utterance));
+            assertEquals(DateTimeConfig.fromJson("config/en-us").today,
+                    new DateTimeConfig("config/en-us").today);
+            assertEquals(Tokenizer.fromJson("config/it-it").tokenize("ventidue").get(0).getNumber(),
+                    new Tokenizer("config/it-it").tokenize("ventidue").get(0).getNumber());
+        } finally {
+            ConfigSnapshots.setSnapshotDirectory(null);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void snapshotOfWrongType() throws Exception {
+        // a tokenizer snapshot is not a date time config snapshot
+        DateTimeConfig.fromSnapshot(new ByteArrayInputStream(tokenizerSnapshot("config/en-us")));
+    }
+
+    @Test(expected = IOException.class)
+    public void snapshotOfOtherVersion() throws Exception {
+        final byte[] snapshot = tokenizerSnapshot("config/en-us");
+        snapshot[7] ^= 0x7f; // the last byte of the version, after the 4-byte magic
+        Tokenizer.fromSnapshot(new ByteArrayInputStream(snapshot));
+    }
+
+    @Test
+    public void generatedJavaSource() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler); // only available when running on a JDK
+
+        final File outputDir = temporaryFolder.newFolder("configSources");
+        ConfigSnapshots.main(new String[]{"--java", outputDir.getPath(), "config/en-us"});
+        final File source = new File(outputDir,
+                "org/dicio/numbers/generated/GeneratedConfigSnapshots.java");
+        assertEquals(0, compiler.run(null, null, null, "-nowarn",
+                "-cp", System.getProperty("java.class.path"), source.getPath()));
+
+        try (URLClassLoader classLoader = new URLClassLoader(
+                new URL[]{outputDir.toURI().toURL()}, getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(final String name, final boolean resolve)
+                    throws ClassNotFoundException {
+                // the build puts the generated classes of all configs on the classpath, so load
+                // the ones just compiled without asking the parent class loader first
+                if (!name.startsWith(GENERATED_PACKAGE)) {
+                    return super.loadClass(name, resolve);
+                }
+                synchronized (getClassLoadingLock(name)) {
+                    final Class<?> loaded = findLoadedClass(name);
+                    return loaded == null ? findClass(name) : loaded;
+                }
+            }
+        }) {
+            final ConfigSnapshotSource snapshotSource = (ConfigSnapshotSource) classLoader
+                    .loadClass(GENERATED_PACKAGE + "GeneratedConfigSnapshots")
+                    .getDeclaredConstructor().newInstance();
+
+            assertArrayEquals(tokenizerSnapshot("config/en-us"),
+                    snapshotSource.snapshot("config/en-us/tokenizer.bin"));
+            assertNull(snapshotSource.snapshot("config/it-it/tokenizer.bin"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidConfigFailsGeneration() throws Exception {
+        // the tokenizer.json of this config has a duration word with an unknown unit
+        ConfigSnapshots.main(new String[]{
+                temporaryFolder.newFolder("configSnapshots").toString(), "config/invalid"});
+    }
+}